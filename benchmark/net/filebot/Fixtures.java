@@ -0,0 +1,244 @@
+package net.filebot;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static java.util.stream.Collectors.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import net.filebot.web.Episode;
+import net.filebot.web.Movie;
+import net.filebot.web.SeriesInfo;
+import net.filebot.web.SimpleDate;
+
+/**
+ * Deterministic offline fixtures for benchmarks. Synthetic movie / series / anime indexes are written as XZ compressed data files and installed via the {@code url.*} resource overrides, and a fresh application cache folder is used, so that no network access is required.
+ */
+public class Fixtures {
+
+	public static final int MOVIE_INDEX_SIZE = Integer.getInteger("net.filebot.benchmark.movies", 20000);
+	public static final int SERIES_INDEX_SIZE = Integer.getInteger("net.filebot.benchmark.series", 5000);
+	public static final int ANIME_INDEX_SIZE = Integer.getInteger("net.filebot.benchmark.anime", 2000);
+
+	private static final String[] WORDS = { "Amber", "Angel", "Arrow", "Autumn", "Bad", "Black", "Blood", "Blue", "Breaking", "Bridge", "Broken", "Brother", "Burning", "Castle", "City", "Clear", "Cold", "Crown", "Dark", "Dawn", "Day", "Dead", "Death", "Desert", "Devil", "Diamond", "Doctor", "Dragon", "Dream", "Earth", "Echo", "Edge", "Empire", "End", "Eternal", "Falling", "Family", "Fire", "First", "Forest", "Forever", "Fortune", "Friends", "Frozen", "Game", "Garden", "Ghost", "Girl", "Glass", "Gold", "Good", "Green", "Grey", "Guardian", "Hammer", "Harbor", "Heart", "Heaven", "Hidden", "High", "Home", "House", "Hunter", "Ice", "Iron", "Island", "Journey", "King", "Kingdom", "Knight", "Lady", "Last", "Legend", "Life", "Light", "Lion", "Little", "Lost", "Love", "Lucky", "Machine", "Man", "Midnight", "Mirror", "Moon", "Mountain", "Murder", "Night", "North", "Ocean", "Office", "Orange", "Paradise", "Park", "Past", "Perfect", "Planet", "Prince", "Queen", "Rain", "Red", "River", "Road", "Rock", "Rose", "Royal", "Savage", "Sea", "Secret", "Shadow", "Silent", "Silver", "Sky", "Snow", "Soldier", "Song", "Soul", "Space", "Star", "Steel", "Stone", "Storm", "Story", "Street", "Summer", "Sun", "Sweet", "Thunder", "Time", "Tomorrow", "Tower", "Town", "True", "Truth", "Twin", "Valley", "Voice", "War", "Water", "West", "White", "Wild", "Wind", "Winter", "Wolf", "Woman", "World", "Young" };
+
+	private static final String[] RELEASE_GROUPS = { "AMIABLE", "CtrlHD", "DEFLATE", "DIMENSION", "EVO", "FGT", "FLEET", "GECKOS", "KILLERS", "LOL", "NTb", "RARBG", "SPARKS", "SVA", "TBS", "YIFY" };
+
+	private static final String[] QUERY_BLACKLIST = { "(?i:Sample)", "(?i:Complete)", "(?i:Season)", "(?i:Series)", "(?i:Extras)", "(?i:Torrent)", "(?i:www[.][a-z]+[.]com)" };
+
+	private static final String[] MOVIE_TAGS = { "720p.BluRay.x264", "1080p.BluRay.x264", "1080p.WEB-DL.DD5.1.H264", "DVDRip.XviD", "BRRip.XviD.AC3", "2160p.UHD.BluRay.x265.10bit.HDR" };
+
+	private static final String[] EPISODE_TAGS = { "720p.HDTV.x264", "HDTV.x264", "1080p.WEB.h264", "720p.WEB-DL.DD5.1.H.264", "HDTV.XviD" };
+
+	private static File root;
+
+	private static List<Movie> movies;
+	private static List<SeriesInfo> series;
+	private static List<SeriesInfo> anime;
+
+	/**
+	 * Use empty application data and cache folders, so that data files are always read from the offline fixtures and history or cache files of the current user are not modified. Must be called before any application class is used.
+	 */
+	public static synchronized File isolate() throws IOException {
+		if (root == null) {
+			root = Files.createTempDirectory("filebot-benchmark").toFile();
+			System.setProperty("application.dir", mkdirs(new File(root, "data")).getPath());
+			System.setProperty("application.cache", mkdirs(new File(root, "cache")).getPath());
+		}
+		return root;
+	}
+
+	/**
+	 * Install offline data files. Must be called before any application class is used.
+	 */
+	public static synchronized void install() throws IOException {
+		if (movies != null) {
+			return;
+		}
+
+		File data = mkdirs(new File(isolate(), "index"));
+		Random random = new Random(42);
+
+		movies = new ArrayList<Movie>(MOVIE_INDEX_SIZE);
+		for (int i = 0; i < MOVIE_INDEX_SIZE; i++) {
+			movies.add(new Movie(name(random, 1, 4), new String[0], 1950 + random.nextInt(69), 100000 + i, 1000 + i, null));
+		}
+
+		series = seriesList(random, SERIES_INDEX_SIZE, "TheTVDB", 70000);
+		anime = seriesList(random, ANIME_INDEX_SIZE, "AniDB", 1);
+
+		write(data, "url.movie-list", movies.stream().map(m -> m.getImdbId() + "\t" + m.getTmdbId() + "\t" + m.getYear() + "\t" + m.getName()).collect(toList()));
+		write(data, "url.thetvdb-index", series.stream().map(s -> s.getId() + "\t" + s.getName()).collect(toList()));
+		write(data, "url.anidb-index", anime.stream().map(s -> s.getId() + "\t" + s.getName()).collect(toList()));
+		write(data, "url.release-groups", asList(RELEASE_GROUPS));
+		write(data, "url.query-blacklist", asList(QUERY_BLACKLIST));
+		write(data, "url.series-mappings", asList(series.get(0).getName().replace(' ', '.') + "\t" + series.get(0).getName()));
+		write(data, "url.osdb-index", movies.stream().limit(1000).map(m -> "m\t1\t" + m.getImdbId() + "\t" + m.getYear() + "\t" + m.getName()).collect(toList()));
+	}
+
+	public static File getRoot() {
+		return root;
+	}
+
+	public static List<Movie> getMovies() {
+		return movies;
+	}
+
+	public static List<SeriesInfo> getSeries() {
+		return series;
+	}
+
+	public static List<SeriesInfo> getAnime() {
+		return anime;
+	}
+
+	/**
+	 * @return scene-style movie file names, e.g. {@code Dark.River.Knight.1994.1080p.BluRay.x264-SPARKS.mkv}
+	 */
+	public static List<String> getMovieFileNames(int count, long seed) {
+		Random random = new Random(seed);
+		List<String> names = new ArrayList<String>(count);
+
+		for (int i = 0; i < count; i++) {
+			Movie m = movies.get(random.nextInt(movies.size()));
+			names.add(m.getName().replace(' ', '.') + "." + m.getYear() + "." + pick(random, MOVIE_TAGS) + "-" + pick(random, RELEASE_GROUPS) + ".mkv");
+		}
+
+		return names;
+	}
+
+	/**
+	 * @return scene-style episode file names, e.g. {@code Silver.Tower.S02E05.720p.HDTV.x264-LOL.mkv} or {@code silver.tower.2x05.hdtv-lol.avi}
+	 */
+	public static List<String> getEpisodeFileNames(int count, long seed) {
+		Random random = new Random(seed);
+		List<String> names = new ArrayList<String>(count);
+
+		for (int i = 0; i < count; i++) {
+			names.add(getEpisodeFileName(series.get(random.nextInt(series.size())).getName(), 1 + random.nextInt(8), 1 + random.nextInt(24), random));
+		}
+
+		return names;
+	}
+
+	public static String getEpisodeFileName(String seriesName, int season, int episode, Random random) {
+		String group = pick(random, RELEASE_GROUPS);
+
+		switch (random.nextInt(4)) {
+		case 0:
+			return String.format("%s.%dx%02d.hdtv-%s.avi", seriesName.replace(' ', '.').toLowerCase(), season, episode, group.toLowerCase());
+		case 1:
+			return String.format("%s - %dx%02d - %s.mkv", seriesName, season, episode, name(random, 1, 3));
+		default:
+			return String.format("%s.S%02dE%02d.%s-%s.mkv", seriesName.replace(' ', '.'), season, episode, pick(random, EPISODE_TAGS), group);
+		}
+	}
+
+	/**
+	 * @return recorded episode list for the given series, ordered by season and episode number
+	 */
+	public static List<Episode> getEpisodeList(SeriesInfo info) {
+		Random random = new Random(info.getId());
+		List<Episode> episodes = new ArrayList<Episode>();
+
+		int seasons = 1 + random.nextInt(8);
+		int year = info.getStartDate().getYear();
+
+		for (int s = 1; s <= seasons; s++) {
+			int count = 8 + random.nextInt(17);
+			for (int e = 1; e <= count; e++) {
+				SimpleDate airdate = new SimpleDate(year + s - 1, 1 + (e - 1) / 4 % 12, 1 + random.nextInt(28));
+				episodes.add(new Episode(info.getName(), s, e, name(random, 1, 4), episodes.size() + 1, null, airdate, info.getId() * 1000 + episodes.size(), info));
+			}
+		}
+
+		return episodes;
+	}
+
+	/**
+	 * @return recorded episode lists mapped by series name
+	 */
+	public static Map<String, List<Episode>> getEpisodeLists(int count) {
+		Map<String, List<Episode>> episodeLists = new LinkedHashMap<String, List<Episode>>();
+		for (SeriesInfo info : series.subList(0, Math.min(count, series.size()))) {
+			episodeLists.put(info.getName(), getEpisodeList(info));
+		}
+		return episodeLists;
+	}
+
+	/**
+	 * @return empty media files with the given names in a new folder below the fixture root
+	 */
+	public static List<File> createFiles(String folder, List<String> names) throws IOException {
+		File parent = new File(root, folder);
+		List<File> files = new ArrayList<File>(names.size());
+
+		for (String name : names) {
+			File f = new File(parent, name);
+			mkdirs(f.getParentFile());
+			if (!f.exists()) {
+				Files.createFile(f.toPath());
+			}
+			files.add(f);
+		}
+
+		return files;
+	}
+
+	private static List<SeriesInfo> seriesList(Random random, int size, String database, int firstId) {
+		List<SeriesInfo> list = new ArrayList<SeriesInfo>(size);
+
+		for (int i = 0; i < size; i++) {
+			SeriesInfo info = new SeriesInfo();
+			info.setDatabase(database);
+			info.setLanguage("en");
+			info.setId(firstId + i);
+			info.setName(name(random, 1, 3));
+			info.setStartDate(new SimpleDate(1980 + random.nextInt(39), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+			list.add(info);
+		}
+
+		return list;
+	}
+
+	private static String name(Random random, int min, int max) {
+		int length = min + random.nextInt(max - min + 1);
+		StringBuilder name = new StringBuilder(random.nextInt(4) == 0 ? "The" : pick(random, WORDS));
+		for (int i = 0; i < length; i++) {
+			name.append(' ').append(pick(random, WORDS));
+		}
+		return name.toString();
+	}
+
+	private static String pick(Random random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private static void write(File folder, String name, List<String> lines) throws IOException {
+		File file = new File(folder, name.substring(4) + ".txt.xz");
+
+		try (OutputStream out = new XZOutputStream(Files.newOutputStream(file.toPath()), new LZMA2Options())) {
+			out.write(String.join("\n", lines).getBytes(UTF_8));
+		}
+
+		// override resource location
+		System.setProperty(name, file.toURI().toString());
+	}
+
+	private static File mkdirs(File folder) {
+		folder.mkdirs();
+		return folder;
+	}
+
+}
@@ -0,0 +1,177 @@
+package net.filebot.cli;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.stream.Collectors.*;
+import static net.filebot.MediaTypes.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import net.filebot.Fixtures;
+import net.filebot.RenameAction;
+import net.filebot.StandardRenameAction;
+import net.filebot.format.ExpressionFileFormat;
+import net.filebot.media.AutoDetection;
+import net.filebot.media.AutoDetection.Group;
+import net.filebot.media.AutoDetection.Type;
+import net.filebot.util.StageTimer;
+import net.filebot.util.StageTimer.Split;
+import net.filebot.util.StageTimer.Stage;
+import net.filebot.web.Episode;
+import net.filebot.web.FixtureDatasource;
+import net.filebot.web.SeriesInfo;
+import net.filebot.web.SortOrder;
+
+/**
+ * Reproducible end-to-end benchmark for the {@code -rename} pipeline that reports the time spent in each stage (walk, detect, fetch, match, format, rename).
+ * <p>
+ * By default, a tree of fake media files (e.g. 10k or 100k files) is generated from the offline fixture index and renamed with the {@link FixtureDatasource}. Alternatively, an existing tree can be processed in test mode with the default online datasources via {@code -Dnet.filebot.benchmark.tree=<folder>}. Web responses are then recorded via {@code -Dnet.filebot.web.record=<folder>} and replayed without network access via {@code -Dnet.filebot.web.replay=<folder>}.
+ */
+public class RenameBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		File results = args.length > 1 ? new File(args[1]) : null;
+
+		File tree = System.getProperty("net.filebot.benchmark.tree") == null ? null : new File(System.getProperty("net.filebot.benchmark.tree"));
+
+		// must be set before any application class is loaded
+		System.setProperty("net.filebot.StageTimer", "true");
+		Fixtures.isolate();
+
+		// never access the network unless responses are explicitly recorded
+		if (System.getProperty("net.filebot.web.record") == null && System.getProperty("net.filebot.web.replay") == null) {
+			System.setProperty("net.filebot.web.replay", new File(Fixtures.getRoot(), "replay").getPath());
+		}
+
+		if (tree == null) {
+			Fixtures.install();
+		}
+
+		ExpressionFileFormat format = new ExpressionFileFormat(System.getProperty("net.filebot.benchmark.format", "{plex}"));
+		List<File> destinationFiles;
+		long elapsed;
+
+		if (tree == null) {
+			File input = generateTree(new File(Fixtures.getRoot(), "input"), count);
+			System.out.format("Rename %d files in %s%n", count, input);
+
+			StageTimer.reset();
+			long start = System.nanoTime();
+			destinationFiles = renameFixtures(input, new File(Fixtures.getRoot(), "output"), format);
+			elapsed = System.nanoTime() - start;
+		} else {
+			System.out.format("Rename %s%n", tree);
+
+			StageTimer.reset();
+			long start = System.nanoTime();
+			destinationFiles = renameTree(tree, format);
+			elapsed = System.nanoTime() - start;
+		}
+
+		String report = getReport(destinationFiles.size(), elapsed);
+		System.out.println(report);
+
+		if (results != null) {
+			Files.write(results.toPath(), report.getBytes(UTF_8));
+		}
+
+		System.exit(0);
+	}
+
+	protected static List<File> renameFixtures(File input, File output, ExpressionFileFormat format) throws Exception {
+		CmdlineOperations cli = new CmdlineOperations();
+		FixtureDatasource db = new FixtureDatasource();
+		RenameAction action = StandardRenameAction.MOVE;
+
+		List<File> files = walk(input);
+		List<File> destinationFiles = new ArrayList<File>();
+
+		Map<Group, Set<File>> groups;
+		try (Split split = StageTimer.start(Stage.Detect)) {
+			groups = new AutoDetection(files, false, Locale.ENGLISH).group();
+		}
+
+		for (Entry<Group, Set<File>> it : groups.entrySet()) {
+			Type[] types = it.getKey().types();
+			if (types.length != 1) {
+				System.out.format("Skip %d files: %s%n", it.getValue().size(), it.getKey());
+				continue;
+			}
+
+			try {
+				switch (types[0]) {
+				case Movie:
+					destinationFiles.addAll(cli.renameMovie(it.getValue(), action, ConflictAction.INDEX, output, format, db, null, null, Locale.ENGLISH, false, null));
+					break;
+				case Series:
+				case Anime:
+					destinationFiles.addAll(cli.renameSeries(it.getValue(), action, ConflictAction.INDEX, output, format, db, null, SortOrder.Airdate, null, Locale.ENGLISH, false, null));
+					break;
+				default:
+					System.out.format("Skip %d files: %s%n", it.getValue().size(), it.getKey());
+				}
+			} catch (CmdlineException e) {
+				System.out.format("Failed to process group: %s: %s%n", it.getKey(), e.getMessage());
+			}
+		}
+
+		return destinationFiles;
+	}
+
+	protected static List<File> renameTree(File input, ExpressionFileFormat format) throws Exception {
+		// use default datasources but do not modify any files
+		return new CmdlineOperations().rename(walk(input), StandardRenameAction.TEST, ConflictAction.SKIP, null, format, null, null, SortOrder.Airdate, null, Locale.ENGLISH, false, null);
+	}
+
+	protected static List<File> walk(File folder) {
+		try (Split split = StageTimer.start(Stage.Walk)) {
+			return listFiles(folder, FILES, HUMAN_NAME_ORDER);
+		}
+	}
+
+	/**
+	 * Generate a tree of empty media files, mostly episodes grouped by series and season folders, and movies in their own folders
+	 */
+	protected static File generateTree(File folder, int count) throws Exception {
+		Random random = new Random(count);
+
+		List<String> paths = new ArrayList<String>(count);
+		List<SeriesInfo> series = Fixtures.getSeries();
+
+		while (paths.size() < count * 7 / 10) {
+			SeriesInfo info = series.get(random.nextInt(series.size()));
+			for (Episode e : Fixtures.getEpisodeList(info)) {
+				if (paths.size() < count * 7 / 10 && random.nextInt(10) > 0) {
+					paths.add(String.format("TV/%s/Season %d/%s", info.getName(), e.getSeason(), Fixtures.getEpisodeFileName(info.getName(), e.getSeason(), e.getEpisode(), random)));
+				}
+			}
+		}
+
+		for (String name : Fixtures.getMovieFileNames(count - paths.size(), count)) {
+			paths.add("Movies/" + getNameWithoutExtension(name) + "/" + name);
+		}
+
+		Fixtures.createFiles(folder.getName(), paths.stream().distinct().collect(toList()));
+		return folder;
+	}
+
+	protected static String getReport(int files, long elapsed) {
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append(String.format("  \"files\": %d,%n", files));
+		json.append(String.format("  \"elapsed\": %d,%n", elapsed / 1000000));
+		json.append(StageTimer.getTotals().entrySet().stream().map(it -> String.format("  \"%s\": %d", it.getKey().name().toLowerCase(), it.getValue().toMillis())).collect(joining(",\n")));
+		json.append("\n}\n");
+		return json.toString();
+	}
+
+}
@@ -0,0 +1,69 @@
+package net.filebot.format;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionBindingsBenchmark {
+
+	public static class SampleBean {
+
+		@Define("n")
+		public String getName() {
+			return "Firefly";
+		}
+
+		@Define("t")
+		public String getTitle() {
+			return "Serenity";
+		}
+
+		@Define({ "i", "index" })
+		public int getIndex() {
+			return 42;
+		}
+	}
+
+	SampleBean bean;
+	ExpressionBindings bindings;
+	Method method;
+
+	@Setup
+	public void setup() throws Exception {
+		bean = new SampleBean();
+		bindings = new ExpressionBindings(bean);
+		method = SampleBean.class.getMethod("getName");
+	}
+
+	@Benchmark
+	public Object lookup() {
+		return bindings.get("n");
+	}
+
+	@Benchmark
+	public Object createAndLookup() {
+		return new ExpressionBindings(bean).get("n");
+	}
+
+	@Benchmark
+	public Object reflection() throws Exception {
+		return method.invoke(bean);
+	}
+
+}
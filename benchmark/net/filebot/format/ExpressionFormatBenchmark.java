@@ -0,0 +1,91 @@
+package net.filebot.format;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.filebot.Fixtures;
+import net.filebot.web.Episode;
+import net.filebot.web.SeriesInfo;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionFormatBenchmark {
+
+	@Param({ "{n} - {s00e00} - {t}", "{n.upperInitial()}/Season {s.pad(2)}/{n.replaceAll(/[:?]/, '')} ({y}) - {s00e00} - {t.lowerTrail()}", "{any{n.match(/(?i)^The (.+)/) + ', The'}{n}} {[s, e].join('x')} {absolute ?: ''} {airdate.format('yyyy-MM-dd')}" })
+	public String expression;
+
+	ExpressionFormat format;
+
+	List<Episode> episodes;
+	List<File> files;
+
+	@Setup
+	public void setup() throws Exception {
+		Fixtures.install();
+
+		SeriesInfo info = Fixtures.getSeries().get(0);
+		episodes = Fixtures.getEpisodeList(info);
+		files = new ArrayList<File>(episodes.size());
+
+		for (Episode e : episodes) {
+			files.add(new File(Fixtures.getRoot(), e.getSeriesName() + "." + e.getSeason() + "x" + e.getEpisode() + ".mkv"));
+		}
+
+		format = new ExpressionFormat(expression);
+	}
+
+	@Benchmark
+	public void format(Blackhole bh) {
+		for (int i = 0; i < episodes.size(); i++) {
+			bh.consume(format.format(new MediaBindingBean(episodes.get(i), files.get(i))));
+		}
+	}
+
+	@Benchmark
+	public Object compile(Uncached uncached) throws Exception {
+		return new ExpressionFormat(expression);
+	}
+
+	@State(Scope.Thread)
+	public static class Uncached {
+
+		@Setup(Level.Invocation)
+		public void clearCache() throws Exception {
+			// compile from scratch instead of measuring a cache hit, but keep the script engine
+			for (String name : new String[] { "compilationCache", "scriptletCache" }) {
+				Field field = ExpressionFormat.class.getDeclaredField(name);
+				field.setAccessible(true);
+
+				Map<?, ?> cache = (Map<?, ?>) field.get(null);
+				synchronized (ExpressionFormat.class) {
+					synchronized (cache) {
+						cache.clear();
+					}
+				}
+			}
+		}
+	}
+
+}
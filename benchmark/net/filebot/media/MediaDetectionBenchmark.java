@@ -0,0 +1,86 @@
+package net.filebot.media;
+
+import static java.util.Collections.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.filebot.Fixtures;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MediaDetectionBenchmark {
+
+	List<String> movieNames;
+	List<File> movieFiles;
+	List<File> episodeFiles;
+
+	@Setup
+	public void setup() throws Exception {
+		Fixtures.install();
+
+		movieNames = Fixtures.getMovieFileNames(20, 3);
+		movieFiles = Fixtures.createFiles("Movies", movieNames);
+		episodeFiles = Fixtures.createFiles("TV Shows", Fixtures.getEpisodeFileNames(20, 4));
+
+		// load and prepare offline index data
+		MediaDetection.warmupCachedResources();
+	}
+
+	@Benchmark
+	public void stripReleaseInfo(Blackhole bh) {
+		for (String name : movieNames) {
+			bh.consume(MediaDetection.stripReleaseInfo(name, true));
+		}
+	}
+
+	@Benchmark
+	public void matchMovieName(Blackhole bh) {
+		for (String name : movieNames) {
+			bh.consume(MediaDetection.matchMovieName(singleton(MediaDetection.stripReleaseInfo(name, true)), true, 0));
+		}
+	}
+
+	@Benchmark
+	public void detectMovie(Blackhole bh) throws Exception {
+		for (File f : movieFiles) {
+			bh.consume(MediaDetection.detectMovie(f, null, Locale.ENGLISH, true));
+		}
+	}
+
+	@Benchmark
+	public void detectSeriesNames(Blackhole bh) throws Exception {
+		for (File f : episodeFiles) {
+			bh.consume(MediaDetection.detectSeriesNames(singleton(f), false, Locale.ENGLISH));
+		}
+	}
+
+	@Benchmark
+	public void isEpisode(Blackhole bh) {
+		for (File f : movieFiles) {
+			bh.consume(MediaDetection.isEpisode(f, true));
+		}
+		for (File f : episodeFiles) {
+			bh.consume(MediaDetection.isEpisode(f, true));
+		}
+	}
+
+}
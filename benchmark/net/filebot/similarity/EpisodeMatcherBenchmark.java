@@ -0,0 +1,77 @@
+package net.filebot.similarity;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.filebot.Fixtures;
+import net.filebot.web.Episode;
+import net.filebot.web.SeriesInfo;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EpisodeMatcherBenchmark {
+
+	@Param({ "1", "5" })
+	public int seriesCount;
+
+	List<File> files;
+	List<Episode> episodes;
+
+	@Setup
+	public void setup() throws Exception {
+		Fixtures.install();
+
+		files = new ArrayList<File>();
+		episodes = new ArrayList<Episode>();
+
+		// match the files of multiple series against all recorded episodes at once
+		Random random = new Random(seriesCount);
+
+		for (SeriesInfo info : Fixtures.getSeries().subList(0, seriesCount)) {
+			List<Episode> episodeList = Fixtures.getEpisodeList(info);
+			List<String> names = new ArrayList<String>();
+
+			for (Episode e : episodeList) {
+				if (random.nextInt(10) > 0) {
+					names.add(Fixtures.getEpisodeFileName(e.getSeriesName(), e.getSeason(), e.getEpisode(), random));
+				}
+			}
+
+			files.addAll(Fixtures.createFiles(info.getName(), names));
+			episodes.addAll(episodeList);
+		}
+
+		Collections.shuffle(files, random);
+	}
+
+	@Benchmark
+	public Object match() throws Exception {
+		return new Matcher<File, Episode>(files, episodes, true, EpisodeMetrics.defaultSequence(false)).match();
+	}
+
+	@Benchmark
+	public Object matchWithFileMetrics() throws Exception {
+		return new Matcher<File, Episode>(files, episodes, true, EpisodeMetrics.defaultSequence(true)).match();
+	}
+
+}
@@ -0,0 +1,61 @@
+package net.filebot.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.filebot.Fixtures;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeasonEpisodeMatcherBenchmark {
+
+	List<String> names;
+
+	SeasonEpisodeMatcher strict;
+	SeasonEpisodeMatcher lenient;
+
+	@Setup
+	public void setup() throws Exception {
+		Fixtures.install();
+
+		// mostly episodes but also movie names that must not match
+		names = new ArrayList<String>();
+		names.addAll(Fixtures.getEpisodeFileNames(800, 1));
+		names.addAll(Fixtures.getMovieFileNames(200, 2));
+
+		strict = new SeasonEpisodeMatcher(SeasonEpisodeMatcher.DEFAULT_SANITY, true);
+		lenient = new SeasonEpisodeMatcher(SeasonEpisodeMatcher.LENIENT_SANITY, false);
+	}
+
+	@Benchmark
+	public void strict(Blackhole bh) {
+		for (String name : names) {
+			bh.consume(strict.match(name));
+		}
+	}
+
+	@Benchmark
+	public void lenient(Blackhole bh) {
+		for (String name : names) {
+			bh.consume(lenient.match(name));
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+package net.filebot.web;
+
+import static java.util.stream.Collectors.*;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+import javax.swing.Icon;
+
+import net.filebot.Fixtures;
+import net.filebot.util.StageTimer;
+import net.filebot.util.StageTimer.Split;
+import net.filebot.util.StageTimer.Stage;
+
+/**
+ * Offline episode and movie database backed by the synthetic fixture index. Each request may be delayed to simulate network latency.
+ */
+public class FixtureDatasource implements EpisodeListProvider, MovieIdentificationService {
+
+	public static final int LATENCY = Integer.getInteger("net.filebot.benchmark.latency", 0);
+
+	private final Map<Integer, SeriesInfo> series = Fixtures.getSeries().stream().collect(toMap(SeriesInfo::getId, Function.identity()));
+	private final Map<Integer, Movie> movies = Fixtures.getMovies().stream().collect(toMap(Movie::getTmdbId, Function.identity()));
+
+	@Override
+	public String getIdentifier() {
+		return "Fixtures";
+	}
+
+	@Override
+	public Icon getIcon() {
+		return null;
+	}
+
+	@Override
+	public boolean hasSeasonSupport() {
+		return true;
+	}
+
+	@Override
+	public List<SearchResult> search(String query, Locale locale) throws Exception {
+		return request(() -> series.values().stream().filter(s -> matches(s.getName(), query)).map(s -> new SearchResult(s.getId(), s.getName())).limit(10).collect(toList()));
+	}
+
+	@Override
+	public List<Episode> getEpisodeList(SearchResult searchResult, SortOrder order, Locale locale) throws Exception {
+		return getEpisodeList(searchResult.getId(), order, locale);
+	}
+
+	@Override
+	public List<Episode> getEpisodeList(int id, SortOrder order, Locale locale) throws Exception {
+		return request(() -> Fixtures.getEpisodeList(series.get(id)));
+	}
+
+	@Override
+	public SeriesInfo getSeriesInfo(SearchResult searchResult, Locale locale) throws Exception {
+		return getSeriesInfo(searchResult.getId(), locale);
+	}
+
+	@Override
+	public SeriesInfo getSeriesInfo(int id, Locale locale) throws Exception {
+		return request(() -> series.get(id).clone());
+	}
+
+	@Override
+	public URI getEpisodeListLink(SearchResult searchResult) {
+		return null;
+	}
+
+	@Override
+	public List<Movie> searchMovie(String query, Locale locale) throws Exception {
+		return request(() -> movies.values().stream().filter(m -> matches(m.getName(), query)).limit(10).collect(toList()));
+	}
+
+	@Override
+	public Movie getMovieDescriptor(Movie movie, Locale locale) throws Exception {
+		return request(() -> movies.getOrDefault(movie.getTmdbId(), movie));
+	}
+
+	protected <T> T request(Callable<T> request) throws Exception {
+		try (Split split = StageTimer.start(Stage.Fetch)) {
+			if (LATENCY > 0) {
+				Thread.sleep(LATENCY);
+			}
+			return request.call();
+		}
+	}
+
+	protected boolean matches(String name, String query) {
+		String n = normalize(name);
+		String q = normalize(query);
+		return n.contains(q) || q.contains(n);
+	}
+
+	protected String normalize(String name) {
+		return name.replaceAll("\\W+", " ").trim().toLowerCase();
+	}
+
+}
@@ -25,6 +25,9 @@ import org.w3c.dom.Document;
 import net.filebot.util.ByteBufferInputStream;
 import net.filebot.util.ByteBufferOutputStream;
 import net.filebot.util.JsonUtilities;
+import net.filebot.util.StageTimer;
+import net.filebot.util.StageTimer.Split;
+import net.filebot.util.StageTimer.Stage;
 import net.filebot.web.WebRequest;
 
 public class CachedResource<K, R> implements Resource<R> {
@@ -79,6 +82,12 @@ public class CachedResource<K, R> implements Resource<R> {
 
 	@Override
 	public synchronized R get() throws Exception {
+		try (Split split = StageTimer.start(Stage.Fetch)) {
+			return fetchAndCast();
+		}
+	}
+
+	private R fetchAndCast() throws Exception {
 		Object value = cache.computeIf(key, Cache.isStale(expirationTime), element -> {
 			URL url = resource.transform(key);
 			long lastModified = element == null ? 0 : element.getLatestOfCreationAndUpdateTime();
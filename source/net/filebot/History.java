@@ -4,6 +4,7 @@ import static java.util.Collections.*;
 import static net.filebot.Logging.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -16,6 +17,7 @@ import java.util.Objects;
 import java.util.logging.Level;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -129,11 +131,16 @@ public class History {
 	}
 
 	public void add(Collection<Element> elements) {
+		add(new Date(), elements);
+	}
+
+	public Sequence add(Date date, Collection<Element> elements) {
 		Sequence sequence = new Sequence();
-		sequence.date = new Date();
+		sequence.date = date;
 		sequence.elements = new ArrayList<Element>(elements);
 
 		add(sequence);
+		return sequence;
 	}
 
 	public void add(Sequence sequence) {
@@ -206,8 +213,7 @@ public class History {
 
 	public static History importHistory(InputStream stream) {
 		try {
-			Unmarshaller unmarshaller = JAXBContext.newInstance(History.class).createUnmarshaller();
-			return ((History) unmarshaller.unmarshal(stream));
+			return readHistory(stream);
 		} catch (Exception e) {
 			debug.log(Level.SEVERE, "Failed to read history", e);
 		}
@@ -216,4 +222,16 @@ public class History {
 		return new History();
 	}
 
+	/**
+	 * Read history or fail if the given stream is not a valid history document
+	 */
+	public static History readHistory(InputStream stream) throws IOException {
+		try {
+			Unmarshaller unmarshaller = JAXBContext.newInstance(History.class).createUnmarshaller();
+			return ((History) unmarshaller.unmarshal(stream));
+		} catch (JAXBException e) {
+			throw new IOException(e);
+		}
+	}
+
 }
@@ -1,21 +1,17 @@
 package net.filebot;
 
-import static java.nio.channels.Channels.*;
 import static net.filebot.Logging.*;
+import static net.filebot.util.FileUtilities.*;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Level;
-
-import org.apache.commons.io.input.CloseShieldInputStream;
-import org.apache.commons.io.output.CloseShieldOutputStream;
+import java.util.stream.Stream;
 
 import net.filebot.History.Element;
 
@@ -31,26 +27,73 @@ public final class HistorySpooler {
 		Runtime.getRuntime().addShutdownHook(new Thread(HistorySpooler.getInstance()::commit, "HistorySpoolerShutdownHook")); // commit session history on shutdown
 	}
 
+	// legacy history file that is migrated to the history journal once
 	private final File persistentHistoryFile = ApplicationFolder.AppData.resolve("history.xml");
+	private final HistoryStore persistentHistory = new HistoryStore(ApplicationFolder.AppData.resolve("history.log"));
 
 	private int sessionHistoryTotalSize = 0;
-	private int persistentHistoryTotalSize = -1;
 	private boolean persistentHistoryEnabled = true;
+	private boolean persistentHistoryMigrated = false;
 
 	private final History sessionHistory = new History();
 
-	public synchronized History getCompleteHistory() throws IOException {
-		if (persistentHistoryFile.length() <= 0) {
-			return new History(sessionHistory.sequences());
+	private HistoryStore getPersistentHistory() throws IOException {
+		// retry on next access if migration fails
+		if (!persistentHistoryMigrated) {
+			persistentHistory.migrate(persistentHistoryFile);
+			persistentHistoryMigrated = true;
 		}
+		return persistentHistory;
+	}
+
+	public synchronized History getCompleteHistory() throws IOException {
+		History history = getPersistentHistory().getHistory();
+		history.addAll(sessionHistory.sequences());
+		return history;
+	}
+
+	public synchronized Map<File, File> getCompleteRenameMap() throws IOException {
+		Map<File, File> map = getPersistentHistory().getRenameMap();
+		map.putAll(sessionHistory.getRenameMap());
+		return map;
+	}
+
+	/**
+	 * @return original path to current path for all files that have been renamed from or to the given files or folders (including sub folders)
+	 */
+	public synchronized Map<File, File> getCompleteRenameMap(Collection<File> paths) throws IOException {
+		Map<File, File> map = getPersistentHistory().getRenameMap(paths);
+
+		sessionHistory.getRenameMap().forEach((original, current) -> {
+			if (Stream.of(original, current).flatMap(f -> listPath(f).stream()).anyMatch(paths::contains)) {
+				map.put(original, current);
+			}
+		});
+
+		return map;
+	}
 
-		try (FileChannel channel = FileChannel.open(persistentHistoryFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
-			try (FileLock lock = channel.lock()) {
-				History history = History.importHistory(new CloseShieldInputStream(newInputStream(channel))); // keep JAXB from closing the stream
-				history.addAll(sessionHistory.sequences());
-				return history;
+	/**
+	 * @return original path of the given file or null if the file has never been renamed
+	 */
+	public synchronized File getOriginalPath(File current) throws IOException {
+		for (Entry<File, File> it : sessionHistory.getRenameMap().entrySet()) {
+			if (it.getValue().equals(current)) {
+				return it.getKey();
 			}
 		}
+		return getPersistentHistory().getOriginalPath(current);
+	}
+
+	/**
+	 * @return current path of the given original file or null if the file has never been renamed
+	 */
+	public synchronized File getCurrentPath(File original) throws IOException {
+		File current = sessionHistory.getRenameMap().get(original);
+		if (current != null) {
+			return current;
+		}
+		return getPersistentHistory().getCurrentPath(original);
 	}
 
 	public synchronized void commit() {
@@ -59,31 +102,9 @@ public final class HistorySpooler {
 		}
 
 		try {
-			try (FileChannel channel = FileChannel.open(persistentHistoryFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
-				try (FileLock lock = channel.lock()) {
-					History history = new History();
-
-					// load existing history from previous sessions
-					if (channel.size() > 0) {
-						try {
-							channel.position(0);
-							history = History.importHistory(new CloseShieldInputStream(newInputStream(channel))); // keep JAXB from closing the stream
-						} catch (Exception e) {
-							debug.log(Level.SEVERE, "Failed to read history file", e);
-						}
-					}
-
-					// write new combined history
-					history.addAll(sessionHistory.sequences());
-
-					channel.position(0);
-					History.exportHistory(history, new CloseShieldOutputStream(newOutputStream(channel))); // keep JAXB from closing the stream
-					channel.truncate(channel.position());
-
-					sessionHistory.clear();
-					persistentHistoryTotalSize = history.totalSize();
-				}
-			}
+			// only append the session history to the history journal
+			getPersistentHistory().append(sessionHistory.sequences());
+			sessionHistory.clear();
 		} catch (Exception e) {
 			debug.log(Level.SEVERE, "Failed to write history file", e);
 		}
@@ -124,7 +145,12 @@ public final class HistorySpooler {
 	}
 
 	public synchronized int getPersistentHistoryTotalSize() {
-		return persistentHistoryTotalSize;
+		try {
+			return getPersistentHistory().size();
+		} catch (Exception e) {
+			debug.log(Level.WARNING, "Failed to read history file", e);
+			return -1;
+		}
 	}
 
 	public synchronized void setPersistentHistoryEnabled(boolean persistentHistoryEnabled) {
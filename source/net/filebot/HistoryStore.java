@@ -0,0 +1,360 @@
+package net.filebot;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Comparator.*;
+import static net.filebot.Logging.*;
+import static net.filebot.util.StringUtilities.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.filebot.History.Element;
+import net.filebot.History.Sequence;
+
+/**
+ * Append-only rename history journal. Each commit only appends the new sequences, and the journal is read incrementally, i.e. only lines that have been appended since the last read are parsed. Lookups by original path, current path, folder or date use sorted in-memory indexes that are updated as the journal is read.
+ *
+ * <pre>
+ * Sample:
+ * S	1514764800000
+ * R	/path/to/input	Alias.1x01.avi	/path/to/output/Alias - 1x01 - Pilot.avi
+ * |  |     dir     | |     from     | |               to                   |
+ * </pre>
+ */
+public class HistoryStore {
+
+	private final File file;
+
+	// history in journal order
+	private final History history = new History();
+
+	// index by date
+	private final NavigableMap<Date, List<Sequence>> dateIndex = new TreeMap<Date, List<Sequence>>();
+
+	// index by original path (most recent destination) and by destination path (most recent original), sorted by path for folder queries
+	private final NavigableMap<File, Rename> originalIndex = new TreeMap<File, Rename>();
+	private final NavigableMap<File, Rename> destinationIndex = new TreeMap<File, Rename>();
+
+	// number of bytes that have been read and indexed
+	private long position = 0;
+	private int size = 0;
+
+	public HistoryStore(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public synchronized void append(Collection<Sequence> sequences) throws IOException {
+		StringBuilder s = new StringBuilder();
+		for (Sequence it : sequences) {
+			write(it, s);
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+			try (FileLock lock = channel.lock()) {
+				// discard partially written line of an interrupted commit
+				channel.truncate(getEndOfLastLine(channel));
+
+				ByteBuffer data = UTF_8.encode(s.toString());
+				channel.position(channel.size());
+				while (data.hasRemaining()) {
+					channel.write(data);
+				}
+				channel.force(false);
+			}
+		}
+	}
+
+	private long getEndOfLastLine(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long end = channel.size();
+
+		while (end > 0) {
+			long start = Math.max(0, end - buffer.capacity());
+			buffer.clear().limit((int) (end - start));
+			while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+				continue;
+			}
+
+			for (int i = buffer.position() - 1; i >= 0; i--) {
+				if (buffer.get(i) == '\n') {
+					return start + i + 1;
+				}
+			}
+			end = start;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Import legacy XML history, unless the journal already exists. The journal is written to a temporary file and then moved into place, so a failed migration leaves no partial journal behind and can be retried.
+	 */
+	public synchronized boolean migrate(File xml) throws IOException {
+		if (file.length() > 0 || xml.length() <= 0) {
+			return false;
+		}
+
+		History legacy;
+		try (FileInputStream in = new FileInputStream(xml)) {
+			legacy = History.readHistory(in);
+		}
+
+		StringBuilder s = new StringBuilder();
+		for (Sequence it : legacy.sequences()) {
+			write(it, s);
+		}
+
+		Path part = file.toPath().resolveSibling(file.getName() + "." + Long.toHexString(System.nanoTime()) + ".part");
+		try {
+			try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+				ByteBuffer data = UTF_8.encode(s.toString());
+				while (data.hasRemaining()) {
+					channel.write(data);
+				}
+				channel.force(false);
+			}
+
+			// journal may have been created by another process in the meantime
+			if (file.length() > 0) {
+				return false;
+			}
+
+			Files.move(part, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(part);
+		}
+
+		debug.config(format("Migrated %d history entries from %s to %s", legacy.totalSize(), xml, file));
+		return true;
+	}
+
+	public synchronized History getHistory() throws IOException {
+		update();
+		return new History(history.sequences());
+	}
+
+	public synchronized Map<File, File> getRenameMap() throws IOException {
+		update();
+		return toRenameMap(originalIndex.values());
+	}
+
+	/**
+	 * @return original path to current path for all files that have been renamed from or to the given files or folders (including sub folders)
+	 */
+	public synchronized Map<File, File> getRenameMap(Collection<File> paths) throws IOException {
+		update();
+
+		Set<Rename> selection = new HashSet<Rename>();
+		for (File path : paths) {
+			select(originalIndex, path, selection);
+			select(destinationIndex, path, selection);
+		}
+
+		// ignore renames that have been superseded by more recent renames of the same original file
+		selection.removeIf(r -> originalIndex.get(r.original) != r);
+
+		return toRenameMap(selection);
+	}
+
+	/**
+	 * @return current path of the given original file or null
+	 */
+	public synchronized File getCurrentPath(File original) throws IOException {
+		update();
+		Rename r = originalIndex.get(original);
+		return r == null ? null : r.destination;
+	}
+
+	/**
+	 * @return original path of the given file or null
+	 */
+	public synchronized File getOriginalPath(File destination) throws IOException {
+		update();
+		Rename r = destinationIndex.get(destination);
+		return r == null ? null : r.original;
+	}
+
+	/**
+	 * @return true if the given file has been renamed from or to this path
+	 */
+	public synchronized boolean contains(File path) throws IOException {
+		update();
+		return originalIndex.containsKey(path) || destinationIndex.containsKey(path);
+	}
+
+	private static void select(NavigableMap<File, Rename> index, File path, Set<Rename> selection) {
+		// path itself and all paths with the given folder prefix
+		File to = new File(path.getPath() + File.separator + Character.MAX_VALUE);
+
+		for (Entry<File, Rename> it : index.subMap(path, true, to, true).entrySet()) {
+			for (File f = it.getKey(); f != null; f = f.getParentFile()) {
+				if (f.equals(path)) {
+					selection.add(it.getValue());
+					break;
+				}
+			}
+		}
+	}
+
+	private static Map<File, File> toRenameMap(Collection<Rename> renames) {
+		Map<File, File> map = new LinkedHashMap<File, File>(renames.size());
+		renames.stream().sorted(comparingInt(r -> r.index)).forEach(r -> map.put(r.original, r.destination));
+		return map;
+	}
+
+	/**
+	 * @return sequences committed between the given dates (inclusive)
+	 */
+	public synchronized List<Sequence> getSequences(Date from, Date to) throws IOException {
+		update();
+
+		List<Sequence> sequences = new ArrayList<Sequence>();
+		dateIndex.subMap(from, true, to, true).values().forEach(sequences::addAll);
+		return sequences;
+	}
+
+	public synchronized int size() throws IOException {
+		update();
+		return size;
+	}
+
+	/**
+	 * Read and index lines that have been appended since the last update
+	 */
+	private void update() throws IOException {
+		if (file.length() <= position) {
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			try (FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
+				long length = channel.size() - position;
+				if (length <= 0 || length > Integer.MAX_VALUE) {
+					return;
+				}
+
+				ByteBuffer data = ByteBuffer.allocate((int) length);
+				while (data.hasRemaining() && channel.read(data, position + data.position()) >= 0) {
+					continue;
+				}
+
+				// ignore partially written line at the end
+				int end = data.position();
+				while (end > 0 && data.get(end - 1) != '\n') {
+					end--;
+				}
+
+				if (end > 0) {
+					parse(new String(data.array(), 0, end, UTF_8));
+					position += end;
+				}
+			}
+		}
+	}
+
+	private void parse(String lines) {
+		Date date = null;
+		List<Element> elements = new ArrayList<Element>();
+
+		for (String line : lines.split("\n")) {
+			String[] field = line.split("\t", -1);
+
+			if (field.length == 2 && field[0].equals("S")) {
+				add(date, elements);
+				elements = new ArrayList<Element>();
+				try {
+					date = new Date(Long.parseLong(field[1]));
+				} catch (NumberFormatException e) {
+					date = null;
+				}
+			} else if (field.length == 4 && field[0].equals("R")) {
+				elements.add(new Element(unescapeField(field[2]), unescapeField(field[3]), field[1].isEmpty() ? null : new File(unescapeField(field[1]))));
+			} else if (line.length() > 0) {
+				debug.warning(format("Illegal history entry: %s", line));
+			}
+		}
+
+		add(date, elements);
+	}
+
+	private void add(Date date, List<Element> elements) {
+		if (date == null || elements.isEmpty()) {
+			return;
+		}
+
+		Sequence sequence = history.add(date, elements);
+		dateIndex.computeIfAbsent(date, k -> new ArrayList<Sequence>(1)).add(sequence);
+
+		for (Element it : elements) {
+			File original = getOriginal(it);
+			Rename previous = originalIndex.get(original);
+
+			// keep journal order of the first rename of a given file
+			Rename r = new Rename(original, getDestination(it), previous == null ? size : previous.index);
+			originalIndex.put(r.original, r);
+			destinationIndex.put(r.destination, r);
+			size++;
+		}
+	}
+
+	public static File getDestination(Element element) {
+		File to = new File(element.to());
+		if (!to.isAbsolute()) {
+			to = new File(element.dir(), element.to());
+		}
+		return to;
+	}
+
+	public static File getOriginal(Element element) {
+		return new File(element.dir(), element.from());
+	}
+
+	private static void write(Sequence sequence, StringBuilder s) {
+		s.append("S\t").append(sequence.date().getTime()).append('\n');
+		for (Element it : sequence.elements()) {
+			s.append("R\t").append((it.dir() == null ? "" : escapeField(it.dir().getPath()))).append('\t').append(escapeField(it.from())).append('\t').append(escapeField(it.to())).append('\n');
+		}
+	}
+
+	@Override
+	public String toString() {
+		return file.getPath();
+	}
+
+	private static class Rename {
+
+		public final File original;
+		public final File destination;
+		public final int index;
+
+		public Rename(File original, File destination, int index) {
+			this.original = original;
+			this.destination = destination;
+			this.index = index;
+		}
+	}
+
+}
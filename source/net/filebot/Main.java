@@ -36,6 +36,7 @@ import org.w3c.dom.Document;
 import net.filebot.cli.ArgumentBean;
 import net.filebot.cli.ArgumentProcessor;
 import net.filebot.format.ExpressionFormat;
+import net.filebot.media.XattrMetaInfo;
 import net.filebot.platform.mac.MacAppUtilities;
 import net.filebot.platform.windows.WinAppUtilities;
 import net.filebot.ui.FileBotMenuBar;
@@ -114,6 +115,9 @@ public class Main {
 			// CLI mode => run command-line interface and then exit
 			if (args.runCLI()) {
 				int status = new ArgumentProcessor().run(args);
+
+				// make sure that all xattr metadata has been written
+				XattrMetaInfo.xattr.flush();
 				System.exit(status);
 			}
 
@@ -210,6 +214,7 @@ public class Main {
 			evt.getWindow().setVisible(false);
 
 			// make sure any long running operations are done now and not later on the shutdown hook thread
+			XattrMetaInfo.xattr.flush();
 			HistorySpooler.getInstance().commit();
 			SupportDialog.maybeShow();
 
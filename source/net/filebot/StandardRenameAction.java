@@ -2,6 +2,7 @@ package net.filebot;
 
 import static java.util.Arrays.*;
 import static java.util.stream.Collectors.*;
+import static net.filebot.Logging.*;
 import static net.filebot.UserFiles.*;
 
 import java.io.File;
@@ -13,6 +14,7 @@ import java.util.List;
 
 import com.sun.jna.Platform;
 
+import net.filebot.platform.posix.NativeClone;
 import net.filebot.util.FileUtilities;
 
 public enum StandardRenameAction implements RenameAction {
@@ -87,6 +89,11 @@ public enum StandardRenameAction implements RenameAction {
 		public File rename(File from, File to) throws Exception {
 			File dest = FileUtilities.resolveDestination(from, to);
 
+			// clone files in-process via clonefile or reflink
+			if (from.isFile() && NativeClone.isSupported()) {
+				return NativeClone.clone(from, dest);
+			}
+
 			// clonefile or reflink requires filesystem that supports copy-on-write (e.g. apfs or btrfs)
 			ProcessBuilder process = new ProcessBuilder();
 
@@ -117,8 +124,19 @@ public enum StandardRenameAction implements RenameAction {
 			try {
 				return HARDLINK.rename(from, to);
 			} catch (Exception e) {
-				return COPY.rename(from, to);
+				debug.finest(e::toString);
 			}
+
+			// try copy-on-write clone before falling back to a full copy
+			if (from.isFile() && NativeClone.isSupported()) {
+				try {
+					return NativeClone.clone(from, FileUtilities.resolveDestination(from, to));
+				} catch (Exception e) {
+					debug.finest(e::toString);
+				}
+			}
+
+			return COPY.rename(from, to);
 		}
 	},
 
@@ -42,6 +42,9 @@ import net.filebot.hash.HashType;
 import net.filebot.subtitle.SubtitleFormat;
 import net.filebot.subtitle.SubtitleNaming;
 import net.filebot.ui.PanelBuilder;
+import net.filebot.util.StageTimer;
+import net.filebot.util.StageTimer.Split;
+import net.filebot.util.StageTimer.Stage;
 import net.filebot.web.Datasource;
 import net.filebot.web.EpisodeListProvider;
 import net.filebot.web.SortOrder;
@@ -196,10 +199,12 @@ public class ArgumentBean {
 			}
 
 			if (resolveFolders && file.isDirectory()) {
-				if (recursive) {
-					files.addAll(listFiles(file, FILES, HUMAN_NAME_ORDER));
-				} else {
-					files.addAll(getChildren(file, f -> f.isFile() && !f.isHidden(), HUMAN_NAME_ORDER));
+				try (Split split = StageTimer.start(Stage.Walk)) {
+					if (recursive) {
+						files.addAll(listFiles(file, FILES, HUMAN_NAME_ORDER));
+					} else {
+						files.addAll(getChildren(file, f -> f.isFile() && !f.isHidden(), HUMAN_NAME_ORDER));
+					}
 				}
 			} else {
 				files.add(file);
@@ -14,6 +14,8 @@ import java.util.stream.Stream;
 import javax.script.Bindings;
 import javax.script.SimpleBindings;
 
+import net.filebot.util.StageTimer;
+
 public class ArgumentProcessor {
 
 	public int run(ArgumentBean args) {
@@ -94,6 +96,11 @@ public class ArgumentProcessor {
 
 		if (args.rename) {
 			cli.rename(files, args.getRenameAction(), args.getConflictAction(), args.getAbsoluteOutputFolder(), args.getExpressionFileFormat(), args.getDatasource(), args.getSearchQuery(), args.getSortOrder(), args.getExpressionFilter(), args.getLanguage().getLocale(), args.isStrict(), args.getExecCommand());
+
+			// print time spent in each stage of the rename pipeline
+			if (StageTimer.isEnabled()) {
+				log.info(format("Stage timing %s", StageTimer.format()));
+			}
 		}
 
 		if (args.check) {
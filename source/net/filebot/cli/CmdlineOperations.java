@@ -31,10 +31,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -45,25 +49,34 @@ import net.filebot.RenameAction;
 import net.filebot.StandardRenameAction;
 import net.filebot.archive.Archive;
 import net.filebot.archive.FileMapper;
+import net.filebot.format.BatchFormatter;
 import net.filebot.format.ExpressionFileFormat;
 import net.filebot.format.ExpressionFilter;
 import net.filebot.format.ExpressionFormat;
 import net.filebot.format.MediaBindingBean;
+import net.filebot.hash.BlockHashes;
 import net.filebot.hash.HashType;
+import net.filebot.hash.TreeHashVerifier;
 import net.filebot.hash.VerificationFileReader;
 import net.filebot.hash.VerificationFileWriter;
+import net.filebot.hash.VerificationJournal;
 import net.filebot.media.AutoDetection;
 import net.filebot.media.AutoDetection.Group;
 import net.filebot.media.AutoDetection.Type;
 import net.filebot.media.VideoQuality;
 import net.filebot.media.XattrMetaInfoProvider;
+import net.filebot.mediainfo.MediaInfoService;
 import net.filebot.similarity.CommonSequenceMatcher;
 import net.filebot.similarity.EpisodeMatcher;
 import net.filebot.similarity.Match;
 import net.filebot.subtitle.SubtitleFormat;
 import net.filebot.subtitle.SubtitleNaming;
 import net.filebot.util.EntryList;
+import net.filebot.util.FastFile;
 import net.filebot.util.FileUtilities.ParentFilter;
+import net.filebot.util.StageTimer;
+import net.filebot.util.StageTimer.Split;
+import net.filebot.util.StageTimer.Stage;
 import net.filebot.vfs.FileInfo;
 import net.filebot.vfs.MemoryFile;
 import net.filebot.vfs.SimpleFileInfo;
@@ -107,10 +120,14 @@ public class CmdlineOperations implements CmdlineInterface {
 		}
 
 		// auto-detect mode for each fileset
-		AutoDetection auto = new AutoDetection(files, false, locale);
+		Map<Group, Set<File>> groups;
+		try (Split split = StageTimer.start(Stage.Detect)) {
+			groups = new AutoDetection(files, false, locale).group();
+		}
+
 		List<File> results = new ArrayList<File>();
 
-		for (Entry<Group, Set<File>> it : auto.group().entrySet()) {
+		for (Entry<Group, Set<File>> it : groups.entrySet()) {
 			if (it.getKey().types().length == 1) {
 				for (Type key : it.getKey().types()) {
 					switch (key) {
@@ -175,7 +192,12 @@ public class CmdlineOperations implements CmdlineInterface {
 		List<Match<File, ?>> matches = new ArrayList<Match<File, ?>>();
 
 		// auto-determine optimal batch sets
-		for (Entry<Set<File>, Set<String>> sameSeriesGroup : mapSeriesNamesByFiles(mediaFiles, locale, db == AniDB).entrySet()) {
+		Map<Set<File>, Set<String>> sameSeriesGroups;
+		try (Split split = StageTimer.start(Stage.Detect)) {
+			sameSeriesGroups = mapSeriesNamesByFiles(mediaFiles, locale, db == AniDB);
+		}
+
+		for (Entry<Set<File>, Set<String>> sameSeriesGroup : sameSeriesGroups.entrySet()) {
 			List<List<File>> batchSets = new ArrayList<List<File>>();
 
 			if (sameSeriesGroup.getValue() != null && sameSeriesGroup.getValue().size() > 0) {
@@ -191,7 +213,10 @@ public class CmdlineOperations implements CmdlineInterface {
 				List<Episode> episodes;
 
 				if (query == null) {
-					Collection<String> seriesNames = detectSeriesNames(batch, db == AniDB, locale); // detect series name by common word sequence
+					Collection<String> seriesNames;
+					try (Split split = StageTimer.start(Stage.Detect)) {
+						seriesNames = detectSeriesNames(batch, db == AniDB, locale); // detect series name by common word sequence
+					}
 					log.config("Auto-detected query: " + seriesNames);
 
 					if (seriesNames.size() == 0) {
@@ -203,9 +228,13 @@ public class CmdlineOperations implements CmdlineInterface {
 						throw new CmdlineException("Multiple queries: Processing multiple shows at once requires -non-strict matching: " + seriesNames);
 					}
 
-					episodes = fetchEpisodeSet(db, seriesNames, sortOrder, locale, strict, 5); // consider episodes of up to N search results for each query
+					try (Split split = StageTimer.start(Stage.Fetch)) {
+						episodes = fetchEpisodeSet(db, seriesNames, sortOrder, locale, strict, 5); // consider episodes of up to N search results for each query
+					}
 				} else {
-					episodes = fetchEpisodeSet(db, singleton(query), sortOrder, locale, false, 1); // use --q option and pick first result
+					try (Split split = StageTimer.start(Stage.Fetch)) {
+						episodes = fetchEpisodeSet(db, singleton(query), sortOrder, locale, false, 1); // use --q option and pick first result
+					}
 				}
 
 				if (episodes.isEmpty()) {
@@ -216,7 +245,9 @@ public class CmdlineOperations implements CmdlineInterface {
 				episodes = applyExpressionFilter(episodes, filter);
 
 				for (List<File> filesPerType : mapByMediaExtension(filter(batch, VIDEO_FILES, SUBTITLE_FILES)).values()) {
-					matches.addAll(matchEpisodes(filesPerType, episodes, strict));
+					try (Split split = StageTimer.start(Stage.Match)) {
+						matches.addAll(matchEpisodes(filesPerType, episodes, strict));
+					}
 				}
 			}
 		}
@@ -247,9 +278,16 @@ public class CmdlineOperations implements CmdlineInterface {
 	}
 
 	private List<Match<File, Object>> matchEpisodes(Collection<File> files, Collection<Episode> episodes, boolean strict) throws Exception {
+		// match file attribute snapshots so that file metrics don't stat the same file for each episode
+		Map<File, File> snapshots = new LinkedHashMap<File, File>(files.size());
+		files.forEach(f -> snapshots.put(new FastFile(f), f));
+
+		// read xattr metadata for all files at once
+		xattr.preload(files);
+
 		// always use strict fail-fast matcher
-		EpisodeMatcher matcher = new EpisodeMatcher(files, episodes, strict);
-		List<Match<File, Object>> matches = matcher.match();
+		EpisodeMatcher matcher = new EpisodeMatcher(snapshots.keySet(), episodes, strict);
+		List<Match<File, Object>> matches = matcher.match().stream().map(it -> new Match<File, Object>(snapshots.get(it.getValue()), it.getCandidate())).collect(toList());
 
 		for (File failedMatch : matcher.remainingValues()) {
 			log.warning("No matching episode: " + failedMatch.getName());
@@ -419,7 +457,10 @@ public class CmdlineOperations implements CmdlineInterface {
 			// unknown hash, try via imdb id from nfo file
 			if (movie == null) {
 				log.fine(format("Auto-detect movie from context: [%s]", file));
-				List<Movie> options = detectMovieWithYear(file, service, locale, strict);
+				List<Movie> options;
+				try (Split split = StageTimer.start(Stage.Detect)) {
+					options = detectMovieWithYear(file, service, locale, strict);
+				}
 
 				// ignore files that cannot yield any acceptable matches (e.g. movie files without year in strict mode)
 				if (options == null) {
@@ -437,7 +478,7 @@ public class CmdlineOperations implements CmdlineInterface {
 					options = perfectMatches;
 				}
 
-				try {
+				try (Split split = StageTimer.start(Stage.Match)) {
 					// select first element if matches are reliable
 					if (options.size() > 0) {
 						movie = selectSearchResult(stripReleaseInfo(getName(file)), options);
@@ -557,104 +598,152 @@ public class CmdlineOperations implements CmdlineInterface {
 	}
 
 	private Map<File, File> formatMatches(List<Match<File, ?>> matches, ExpressionFileFormat format, File outputDir) throws Exception {
-		// map old files to new paths by applying formatting and validating filenames
-		Map<File, File> renameMap = new LinkedHashMap<File, File>();
+		try (Split split = StageTimer.start(Stage.Format)) {
+			// map old files to new paths by applying formatting and validating filenames
+			Map<File, File> renameMap = new LinkedHashMap<File, File>();
+			Map<File, Object> context = getContext(matches);
+
+			// format all matches in parallel but keep the rename map in order
+			List<CompletableFuture<String>> destinationPaths = BatchFormatter.getInstance().format(matches, m -> BatchFormatter.getSharedResources(m.getCandidate(), m.getValue()), m -> {
+				return format != null ? format.format(new MediaBindingBean(m.getCandidate(), m.getValue(), context)) : validateFileName(m.getCandidate().toString());
+			});
 
-		for (Match<File, ?> match : matches) {
-			File file = match.getValue();
-			Object object = match.getCandidate();
-			String destinationPath = format != null ? format.format(new MediaBindingBean(object, file, getContext(matches))) : validateFileName(object.toString());
+			for (int i = 0; i < matches.size(); i++) {
+				File file = matches.get(i).getValue();
+				String destinationPath;
+				try {
+					destinationPath = destinationPaths.get(i).join();
+				} catch (CompletionException e) {
+					// fail on the first error in match order
+					destinationPaths.forEach(it -> it.cancel(false));
+					throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
 
-			renameMap.put(file, getDestinationFile(file, destinationPath, outputDir));
-		}
+				renameMap.put(file, getDestinationFile(file, destinationPath, outputDir));
+			}
 
-		return renameMap;
+			return renameMap;
+		}
 	}
 
 	protected List<File> renameAll(Map<File, File> renameMap, RenameAction renameAction, ConflictAction conflictAction, List<Match<File, ?>> matches, ExecCommand exec) throws Exception {
-		if (renameMap.isEmpty()) {
-			throw new CmdlineException("Failed to identify or process any files");
-		}
+		try (Split split = StageTimer.start(Stage.Rename)) {
+			if (renameMap.isEmpty()) {
+				throw new CmdlineException("Failed to identify or process any files");
+			}
 
-		// rename files
-		Map<File, File> renameLog = new LinkedHashMap<File, File>();
+			// make sure that pending xattr metadata has been written before files are moved again
+			xattr.flush();
 
-		try {
-			for (Entry<File, File> it : renameMap.entrySet()) {
+			// rename files
+			Map<File, File> renameLog = new LinkedHashMap<File, File>();
+
+			// run independent rename operations concurrently
+			RenameExecutor executor = new RenameExecutor(renameAction instanceof StandardRenameAction ? getPreferredThreadPoolSize() : 1, RenameExecutor.getThreadsPerDevice(), conflictAction == ConflictAction.INDEX);
+
+			try {
+				executor.execute(renameMap, (source, destination) -> renameFile(source, destination, renameAction, conflictAction, matches), renameLog);
+			} finally {
+				// update history and xattr metadata
+				if (renameLog.size() > 0) {
+					writeHistory(renameAction, renameLog, matches);
+				}
+
+				// make sure that xattr metadata has been written before we return or exec commands on the destination files
+				xattr.flush();
+
+				// print number of processed files
+				log.fine(format("Processed %d files", renameLog.size()));
+			}
+
+			// execute command
+			if (exec != null) {
 				try {
-					File source = it.getKey();
-					File destination = it.getValue();
+					execute(renameLog.values(), Objects::nonNull, exec); // destination files may include null values
+				} catch (Exception e) {
+					log.warning(message("Execute", e.getMessage()));
+				}
+			}
 
-					// resolve destination
-					if (!destination.isAbsolute()) {
-						// same folder, different name
-						destination = resolve(source, destination);
-					}
+			return new ArrayList<File>(renameLog.values());
+		}
+	}
 
-					if (!destination.equals(source) && destination.exists()) {
-						if (conflictAction == ConflictAction.FAIL) {
-							throw new CmdlineException(String.format("Failed to process [%s] because [%s] already exists", source, destination));
-						}
+	protected Entry<File, File> renameFile(File source, File destination, RenameAction renameAction, ConflictAction conflictAction, List<Match<File, ?>> matches) throws Exception {
+		try {
+			// resolve destination
+			if (!destination.isAbsolute()) {
+				// same folder, different name
+				destination = resolve(source, destination);
+			}
 
-						// do not allow abuse of online databases by repeatedly processing the same files
-						if (matches != null && renameAction.canRevert() && source.length() > 0 && equalsFileContent(source, destination)) {
-							throw new CmdlineException(String.format("Failed to process [%s] because [%s] is an exact copy and already exists", source, destination));
-						}
+			if (!destination.equals(source) && destination.exists()) {
+				if (conflictAction == ConflictAction.FAIL) {
+					throw new CmdlineException(String.format("Failed to process [%s] because [%s] already exists", source, destination));
+				}
 
-						// delete existing destination path if necessary
-						if (conflictAction == ConflictAction.OVERRIDE || (conflictAction == ConflictAction.AUTO && VideoQuality.isBetter(source, destination))) {
-							// do not delete files in test mode
-							if (renameAction.canRevert()) {
-								try {
-									log.fine(format("[%s] Delete [%s]", conflictAction, destination));
-									delete(destination);
-								} catch (Exception e) {
-									log.warning(format("[%s] Failed to delete [%s]: %s", conflictAction, destination, e));
-								}
-							}
-						}
+				// do not allow abuse of online databases by repeatedly processing the same files
+				if (matches != null && renameAction.canRevert() && source.length() > 0 && isExactCopy(source, destination)) {
+					throw new CmdlineException(String.format("Failed to process [%s] because [%s] is an exact copy and already exists", source, destination));
+				}
 
-						// generate indexed destination path if necessary
-						if (conflictAction == ConflictAction.INDEX) {
-							destination = nextAvailableIndexedName(destination);
+				// delete existing destination path if necessary
+				if (conflictAction == ConflictAction.OVERRIDE || (conflictAction == ConflictAction.AUTO && VideoQuality.isBetter(source, destination))) {
+					// do not delete files in test mode
+					if (renameAction.canRevert()) {
+						try {
+							log.fine(format("[%s] Delete [%s]", conflictAction, destination));
+							delete(destination);
+						} catch (Exception e) {
+							log.warning(format("[%s] Failed to delete [%s]: %s", conflictAction, destination, e));
 						}
 					}
+				}
 
-					// rename file, throw exception on failure
-					if (!destination.equals(source) && !destination.exists()) {
-						log.info(format("[%s] from [%s] to [%s]", renameAction, source, destination));
-						destination = renameAction.rename(source, destination);
-
-						// remember successfully renamed matches for history entry and possible revert
-						renameLog.put(source, destination);
-					} else {
-						log.info(format("Skipped [%s] because [%s] already exists", source, destination));
-					}
-				} catch (IOException e) {
-					log.warning(format("[%s] Failure: %s", renameAction, e));
-					throw e;
+				// generate indexed destination path if necessary
+				if (conflictAction == ConflictAction.INDEX) {
+					destination = nextAvailableIndexedName(destination);
 				}
 			}
-		} finally {
-			// update history and xattr metadata
-			if (renameLog.size() > 0) {
-				writeHistory(renameAction, renameLog, matches);
+
+			// rename file, throw exception on failure
+			if (!destination.equals(source) && !destination.exists()) {
+				log.info(format("[%s] from [%s] to [%s]", renameAction, source, destination));
+				destination = renameAction.rename(source, destination);
+
+				// remember successfully renamed matches for history entry and possible revert
+				return new AbstractMap.SimpleImmutableEntry<File, File>(source, destination);
 			}
 
-			// print number of processed files
-			log.fine(format("Processed %d files", renameLog.size()));
+			log.info(format("Skipped [%s] because [%s] already exists", source, destination));
+			return null;
+		} catch (IOException e) {
+			log.warning(format("[%s] Failure: %s", renameAction, e));
+			throw e;
 		}
+	}
 
-		// execute command
-		if (exec != null) {
-			try {
-				execute(renameLog.values(), Objects::nonNull, exec); // destination files may include null values
-			} catch (Exception e) {
-				log.warning(message("Execute", e.getMessage()));
-			}
+	protected boolean isExactCopy(File source, File destination) {
+		// compare file size and head, middle and tail chunks
+		if (!equalsFileSample(source, destination)) {
+			return false;
+		}
+
+		// compare stored checksums if known
+		String sourceChecksum = getStoredChecksum(source);
+		String destinationChecksum = getStoredChecksum(destination);
+
+		if (sourceChecksum != null && destinationChecksum != null) {
+			return sourceChecksum.equalsIgnoreCase(destinationChecksum);
 		}
 
-		return new ArrayList<File>(renameLog.values());
+		// trust size and samples only if explicitly requested
+		if (Boolean.parseBoolean(System.getProperty("net.filebot.CmdlineOperations.equalsFileSample"))) {
+			return true;
+		}
+
+		// compare byte by byte
+		return equalsFileContent(source, destination);
 	}
 
 	protected void writeHistory(RenameAction action, Map<File, File> log, List<Match<File, ?>> matches) {
@@ -954,6 +1043,7 @@ public class CmdlineOperations implements CmdlineInterface {
 		// add all file names from verification file
 		log.fine(format("Checking [%s]", verificationFile.getName()));
 		VerificationFileReader parser = new VerificationFileReader(createTextReader(verificationFile), type.getFormat());
+		VerificationJournal journal = new VerificationJournal(verificationFile, type);
 		boolean status = true;
 
 		try {
@@ -962,8 +1052,18 @@ public class CmdlineOperations implements CmdlineInterface {
 					Entry<File, String> it = parser.next();
 
 					File file = new File(root, it.getKey().getPath()).getAbsoluteFile();
-					String current = computeHash(new File(root, it.getKey().getPath()), type);
-					log.info(format("%s %s", current, file));
+					String path = it.getKey().getPath();
+
+					// skip files that have already been checked in a previous run
+					String current = journal.get(file, path);
+
+					if (current == null) {
+						// verify block by block and stop at the first bad block
+						current = type == HashType.TREE ? checkBlockHashes(file, it.getValue()) : computeHash(file, type);
+						journal.put(file, path, current);
+					}
+
+					log.info(format("%s %s", type == HashType.TREE ? BlockHashes.parse(current).getRoot() : current, file));
 
 					if (current.compareToIgnoreCase(it.getValue()) != 0) {
 						throw new IOException(String.format("Corrupted file found: %s [hash mismatch: %s vs %s]", it.getKey(), current, it.getValue()));
@@ -973,33 +1073,68 @@ public class CmdlineOperations implements CmdlineInterface {
 					log.warning(e.getMessage());
 				}
 			}
+
+			// all entries have been checked
+			journal.delete();
 		} finally {
+			journal.close();
 			parser.close();
 		}
 
 		return status;
 	}
 
+	private String checkBlockHashes(File file, String hash) throws Exception {
+		TreeHashVerifier verifier = new TreeHashVerifier(file, hash);
+
+		if (!verifier.getBlockHashes().isConsistent()) {
+			throw new IOException(String.format("Corrupted verification entry: %s", file));
+		}
+
+		// verify only N random blocks if sample size is set
+		int sample = Integer.parseInt(System.getProperty("net.filebot.hash.TreeHash.sample", "0"));
+		int block = sample > 0 ? verifier.verifySample(sample, new Random()) : verifier.verify(0);
+
+		if (block != TreeHashVerifier.OK) {
+			throw new IOException(String.format("Corrupted file found: %s [block %d of %d]", file, block + 1, verifier.getBlockHashes().getBlockCount()));
+		}
+
+		return hash;
+	}
+
 	private void compute(File root, Collection<File> files, File outputFile, HashType hashType, Charset encoding) throws IOException, Exception {
+		// continue from the journal of a previously interrupted run
+		VerificationJournal journal = new VerificationJournal(outputFile, hashType);
+
 		// compute hashes recursively and write to file
 		VerificationFileWriter out = new VerificationFileWriter(outputFile, hashType.getFormat(), encoding != null ? encoding : UTF_8);
 
 		try {
 			for (File it : files) {
-				if (it.isHidden() || VERIFICATION_FILES.accept(it)) {
+				if (it.isHidden() || VERIFICATION_FILES.accept(it) || it.equals(VerificationJournal.getJournalFile(outputFile))) {
 					continue;
 				}
 
 				String relativePath = normalizePathSeparators(it.getPath().substring(root.getPath().length() + 1)); // skip root and first slash
-				String hash = computeHash(it, hashType);
-				log.info(format("%s %s", hash, relativePath));
+				String hash = journal.get(it, relativePath);
+
+				if (hash == null) {
+					hash = computeHash(it, hashType);
+					journal.put(it, relativePath, hash);
+				}
+
+				log.info(format("%s %s", hashType == HashType.TREE ? BlockHashes.parse(hash).getRoot() : hash, relativePath));
 
 				out.write(relativePath, hash);
 			}
+
+			// all entries have been written
+			journal.delete();
 		} catch (Exception e) {
-			outputFile.deleteOnExit(); // delete only partially written files
+			outputFile.deleteOnExit(); // delete only partially written files and keep the journal
 			throw e;
 		} finally {
+			journal.close();
 			out.close();
 		}
 	}
@@ -1063,14 +1198,21 @@ public class CmdlineOperations implements CmdlineInterface {
 			return getMediaInfo(files, filter, new ExpressionFormat("{fn} [{resolution} {vc} {channels} {ac} {hours}]"));
 		}
 
-		return files.stream().filter(filter::accept).map(f -> {
+		Function<File, String> formatter = f -> {
 			try {
 				return format.format(new MediaBindingBean(xattr.getMetaInfo(f), f));
 			} catch (Exception e) {
 				debug.warning(e::getMessage);
 			}
 			return null;
-		}).filter(Objects::nonNull);
+		};
+
+		// evaluate formats that read media info in parallel but keep the output in order, each binding bean only fetches the media info values that the format actually uses
+		if (MediaBindingBean.requiresMediaInfo(format.getBindingNames())) {
+			return MediaInfoService.getInstance().map(filter(files, filter), formatter).filter(Objects::nonNull);
+		}
+
+		return files.stream().filter(filter::accept).map(formatter).filter(Objects::nonNull);
 	}
 
 	@Override
@@ -1098,13 +1240,14 @@ public class CmdlineOperations implements CmdlineInterface {
 			throw new CmdlineException("Expecting at least one input path");
 		}
 
-		Set<File> whitelist = new HashSet<File>(files);
-		Map<File, File> history = HistorySpooler.getInstance().getCompleteHistory().getRenameMap();
+		xattr.flush();
+
+		// select files that have been renamed from or to the given files or folders
+		Map<File, File> history = HistorySpooler.getInstance().getCompleteRenameMap(new HashSet<File>(files));
 
 		return history.entrySet().stream().filter(it -> {
-			File original = it.getKey();
 			File current = it.getValue();
-			return Stream.of(current, original).flatMap(f -> listPath(f).stream()).anyMatch(whitelist::contains) && current.exists() && filter.accept(current);
+			return current.exists() && filter.accept(current);
 		}).map(it -> {
 			File original = it.getKey();
 			File current = it.getValue();
@@ -8,103 +8,191 @@ import static net.filebot.util.FileUtilities.*;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 import java.util.logging.Level;
 
+import com.sun.jna.Platform;
+
 import net.filebot.util.DefaultThreadFactory;
-import net.filebot.util.Timer;
+import net.filebot.util.FileWalker;
 
 public abstract class FolderWatchService implements Closeable {
 
-	private final Collection<File> commitSet = new HashSet<File>();
+	private static final long TICK_INTERVAL = 100; // 0.1 s
+	private static final int COMMIT_QUEUE_SIZE = 16;
+
+	// debounce stage: pending files per folder
+	private final Map<File, Batch> commitBatches = new ConcurrentHashMap<File, Batch>();
+
+	// stability stage: folders that have been quiet for the commit delay (only accessed by the commit scheduler thread)
+	private final List<Batch> stabilityBatches = new ArrayList<Batch>();
 
+	// ready batches that are waiting to be processed
+	private final BlockingQueue<Batch> commitQueue = new ArrayBlockingQueue<Batch>(COMMIT_QUEUE_SIZE);
+
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("FolderWatchServiceCommit", Thread.NORM_PRIORITY, true));
 	private final ExecutorService processor = Executors.newSingleThreadExecutor();
-	private final ExecutorService watchers = Executors.newCachedThreadPool(new DefaultThreadFactory("FolderWatchService"));
+	private final ExecutorService dispatchers = Executors.newCachedThreadPool(new DefaultThreadFactory("FolderWatchService"));
 
-	private long commitDelay = 500; // 0.5 s
-	private boolean commitPerFolder = true;
-	private final Timer commitTimer = new Timer() {
+	// one watch service (and one dispatch thread) per file system for all watched folders
+	private final Map<FileSystem, WatchService> watchServices = new ConcurrentHashMap<FileSystem, WatchService>();
+	private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<WatchKey, Path>();
+	private final Set<Path> watchFolders = ConcurrentHashMap.newKeySet();
 
-		@Override
-		public void run() {
-			synchronized (processor) {
-				commit();
-			}
-		}
-	};
+	private volatile long commitDelay = 500; // 0.5 s
+	private volatile boolean commitPerFolder = true;
 
 	private final boolean watchTree;
+	private final LongSupplier clock;
 
 	public FolderWatchService(boolean watchTree) {
+		this(watchTree, System::currentTimeMillis);
+	}
+
+	FolderWatchService(boolean watchTree, LongSupplier clock) {
 		this.watchTree = watchTree;
+		this.clock = clock;
+
+		scheduler.scheduleWithFixedDelay(() -> tick(false), TICK_INTERVAL, TICK_INTERVAL, TimeUnit.MILLISECONDS);
+		processor.submit(this::process);
 	}
 
 	public synchronized void setCommitPerFolder(boolean enabled) {
 		this.commitPerFolder = enabled;
 	}
 
+	/**
+	 * Commit files of a folder once there haven't been any events in this folder for the given delay, and the size and last-modified time of each file hasn't changed for the given delay
+	 */
 	public synchronized void setCommitDelay(long commitDelay) {
 		if (commitDelay < 0)
 			throw new IllegalArgumentException("Delay must not be negativ");
 
 		this.commitDelay = commitDelay;
-		resetCommitTimer();
 	}
 
-	public synchronized void resetCommitTimer() {
-		commitTimer.set(commitDelay, TimeUnit.MILLISECONDS, false);
+	public void resetCommitTimer() {
+		long now = clock.getAsLong();
+		commitBatches.values().forEach(it -> it.lastEvent = now);
+	}
+
+	/**
+	 * Commit all pending files immediately without waiting for the commit delay or for files to stop changing
+	 */
+	public void commit() {
+		scheduler.execute(() -> tick(true));
 	}
 
-	public synchronized void commit() {
-		final SortedSet<File> files = new TreeSet<File>();
+	private void tick(boolean force) {
+		try {
+			long now = clock.getAsLong();
 
-		synchronized (commitSet) {
-			for (File it : commitSet) {
-				if (it.isFile()) {
-					files.add(it);
+			// move folders that have been quiet for the commit delay to the stability stage
+			for (File folder : commitBatches.keySet()) {
+				commitBatches.computeIfPresent(folder, (k, batch) -> {
+					if (force || now - batch.lastEvent >= commitDelay) {
+						stage(batch);
+						return null;
+					}
+					return batch;
+				});
+			}
+
+			// wait for files to stop changing unless forced
+			List<Batch> ready = new ArrayList<Batch>();
+			for (Iterator<Batch> it = stabilityBatches.iterator(); it.hasNext();) {
+				Batch batch = it.next();
+				if (force || batch.isStable(now, commitDelay)) {
+					it.remove();
+					batch.removeMissingFiles();
+					if (batch.files.size() > 0) {
+						ready.add(batch);
+					}
 				}
 			}
-			commitSet.clear();
-		}
 
-		if (files.isEmpty()) {
-			return;
-		}
+			// merge commit batches if required
+			if (!commitPerFolder && ready.size() > 1) {
+				Batch merged = new Batch(null);
+				ready.forEach(it -> merged.files.addAll(it.files));
+				ready = singletonList(merged);
+			}
 
-		// divide into commit batches per folder if required
-		final Map<File, ? extends Collection<File>> commitBatches = commitPerFolder ? mapByFolder(files) : singletonMap((File) null, files);
+			// keep batches in the stability stage while the commit queue is full
+			for (Batch batch : ready) {
+				if (!commitQueue.offer(batch)) {
+					stabilityBatches.add(batch);
+				}
+			}
+		} catch (Exception e) {
+			debug.log(Level.WARNING, e.getMessage(), e);
+		}
+	}
 
-		processor.submit(new Runnable() {
+	private void stage(Batch batch) {
+		// merge files that have changed again into the pending batch of the same folder, so that each file is only processed once
+		for (Batch it : stabilityBatches) {
+			if (Objects.equals(it.folder, batch.folder)) {
+				it.files.addAll(batch.files);
+				return;
+			}
+		}
+		stabilityBatches.add(batch);
+	}
 
-			@Override
-			public void run() {
-				synchronized (processor) {
-					for (Entry<File, ? extends Collection<File>> it : commitBatches.entrySet()) {
-						processCommitSet(it.getValue().toArray(new File[0]), it.getKey());
-					}
+	private void process() {
+		try {
+			while (true) {
+				Batch batch = commitQueue.take();
+				try {
+					processCommitSet(batch.files.stream().sorted().toArray(File[]::new), batch.folder);
+				} catch (Exception e) {
+					debug.log(Level.WARNING, e.getMessage(), e);
 				}
 			}
-		});
+		} catch (InterruptedException e) {
+			// ignore, part of an orderly shutdown
+		}
 	}
 
 	public abstract void processCommitSet(File[] files, File dir);
 
 	public synchronized void watchFolder(File folder) throws IOException {
+		if (!folder.isDirectory()) {
+			throw new IllegalArgumentException("Must be a folder: " + folder);
+		}
+
 		if (!watchTree) {
-			startWatch(folder);
+			startWatch(folder.toPath());
 			return;
 		}
 
@@ -112,133 +200,209 @@ public abstract class FolderWatchService implements Closeable {
 	}
 
 	private void watchFolderTree(File root) throws IOException {
-		for (File it : getChildren(root, FOLDERS)) {
-			watchFolderTree(it);
+		// watch all sub folders, including hidden folders, at any depth
+		for (File it : new FileWalker(Integer.MAX_VALUE, FOLDERS, null, true).list(new File[] { root }, null)) {
+			startWatch(it.toPath());
 		}
+	}
 
-		startWatch(root);
+	private void startWatch(Path node) throws IOException {
+		if (watchFolders.add(node)) {
+			try {
+				watchKeys.put(node.register(getWatchService(node.getFileSystem()), ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), node);
+			} catch (IOException e) {
+				watchFolders.remove(node);
+				throw e;
+			}
+		}
 	}
 
-	private synchronized void startWatch(File node) throws IOException {
-		if (!node.isDirectory()) {
-			throw new IllegalArgumentException("Must be a folder: " + node);
+	private synchronized WatchService getWatchService(FileSystem fs) throws IOException {
+		WatchService watchService = watchServices.get(fs);
+		if (watchService == null) {
+			watchService = fs.newWatchService();
+			watchServices.put(fs, watchService);
+
+			WatchService dispatchService = watchService;
+			dispatchers.submit(() -> dispatch(dispatchService));
 		}
+		return watchService;
+	}
 
-		watchers.submit(new FolderWatcher(node) {
+	private void dispatch(WatchService watchService) {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				Path node = watchKeys.get(key);
 
-			@Override
-			protected void processEvents(List<WatchEvent<?>> events) {
-				synchronized (commitSet) {
-					resetCommitTimer();
-					super.processEvents(events);
+				if (node != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						processEvent(node, event);
+					}
+				}
+
+				// folder has been deleted or is no longer accessible
+				if (!key.reset() && node != null) {
+					watchKeys.remove(key);
+					watchFolders.remove(node);
 				}
 			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// ignore, part of an orderly shutdown
+		} catch (Exception e) {
+			debug.log(Level.WARNING, e.getMessage(), e);
+		}
+	}
 
-			@Override
-			protected void created(File file) {
-				synchronized (commitSet) {
-					if (!file.isDirectory()) {
-						commitSet.add(file);
-						return;
-					}
+	private void processEvent(Path node, WatchEvent<?> event) {
+		if (event.kind() == OVERFLOW) {
+			rescan(node.toFile());
+			return;
+		}
 
-					// start watching newly created folder
-					if (watchTree) {
-						try {
-							commitSet.addAll(listFiles(file, FILES));
-							watchFolder(file);
-						} catch (IOException e) {
-							debug.log(Level.SEVERE, e.getMessage(), e);
-						}
-					}
-				}
+		File file = node.resolve((Path) event.context()).toFile();
+
+		if (event.kind() == ENTRY_CREATE) {
+			created(file);
+		} else if (event.kind() == ENTRY_MODIFY) {
+			if (!file.isDirectory()) {
+				add(file);
 			}
+		} else if (event.kind() == ENTRY_DELETE) {
+			commitBatches.computeIfPresent(file.getParentFile(), (k, batch) -> {
+				batch.files.remove(file);
+				batch.lastEvent = clock.getAsLong();
+				return batch;
+			});
+		}
+	}
 
-			@Override
-			protected void modified(File file) {
-				synchronized (commitSet) {
-					if (!file.isDirectory()) {
-						commitSet.add(file);
-					}
-				}
+	private void created(File file) {
+		if (!file.isDirectory()) {
+			add(file);
+			return;
+		}
+
+		// start watching newly created folder
+		if (watchTree) {
+			try {
+				watchFolderTree(file);
+				listFiles(file, FILES).forEach(this::add);
+			} catch (Exception e) {
+				debug.log(Level.SEVERE, e.getMessage(), e);
 			}
+		}
+	}
+
+	private void rescan(File folder) {
+		// events may have been lost, so add all files of this folder and start watching new sub folders
+		debug.finest(format("Rescan folder: %s", folder));
 
-			@Override
-			protected void deleted(File file) {
-				synchronized (commitSet) {
-					commitSet.remove(file);
+		for (File it : getChildren(folder)) {
+			if (it.isDirectory()) {
+				if (watchTree && !watchFolders.contains(it.toPath())) {
+					created(it);
 				}
+			} else {
+				add(it);
 			}
+		}
+	}
+
+	private void add(File file) {
+		// update batch atomically, so that a concurrent commit either takes the batch with or without this file
+		commitBatches.compute(file.getParentFile(), (k, batch) -> {
+			if (batch == null) {
+				batch = new Batch(k);
+			}
+			batch.files.add(file);
+			batch.lastEvent = clock.getAsLong();
+			return batch;
 		});
 	}
 
 	@Override
 	public synchronized void close() throws IOException {
-		commitTimer.cancel();
+		scheduler.shutdownNow();
 		processor.shutdownNow();
-		watchers.shutdownNow();
+		dispatchers.shutdownNow();
+
+		for (WatchService it : watchServices.values()) {
+			it.close();
+		}
 	}
 
-	private abstract static class FolderWatcher implements Runnable, Closeable {
+	private static class Batch {
 
-		private final Path node;
-		private final WatchService watchService;
+		public final File folder;
+		public final Set<File> files = new HashSet<File>();
 
-		public FolderWatcher(File node) throws IOException {
-			this.node = node.toPath();
-			this.watchService = this.node.getFileSystem().newWatchService();
-			this.node.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
-		}
+		public volatile long lastEvent;
 
-		@Override
-		public void run() {
-			try {
-				watch();
-			} catch (InterruptedException e) {
-				// ignore, part of an orderly shutdown
-			} catch (Exception e) {
-				debug.log(Level.WARNING, e.getMessage(), e);
-			}
+		private Map<File, String> state;
+		private long lastCheck;
+
+		public Batch(File folder) {
+			this.folder = folder;
 		}
 
-		public void watch() throws IOException, InterruptedException {
-			try {
-				boolean valid = true;
-				while (valid) {
-					WatchKey key = watchService.take();
-					processEvents(key.pollEvents());
-					valid = key.reset();
-				}
-			} finally {
-				this.close();
+		/**
+		 * Files are stable if size and last-modified time haven't changed since the last check (at least the given delay ago) and if no other process holds a write lock
+		 */
+		public boolean isStable(long now, long delay) {
+			if (state != null && now - lastCheck < delay) {
+				return false;
 			}
-		}
 
-		public File getAbsoluteFile(WatchEvent event) {
-			return node.resolve(event.context().toString()).toFile();
-		}
+			Map<File, String> previous = state;
+			state = new HashMap<File, String>(files.size());
 
-		protected void processEvents(List<WatchEvent<?>> list) {
-			for (WatchEvent event : list) {
-				if (event.kind() == ENTRY_CREATE) {
-					created(getAbsoluteFile(event));
-				} else if (event.kind() == ENTRY_MODIFY) {
-					modified(getAbsoluteFile(event));
-				} else if (event.kind() == ENTRY_DELETE) {
-					deleted(getAbsoluteFile(event));
-				}
-			}
+			removeMissingFiles();
+			files.forEach(f -> state.put(f, f.length() + ":" + f.lastModified()));
+			lastCheck = now;
+
+			return state.equals(previous) && files.stream().noneMatch(FolderWatchService::isLocked);
 		}
 
-		protected abstract void created(File file);
+		/**
+		 * Ignore files that have been removed in the meantime
+		 */
+		public void removeMissingFiles() {
+			files.removeIf(f -> !f.isFile());
+		}
+	}
 
-		protected abstract void modified(File file);
+	/**
+	 * Check if another process has opened the given file for writing without sharing or holds a lock on it (i.e. sharing or lock violation on Windows). Other platforms don't prevent concurrent access, so we only rely on size and last-modified time there.
+	 */
+	static boolean isLocked(File file) {
+		// probing a file for write access may release locks this process holds on the same file on other platforms
+		if (!Platform.isWindows()) {
+			return false;
+		}
 
-		protected abstract void deleted(File file);
+		// files without write permission or on read-only mounts cannot be locked
+		if (!Files.isWritable(file.toPath())) {
+			return false;
+		}
 
-		@Override
-		public void close() throws IOException {
-			watchService.close();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			FileLock lock = channel.tryLock();
+			if (lock == null) {
+				return true;
+			}
+			lock.release();
+			return false;
+		} catch (OverlappingFileLockException e) {
+			return true;
+		} catch (AccessDeniedException | NoSuchFileException e) {
+			return false;
+		} catch (FileSystemException e) {
+			// open for writing only fails with a generic error if the file is in use
+			return true;
+		} catch (IOException e) {
+			debug.finest(e::toString);
+			return false;
 		}
 	}
 
@@ -0,0 +1,208 @@
+package net.filebot.cli;
+
+import static net.filebot.Logging.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.filebot.util.DefaultThreadFactory;
+
+/**
+ * Run rename operations concurrently while operations that share a source or destination path (or destination folder) still run one after another in rename map order, so that the result is the same as running all operations sequentially.
+ */
+public class RenameExecutor {
+
+	@FunctionalInterface
+	public interface RenameTask {
+
+		/**
+		 * @return the source and final destination file (which may be null for rename actions that don't yield a destination file), or null if the file has been skipped
+		 */
+		Entry<File, File> rename(File source, File destination) throws Exception;
+	}
+
+	private final int threads;
+	private final int threadsPerDevice;
+	private final boolean serializeFolders;
+
+	private final Map<String, Semaphore> devices = new ConcurrentHashMap<String, Semaphore>();
+	private final Map<Path, String> fileStores = new ConcurrentHashMap<Path, String>();
+
+	public RenameExecutor(int threads, int threadsPerDevice, boolean serializeFolders) {
+		this.threads = threads;
+		this.threadsPerDevice = threadsPerDevice;
+		this.serializeFolders = serializeFolders;
+	}
+
+	public static int getThreadsPerDevice() {
+		return Integer.parseInt(System.getProperty("net.filebot.RenameExecutor.threadsPerDevice", "2"));
+	}
+
+	/**
+	 * Rename all files and add all successfully renamed files to the rename log in rename map order, even if some of the operations have failed
+	 */
+	public void execute(Map<File, File> renameMap, RenameTask task, Map<File, File> renameLog) throws Exception {
+		List<Entry<File, File>> operations = new ArrayList<Entry<File, File>>(renameMap.entrySet());
+		@SuppressWarnings("unchecked")
+		Entry<File, File>[] results = new Entry[operations.size()];
+
+		// moving folders may affect any path within these folders
+		if (threads <= 1 || operations.size() <= 1 || operations.stream().anyMatch(it -> it.getKey().isDirectory())) {
+			try {
+				for (int i = 0; i < operations.size(); i++) {
+					results[i] = task.rename(operations.get(i).getKey(), operations.get(i).getValue());
+				}
+			} finally {
+				log(results, renameLog);
+			}
+			return;
+		}
+
+		ExecutorService workerThreadPool = Executors.newFixedThreadPool(threads, new DefaultThreadFactory("RenameExecutor"));
+		AtomicBoolean abort = new AtomicBoolean(false);
+
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(operations.size());
+			Map<String, Integer> lastOperation = new HashMap<String, Integer>();
+
+			for (int i = 0; i < operations.size(); i++) {
+				int index = i;
+				File source = operations.get(i).getKey();
+				File destination = operations.get(i).getValue();
+
+				// depend on the previous operation for each shared path
+				Set<CompletableFuture<Void>> dependencies = new LinkedHashSet<CompletableFuture<Void>>();
+				for (String key : getResourceKeys(source, destination)) {
+					Integer previous = lastOperation.put(key, i);
+					if (previous != null) {
+						dependencies.add(futures.get(previous));
+					}
+				}
+
+				futures.add(CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0])).thenRunAsync(() -> {
+					// stop processing as soon as any operation has failed
+					if (abort.get()) {
+						return;
+					}
+
+					try {
+						results[index] = rename(source, destination, task);
+					} catch (Exception e) {
+						abort.set(true);
+						throw new CompletionException(e);
+					}
+				}, workerThreadPool));
+			}
+
+			// wait for all operations and rethrow the first exception in rename map order
+			Exception error = null;
+
+			for (CompletableFuture<Void> it : futures) {
+				try {
+					it.join();
+				} catch (CompletionException e) {
+					if (error == null) {
+						error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+					}
+				}
+			}
+
+			if (error != null) {
+				throw error;
+			}
+		} finally {
+			workerThreadPool.shutdownNow();
+			log(results, renameLog);
+		}
+	}
+
+	private Entry<File, File> rename(File source, File destination, RenameTask task) throws Exception {
+		// limit concurrent operations per device, and acquire permits in natural order to avoid deadlocks
+		Set<String> keys = new TreeSet<String>();
+		keys.add(getDevice(source));
+		keys.add(getDevice(resolve(source, destination)));
+
+		List<Semaphore> permits = new ArrayList<Semaphore>(keys.size());
+		try {
+			for (String key : keys) {
+				Semaphore permit = devices.computeIfAbsent(key, k -> new Semaphore(threadsPerDevice));
+				permit.acquire();
+				permits.add(permit);
+			}
+
+			return task.rename(source, destination);
+		} finally {
+			permits.forEach(Semaphore::release);
+		}
+	}
+
+	private Set<String> getResourceKeys(File source, File destination) {
+		source = source.getAbsoluteFile();
+		destination = resolve(source, destination);
+
+		// case-insensitive keys for case-insensitive file systems
+		Set<String> keys = new LinkedHashSet<String>(3);
+		keys.add(getResourceKey(source));
+		keys.add(getResourceKey(destination));
+
+		// INDEX conflict resolution depends on all other files in the destination folder
+		if (serializeFolders) {
+			keys.add(getResourceKey(destination.getParentFile()));
+		}
+
+		return keys;
+	}
+
+	static String getResourceKey(File file) {
+		return file.getPath().toLowerCase(Locale.ROOT);
+	}
+
+	private String getDevice(File file) {
+		// find the closest existing parent folder and look up the file store only once per folder
+		for (Path folder = file.getAbsoluteFile().toPath().getParent(); folder != null; folder = folder.getParent()) {
+			String device = fileStores.get(folder);
+			if (device != null) {
+				return device;
+			}
+
+			try {
+				if (Files.isDirectory(folder)) {
+					device = Files.getFileStore(folder).toString();
+					fileStores.put(folder, device);
+					return device;
+				}
+			} catch (IOException e) {
+				debug.finest(e::toString);
+			}
+		}
+		return "";
+	}
+
+	private void log(Entry<File, File>[] results, Map<File, File> renameLog) {
+		for (Entry<File, File> it : results) {
+			if (it != null) {
+				renameLog.put(it.getKey(), it.getValue());
+			}
+		}
+	}
+
+}
@@ -193,12 +193,12 @@ public abstract class ScriptShellBaseClass extends Script {
 	}
 
 	public Map<File, File> getPersistentRenameLog() throws IOException {
-		return HistorySpooler.getInstance().getCompleteHistory().getRenameMap();
+		return HistorySpooler.getInstance().getCompleteRenameMap();
 	}
 
 	public Map<File, File> getRenameLog(boolean complete) throws IOException {
 		if (complete) {
-			return HistorySpooler.getInstance().getCompleteHistory().getRenameMap();
+			return HistorySpooler.getInstance().getCompleteRenameMap();
 		} else {
 			return HistorySpooler.getInstance().getSessionHistory().getRenameMap();
 		}
@@ -13,17 +13,13 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.ByteBuffer;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.logging.Level;
 
 import org.codehaus.groovy.runtime.DefaultGroovyMethods;
@@ -31,8 +27,10 @@ import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
 
 import groovy.lang.Closure;
 import groovy.lang.Range;
+import net.filebot.HistorySpooler;
 import net.filebot.MediaTypes;
 import net.filebot.MetaAttributeView;
+import net.filebot.media.LibraryIndex;
 import net.filebot.media.MediaDetection;
 import net.filebot.media.XattrMetaInfo;
 import net.filebot.similarity.NameSimilarityMetric;
@@ -40,6 +38,7 @@ import net.filebot.similarity.Normalization;
 import net.filebot.similarity.SimilarityMetric;
 import net.filebot.util.FastFile;
 import net.filebot.util.FileUtilities;
+import net.filebot.util.FileWalker;
 import net.filebot.web.WebRequest;
 
 public class ScriptShellMethods {
@@ -189,30 +188,24 @@ public class ScriptShellMethods {
 	}
 
 	public static List<File> getMediaFolders(File self) throws IOException {
-		SortedSet<File> folders = new TreeSet<File>(CASE_INSENSITIVE_PATH_ORDER);
-
-		Files.walkFileTree(self.toPath(), new SimpleFileVisitor<Path>() {
-
-			@Override
-			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-				File folder = dir.toFile();
-
-				if (folder.isHidden() || !folder.canRead()) {
-					return FileVisitResult.SKIP_SUBTREE;
-				}
+		if (LibraryIndex.ENABLED.get()) {
+			return getLibraryIndex(self).getMediaFolders();
+		}
 
-				if (FileUtilities.getChildren(folder, VIDEO_FILES).size() > 0 || MediaDetection.isDiskFolder(folder)) {
-					folders.add(folder);
-					return FileVisitResult.SKIP_SUBTREE;
-				}
+		SortedSet<File> folders = new ConcurrentSkipListSet<File>(CASE_INSENSITIVE_PATH_ORDER);
 
-				return FileVisitResult.CONTINUE;
-			}
-		});
+		// select folders with video files and disk folders, but don't descend into media folders or hidden and unreadable folders (there is no depth limit)
+		FileFilter skip = f -> f.isHidden() || !f.canRead();
+		FileFilter mediaFolder = f -> f.isDirectory() && !skip.accept(f) && (FileUtilities.getChildren(f, VIDEO_FILES).size() > 0 || MediaDetection.isDiskFolder(f));
+		new FileWalker(Integer.MAX_VALUE, mediaFolder, f -> skip.accept(f) || mediaFolder.accept(f)).walk(new File[] { self }, folders::add);
 
 		return new ArrayList<File>(folders);
 	}
 
+	public static LibraryIndex getLibraryIndex(File self) throws IOException {
+		return LibraryIndex.getLibraryIndex(self);
+	}
+
 	public static void eachMediaFolder(Collection<?> self, Closure<?> closure) throws IOException {
 		for (File it : FileUtilities.asFileList(self)) {
 			DefaultGroovyMethods.each(getMediaFolders(it), closure);
@@ -247,6 +240,14 @@ public class ScriptShellMethods {
 		return FileUtilities.isDerived(self, other);
 	}
 
+	public static File getOriginalPath(File self) throws IOException {
+		return HistorySpooler.getInstance().getOriginalPath(self.getAbsoluteFile());
+	}
+
+	public static Map<File, File> getRenameLog(File self) throws IOException {
+		return HistorySpooler.getInstance().getCompleteRenameMap(singleton(self.getAbsoluteFile()));
+	}
+
 	public static File validateFileName(File self) {
 		return FileUtilities.validateFileName(self);
 	}
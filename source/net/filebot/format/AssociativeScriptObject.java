@@ -4,7 +4,6 @@ package net.filebot.format;
 import static net.filebot.util.RegularExpressions.*;
 
 import java.util.AbstractMap;
-import java.util.AbstractSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -69,12 +68,15 @@ public class AssociativeScriptObject extends GroovyObjectSupport implements Iter
 	 */
 	private static class LenientLookup extends AbstractMap<Object, Object> {
 
-		private final Map<String, Entry<?, ?>> lookup = new LinkedHashMap<String, Entry<?, ?>>();
+		private final Map<?, ?> source;
+		private final Map<String, Object> lookup = new LinkedHashMap<String, Object>();
 
 		public LenientLookup(Map<?, ?> source) {
-			// populate lookup map
-			for (Entry<?, ?> entry : source.entrySet()) {
-				lookup.put(definingKey(entry.getKey()), entry);
+			this.source = source;
+
+			// populate lookup map (values may be computed on demand)
+			for (Object key : source.keySet()) {
+				lookup.put(definingKey(key), key);
 			}
 		}
 
@@ -90,28 +92,17 @@ public class AssociativeScriptObject extends GroovyObjectSupport implements Iter
 
 		@Override
 		public Object get(Object key) {
-			Entry<?, ?> entry = lookup.get(definingKey(key));
+			Object sourceKey = lookup.get(definingKey(key));
 
-			if (entry != null)
-				return entry.getValue();
+			if (sourceKey != null)
+				return source.get(sourceKey);
 
 			return null;
 		}
 
 		@Override
 		public Set<Entry<Object, Object>> entrySet() {
-			return new AbstractSet<Entry<Object, Object>>() {
-
-				@Override
-				public Iterator<Entry<Object, Object>> iterator() {
-					return (Iterator) lookup.values().iterator();
-				}
-
-				@Override
-				public int size() {
-					return lookup.size();
-				}
-			};
+			return (Set) source.entrySet();
 		}
 	}
 
@@ -0,0 +1,113 @@
+package net.filebot.format;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static net.filebot.Settings.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import net.filebot.util.DefaultThreadFactory;
+import net.filebot.util.SystemProperty;
+import net.filebot.web.Episode;
+import net.filebot.web.Movie;
+
+/**
+ * Format many items concurrently on a bounded thread pool. Results are kept in input order and each item completes with its own value or exception. Items that share resources (e.g. the same series or media file) wait for the first item that uses these resources, so that shared lookups are only done once and then served from cache.
+ */
+public class BatchFormatter {
+
+	@FunctionalInterface
+	public interface FormatTask<T> {
+
+		String format(T item) throws Exception;
+	}
+
+	public static final SystemProperty<Integer> THREADS = SystemProperty.of("net.filebot.BatchFormatter.threads", Integer::parseInt, getPreferredThreadPoolSize());
+
+	private static BatchFormatter instance;
+
+	public static synchronized BatchFormatter getInstance() {
+		if (instance == null) {
+			instance = new BatchFormatter(THREADS.get());
+		}
+		return instance;
+	}
+
+	private final ExecutorService workers;
+
+	public BatchFormatter(int threads) {
+		this.workers = Executors.newFixedThreadPool(threads, new DefaultThreadFactory("BatchFormatter", Thread.NORM_PRIORITY, true));
+	}
+
+	/**
+	 * @return futures in the same order as the given items
+	 */
+	public <T> List<CompletableFuture<String>> format(List<T> items, Function<T, Collection<?>> resources, FormatTask<T> task) {
+		List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>(items.size());
+		Map<Object, CompletableFuture<String>> warmup = new HashMap<Object, CompletableFuture<String>>();
+
+		for (T item : items) {
+			Collection<?> keys = resources.apply(item);
+
+			// wait for the first item of each shared resource, regardless of its outcome
+			CompletableFuture<?>[] dependencies = keys.stream().map(warmup::get).filter(Objects::nonNull).distinct().toArray(CompletableFuture[]::new);
+
+			CompletableFuture<String> future = CompletableFuture.allOf(dependencies).handleAsync((v, e) -> {
+				try {
+					return task.format(item);
+				} catch (Exception error) {
+					throw new CompletionException(error);
+				}
+			}, workers);
+
+			for (Object key : keys) {
+				warmup.putIfAbsent(key, future);
+			}
+			futures.add(future);
+		}
+
+		return futures;
+	}
+
+	/**
+	 * Run the given tasks (e.g. SwingWorker or FutureTask objects) in the same way as format tasks
+	 */
+	public <T extends Runnable> void execute(List<T> tasks, Function<T, Collection<?>> resources) {
+		format(tasks, resources, t -> {
+			t.run();
+			return null;
+		});
+	}
+
+	/**
+	 * @return resources that are likely to be looked up by all formats for the same object or file
+	 */
+	public static Collection<?> getSharedResources(Object infoObject, File mediaFile) {
+		Object shared = null;
+
+		if (infoObject instanceof Episode) {
+			Episode e = (Episode) infoObject;
+			shared = e.getSeriesInfo() != null ? e.getSeriesInfo() : e.getSeriesName();
+		} else if (infoObject instanceof Movie) {
+			shared = infoObject;
+		}
+
+		if (shared == null) {
+			return mediaFile == null ? emptyList() : singletonList(mediaFile);
+		}
+
+		return mediaFile == null ? singletonList(shared) : asList(shared, mediaFile);
+	}
+
+}
@@ -0,0 +1,330 @@
+package net.filebot.format;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.ClassCodeVisitorSupport;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.DynamicVariable;
+import org.codehaus.groovy.ast.Variable;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.BitwiseNegationExpression;
+import org.codehaus.groovy.ast.expr.BooleanExpression;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.ClassExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.ConstructorCallExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.ElvisOperatorExpression;
+import org.codehaus.groovy.ast.expr.EmptyExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.GStringExpression;
+import org.codehaus.groovy.ast.expr.ListExpression;
+import org.codehaus.groovy.ast.expr.MapEntryExpression;
+import org.codehaus.groovy.ast.expr.MapExpression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.NamedArgumentListExpression;
+import org.codehaus.groovy.ast.expr.NotExpression;
+import org.codehaus.groovy.ast.expr.PostfixExpression;
+import org.codehaus.groovy.ast.expr.PrefixExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.RangeExpression;
+import org.codehaus.groovy.ast.expr.SpreadExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.expr.TernaryExpression;
+import org.codehaus.groovy.ast.expr.TupleExpression;
+import org.codehaus.groovy.ast.expr.UnaryMinusExpression;
+import org.codehaus.groovy.ast.expr.UnaryPlusExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.BreakStatement;
+import org.codehaus.groovy.ast.stmt.CaseStatement;
+import org.codehaus.groovy.ast.stmt.CatchStatement;
+import org.codehaus.groovy.ast.stmt.ContinueStatement;
+import org.codehaus.groovy.ast.stmt.EmptyStatement;
+import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.IfStatement;
+import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.stmt.SwitchStatement;
+import org.codehaus.groovy.ast.stmt.ThrowStatement;
+import org.codehaus.groovy.ast.stmt.TryCatchStatement;
+import org.codehaus.groovy.classgen.GeneratorContext;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+import org.codehaus.groovy.control.customizers.SecureASTCustomizer;
+import org.codehaus.groovy.syntax.Types;
+
+import groovy.lang.Closure;
+import groovy.lang.GString;
+import groovy.lang.IntRange;
+import groovy.lang.Range;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Validate expressions once at compile time so that they can be evaluated directly, instead of evaluating each expression in a restricted AccessControlContext with privileged bindings. Expressions are limited to a whitelist of syntax, classes, constructors and read-only methods. Values are dynamically typed, so method names are whitelisted for all receivers, except for generic methods (e.g. call or put) which may only be invoked on literals and on local variables that are initialized with a literal and never reassigned. Only local variables may be assigned.
+ */
+public class CompileTimeSandbox {
+
+	public static final SystemProperty<Boolean> ENABLED = SystemProperty.of("net.filebot.format.CompileTimeSandbox", Boolean::parseBoolean, false);
+
+	private static final List<Class> CLASSES = asList(Object.class, String.class, CharSequence.class, GString.class, Character.class, Boolean.class, Number.class, Integer.class, Long.class, Short.class, Byte.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, Math.class, Date.class, Collection.class, List.class, ArrayList.class, Set.class, LinkedHashSet.class, TreeSet.class, Map.class, LinkedHashMap.class, Range.class, IntRange.class, Pattern.class, Matcher.class, Closure.class, ExpressionFormatFunctions.class, int.class, long.class, short.class, byte.class, float.class, double.class, char.class, boolean.class);
+
+	private static final List<Class> CONSTRUCTORS = asList(String.class, Date.class, ArrayList.class, LinkedHashSet.class, TreeSet.class, LinkedHashMap.class, BigInteger.class, BigDecimal.class);
+
+	private static final List<Class<? extends Expression>> EXPRESSIONS = asList(ArgumentListExpression.class, BinaryExpression.class, BitwiseNegationExpression.class, BooleanExpression.class, CastExpression.class, ClassExpression.class, ClosureExpression.class, ConstantExpression.class, ConstructorCallExpression.class, DeclarationExpression.class, ElvisOperatorExpression.class, EmptyExpression.class, GStringExpression.class, ListExpression.class, MapEntryExpression.class, MapExpression.class, MethodCallExpression.class, NamedArgumentListExpression.class, NotExpression.class, PostfixExpression.class, PrefixExpression.class, PropertyExpression.class, RangeExpression.class, SpreadExpression.class, StaticMethodCallExpression.class, TernaryExpression.class, TupleExpression.class, UnaryMinusExpression.class, UnaryPlusExpression.class, VariableExpression.class);
+
+	private static final List<Class<? extends Statement>> STATEMENTS = asList(BlockStatement.class, ExpressionStatement.class, ReturnStatement.class, IfStatement.class, ForStatement.class, SwitchStatement.class, CaseStatement.class, BreakStatement.class, ContinueStatement.class, TryCatchStatement.class, CatchStatement.class, ThrowStatement.class, EmptyStatement.class);
+
+	private static final List<Integer> TOKENS = asList(Types.PLUS, Types.MINUS, Types.MULTIPLY, Types.DIVIDE, Types.INTDIV, Types.MOD, Types.POWER, Types.PLUS_PLUS, Types.MINUS_MINUS, Types.COMPARE_EQUAL, Types.COMPARE_NOT_EQUAL, Types.COMPARE_LESS_THAN, Types.COMPARE_LESS_THAN_EQUAL, Types.COMPARE_GREATER_THAN, Types.COMPARE_GREATER_THAN_EQUAL, Types.COMPARE_TO, Types.LOGICAL_AND, Types.LOGICAL_OR, Types.FIND_REGEX, Types.MATCH_REGEX, Types.KEYWORD_IN, Types.KEYWORD_INSTANCEOF, Types.LEFT_SQUARE_BRACKET, Types.ASSIGN, Types.PLUS_EQUAL, Types.MINUS_EQUAL, Types.MULTIPLY_EQUAL, Types.DIVIDE_EQUAL);
+
+	private static final Set<String> METHODS = getMethods();
+
+	private static final Set<String> RECEIVER_METHODS = set("call", "get", "put", "putAll", "add", "addAll");
+
+	private static final Set<String> ILLEGAL_PROPERTIES = set("class", "metaClass", "properties", "metaPropertyValues", "declaredFields", "declaredMethods", "declaredConstructors", "fields", "methods", "constructors", "classLoader", "protectionDomain", "superclass", "interfaces", "declaringClass", "enclosingClass", "owner", "delegate", "thisObject", "binding");
+
+	public static CompilationCustomizer[] createCustomizers() {
+		SecureASTCustomizer customizer = new SecureASTCustomizer();
+
+		// only default functions are imported
+		customizer.setImportsWhitelist(emptyList());
+		customizer.setStarImportsWhitelist(emptyList());
+		customizer.setStaticImportsWhitelist(emptyList());
+		customizer.setStaticStarImportsWhitelist(singletonList(ExpressionFormatFunctions.class.getName()));
+
+		customizer.setPackageAllowed(false);
+		customizer.setMethodDefinitionAllowed(false);
+
+		customizer.setReceiversClassesWhiteList(CLASSES);
+		customizer.setExpressionsWhitelist(EXPRESSIONS);
+		customizer.setStatementsWhitelist(STATEMENTS);
+		customizer.setTokensWhitelist(TOKENS);
+		customizer.addExpressionCheckers(CompileTimeSandbox::isAuthorized);
+
+		// annotations trigger AST transformations before the SecureASTCustomizer is applied
+		return new CompilationCustomizer[] { new AnnotationCustomizer(), new ReceiverCustomizer(), customizer };
+	}
+
+	protected static boolean isAuthorized(Expression expression) {
+		// e.g. 'ls'.execute() or x."$name"()
+		if (expression instanceof MethodCallExpression) {
+			MethodCallExpression call = (MethodCallExpression) expression;
+
+			// e.g. x.getAt('class')
+			if ("getAt".equals(call.getMethodAsString()) && call.getArguments() instanceof TupleExpression) {
+				List<Expression> arguments = ((TupleExpression) call.getArguments()).getExpressions();
+				if (arguments.size() == 1 && arguments.get(0) instanceof ConstantExpression) {
+					Object index = ((ConstantExpression) arguments.get(0)).getValue();
+					return !(index instanceof String) || isLegalName((String) index, ILLEGAL_PROPERTIES, false);
+				}
+			}
+
+			return isLegalName(call.getMethodAsString(), METHODS, true);
+		}
+
+		if (expression instanceof StaticMethodCallExpression) {
+			return isLegalName(((StaticMethodCallExpression) expression).getMethod(), METHODS, true);
+		}
+
+		// e.g. x.class or x."$name"
+		if (expression instanceof PropertyExpression) {
+			return isLegalName(((PropertyExpression) expression).getPropertyAsString(), ILLEGAL_PROPERTIES, false);
+		}
+
+		// e.g. new PrintWriter('x') or ProcessGroovyMethods.methods or ['x'] as PrintWriter
+		if (expression instanceof ConstructorCallExpression) {
+			return isLegalClass(expression.getType(), CONSTRUCTORS);
+		}
+
+		if (expression instanceof ClassExpression || expression instanceof CastExpression) {
+			return isLegalClass(expression.getType(), CLASSES);
+		}
+
+		// e.g. PrintWriter w = ['x'] (constructor coercion)
+		if (expression instanceof DeclarationExpression) {
+			Expression variable = ((DeclarationExpression) expression).getLeftExpression();
+			return variable instanceof VariableExpression ? isLegalClass(((VariableExpression) variable).getOriginType(), CLASSES) : true;
+		}
+
+		if (expression instanceof BinaryExpression) {
+			BinaryExpression binary = (BinaryExpression) expression;
+			int operation = binary.getOperation().getType();
+
+			// e.g. x['class']
+			if (operation == Types.LEFT_SQUARE_BRACKET && binary.getRightExpression() instanceof ConstantExpression) {
+				Object index = ((ConstantExpression) binary.getRightExpression()).getValue();
+				return !(index instanceof String) || isLegalName((String) index, ILLEGAL_PROPERTIES, false);
+			}
+
+			// e.g. f.text = 'x' or f['text'] = 'x'
+			if (Types.ofType(operation, Types.ASSIGNMENT_OPERATOR)) {
+				return isLocalVariable(binary.getLeftExpression());
+			}
+		}
+
+		// e.g. f.lastModified++
+		if (expression instanceof PrefixExpression) {
+			return isLocalVariable(((PrefixExpression) expression).getExpression());
+		}
+
+		if (expression instanceof PostfixExpression) {
+			return isLocalVariable(((PostfixExpression) expression).getExpression());
+		}
+
+		return true;
+	}
+
+	private static boolean isLegalName(String name, Set<String> names, boolean whitelist) {
+		// dynamic names (e.g. x."$name"()) can't be checked at compile time
+		return name != null && names.contains(name) == whitelist;
+	}
+
+	private static boolean isLegalClass(ClassNode type, List<Class> classes) {
+		return classes.stream().anyMatch(c -> c.getName().equals(type.getName()));
+	}
+
+	private static boolean isLocalVariable(Expression expression) {
+		// undeclared variables are resolved dynamically (e.g. via the closure delegate)
+		return expression instanceof VariableExpression && !(((VariableExpression) expression).getAccessedVariable() instanceof DynamicVariable);
+	}
+
+	private static boolean isLiteral(Expression expression) {
+		return expression instanceof ListExpression || expression instanceof MapExpression || expression instanceof RangeExpression || expression instanceof ClosureExpression || expression instanceof ConstructorCallExpression;
+	}
+
+	private static Set<String> getMethods() {
+		Set<String> methods = new HashSet<String>();
+
+		// default methods and functions
+		for (Class<?> c : new Class<?>[] { ExpressionFormatMethods.class, ExpressionFormatFunctions.class }) {
+			for (Method m : c.getDeclaredMethods()) {
+				if (Modifier.isPublic(m.getModifiers())) {
+					methods.add(m.getName());
+				}
+			}
+		}
+
+		// common read-only String, Number, Collection and Date methods
+		methods.addAll(asList("toString", "equals", "hashCode", "compareTo", "call", "isCase", "asBoolean", "getAt", "size", "length", "isEmpty", "contains", "plus", "minus", "multiply", "div", "mod", "power", "intdiv", "abs", "floor", "ceil", "max", "min", "pow", "sqrt", "log", "log10", "next", "previous", "toInteger", "toLong", "toDouble", "toFloat", "toBigDecimal", "toBigInteger", "intValue", "longValue", "doubleValue", "floatValue", "isNumber", "isInteger", "isLong", "isDouble", "isFloat", "isBigDecimal", "isBigInteger", "toUpperCase", "toLowerCase", "trim", "substring", "subSequence", "split", "tokenize", "startsWith", "endsWith", "indexOf", "lastIndexOf", "charAt", "equalsIgnoreCase", "compareToIgnoreCase", "capitalize", "uncapitalize", "center", "padLeft", "padRight", "replaceFirst", "tr", "matches", "find", "findAll", "eachMatch", "group", "groupCount", "reverse", "readLines", "normalize", "denormalize", "toCharArray", "collect", "collectEntries", "collectMany", "each", "eachWithIndex", "every", "findResult", "findResults", "findIndexOf", "grep", "sort", "toSorted", "unique", "toUnique", "first", "last", "head", "tail", "init", "take", "drop", "takeWhile", "dropWhile", "sum", "count", "countBy", "groupBy", "inject", "join", "flatten", "intersect", "disjoint", "withIndex", "indexed", "get", "containsAll", "containsKey", "containsValue", "keySet", "values", "entrySet", "subList", "toList", "toSet", "add", "addAll", "put", "putAll", "times", "upto", "downto", "step", "getTime"));
+
+		return unmodifiableSet(methods);
+	}
+
+	private static Set<String> set(String... values) {
+		return unmodifiableSet(new HashSet<String>(asList(values)));
+	}
+
+	private static class AnnotationCustomizer extends CompilationCustomizer {
+
+		public AnnotationCustomizer() {
+			super(CompilePhase.CONVERSION);
+		}
+
+		@Override
+		public void call(SourceUnit source, GeneratorContext context, ClassNode classNode) {
+			new ClassCodeVisitorSupport() {
+
+				@Override
+				protected SourceUnit getSourceUnit() {
+					return source;
+				}
+
+				@Override
+				public void visitAnnotations(AnnotatedNode node) {
+					// e.g. @ASTTest or @Grab
+					if (node.getAnnotations().size() > 0) {
+						throw new SecurityException("Annotations are not allowed");
+					}
+				}
+			}.visitClass(classNode);
+		}
+	}
+
+	private static class ReceiverCustomizer extends CompilationCustomizer {
+
+		public ReceiverCustomizer() {
+			super(CompilePhase.CANONICALIZATION);
+		}
+
+		@Override
+		public void call(SourceUnit source, GeneratorContext context, ClassNode classNode) {
+			Set<Variable> literals = new HashSet<Variable>();
+			Set<Variable> assigned = new HashSet<Variable>();
+
+			// find local variables that are initialized with a literal and never reassigned
+			new ClassCodeVisitorSupport() {
+
+				@Override
+				protected SourceUnit getSourceUnit() {
+					return source;
+				}
+
+				@Override
+				public void visitDeclarationExpression(DeclarationExpression expression) {
+					if (expression.getLeftExpression() instanceof VariableExpression && isLiteral(expression.getRightExpression())) {
+						literals.add((VariableExpression) expression.getLeftExpression());
+					}
+					expression.getRightExpression().visit(this);
+				}
+
+				@Override
+				public void visitBinaryExpression(BinaryExpression expression) {
+					if (Types.ofType(expression.getOperation().getType(), Types.ASSIGNMENT_OPERATOR) && expression.getLeftExpression() instanceof VariableExpression) {
+						assigned.add(((VariableExpression) expression.getLeftExpression()).getAccessedVariable());
+					}
+					super.visitBinaryExpression(expression);
+				}
+			}.visitClass(classNode);
+
+			literals.removeAll(assigned);
+
+			new ClassCodeVisitorSupport() {
+
+				@Override
+				protected SourceUnit getSourceUnit() {
+					return source;
+				}
+
+				@Override
+				public void visitMethodCallExpression(MethodCallExpression call) {
+					// e.g. binding.closure.call() or binding.map.put('x', 'y')
+					if (!call.isImplicitThis() && RECEIVER_METHODS.contains(call.getMethodAsString()) && !isLiteralReceiver(call.getObjectExpression())) {
+						throw new SecurityException("Method " + call.getMethodAsString() + " is only allowed on literals");
+					}
+					super.visitMethodCallExpression(call);
+				}
+
+				private boolean isLiteralReceiver(Expression expression) {
+					if (expression instanceof VariableExpression) {
+						return literals.contains(((VariableExpression) expression).getAccessedVariable());
+					}
+					return isLiteral(expression);
+				}
+			}.visitClass(classNode);
+		}
+	}
+
+}
@@ -1,7 +1,11 @@
 package net.filebot.format;
 
+import static java.util.Collections.*;
 import static net.filebot.util.ExceptionUtilities.*;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.AbstractMap;
 import java.util.HashSet;
@@ -13,32 +17,30 @@ import javax.script.Bindings;
 
 public class ExpressionBindings extends AbstractMap<String, Object> implements Bindings {
 
-	protected final Object bindingBean;
+	private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType FALLBACK = MethodType.methodType(Object.class, Object.class, Object.class);
 
-	protected final Map<String, Method> bindings = new TreeMap<String, Method>(String.CASE_INSENSITIVE_ORDER);
+	// binding tables are the same for all instances of a binding bean class
+	private static final ClassValue<BindingTable> bindingTable = new ClassValue<BindingTable>() {
 
-	protected final Method undefined;
+		@Override
+		protected BindingTable computeValue(Class<?> type) {
+			return new BindingTable(type);
+		}
+	};
 
-	public ExpressionBindings(Object bindingBean) {
-		this.bindingBean = bindingBean;
+	protected final Object bindingBean;
 
-		// get method bindings
-		for (Method method : bindingBean.getClass().getMethods()) {
-			Define define = method.getAnnotation(Define.class);
+	protected final Map<String, MethodHandle> bindings;
 
-			if (define != null) {
-				for (String name : define.value()) {
-					Method existingBinding = bindings.put(name, method);
+	protected final MethodHandle undefined;
 
-					if (existingBinding != null) {
-						throw new IllegalArgumentException(String.format("Illegal binding {%s} on %s", name, method.getName()));
-					}
-				}
-			}
-		}
+	public ExpressionBindings(Object bindingBean) {
+		BindingTable table = bindingTable.get(bindingBean.getClass());
 
-		// extract mapping that handles undefined bindings
-		undefined = bindings.remove(Define.undefined);
+		this.bindingBean = bindingBean;
+		this.bindings = table.bindings;
+		this.undefined = table.undefined;
 	}
 
 	protected boolean isUndefined(Object value) {
@@ -51,22 +53,20 @@ public class ExpressionBindings extends AbstractMap<String, Object> implements B
 
 	@Override
 	public Object get(Object key) {
-		Method method = bindings.get(key);
+		MethodHandle method = bindings.get(key);
 
 		if (method != null) {
 			try {
-				Object value = method.invoke(bindingBean);
+				Object value = (Object) method.invokeExact(bindingBean);
 				if (!isUndefined(value)) {
 					return value;
 				}
 				if (undefined != null) {
-					return undefined.invoke(bindingBean, key); // invoke fallback method
-				}
-			} catch (Exception e) {
-				// check InvocationTargetException cause
-				if (e.getCause() instanceof BindingException) {
-					throw (BindingException) e.getCause();
+					return (Object) undefined.invokeExact(bindingBean, key); // invoke fallback method
 				}
+			} catch (BindingException e) {
+				throw e;
+			} catch (Throwable e) {
 				throw new BindingException(key, getRootCauseMessage(e), e);
 			}
 		}
@@ -127,4 +127,50 @@ public class ExpressionBindings extends AbstractMap<String, Object> implements B
 		return entrySet;
 	}
 
+	private static class BindingTable {
+
+		private final Map<String, MethodHandle> bindings;
+
+		private final MethodHandle undefined;
+
+		public BindingTable(Class<?> type) {
+			Map<String, MethodHandle> bindings = new TreeMap<String, MethodHandle>(String.CASE_INSENSITIVE_ORDER);
+
+			// get method bindings
+			for (Method method : type.getMethods()) {
+				Define define = method.getAnnotation(Define.class);
+
+				if (define != null) {
+					MethodHandle handle = getMethodHandle(method);
+
+					for (String name : define.value()) {
+						MethodHandle existingBinding = bindings.put(name, handle.asType(name.equals(Define.undefined) ? FALLBACK : GETTER));
+
+						if (existingBinding != null) {
+							throw new IllegalArgumentException(String.format("Illegal binding {%s} on %s", name, method.getName()));
+						}
+					}
+				}
+			}
+
+			// extract mapping that handles undefined bindings
+			this.undefined = bindings.remove(Define.undefined);
+			this.bindings = unmodifiableMap(bindings);
+		}
+
+		private MethodHandle getMethodHandle(Method method) {
+			try {
+				return MethodHandles.lookup().unreflect(method);
+			} catch (IllegalAccessException e) {
+				// public methods of non-public binding bean classes (e.g. anonymous classes)
+				method.setAccessible(true);
+				try {
+					return MethodHandles.lookup().unreflect(method);
+				} catch (IllegalAccessException f) {
+					throw new IllegalArgumentException(f);
+				}
+			}
+		}
+	}
+
 }
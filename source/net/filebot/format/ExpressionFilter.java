@@ -2,7 +2,7 @@ package net.filebot.format;
 
 import static net.filebot.format.ExpressionFormat.*;
 
-import java.security.AccessController;
+import java.util.Set;
 
 import javax.script.Bindings;
 import javax.script.CompiledScript;
@@ -21,13 +21,20 @@ public class ExpressionFilter {
 
 	public ExpressionFilter(String expression) throws ScriptException {
 		this.expression = expression;
-		this.compiledExpression = new SecureCompiledScript(compileScriptlet(expression));
+		this.compiledExpression = secure(compileScriptlet(expression));
 	}
 
 	public String getExpression() {
 		return expression;
 	}
 
+	/**
+	 * @return names of all bindings that may be referenced by this filter, or null if bindings are accessed dynamically
+	 */
+	public Set<String> getBindingNames() {
+		return ExpressionFormat.getBindingNames(compiledExpression);
+	}
+
 	public Throwable getLastException() {
 		return lastException;
 	}
@@ -39,12 +46,9 @@ public class ExpressionFilter {
 	public boolean matches(Bindings bindings) {
 		this.lastException = null;
 
-		// use privileged bindings so we are not restricted by the script sandbox
-		Bindings priviledgedBindings = PrivilegedInvocation.newProxy(Bindings.class, bindings, AccessController.getContext());
-
 		// initialize script context with the privileged bindings
 		ScriptContext context = new SimpleScriptContext();
-		context.setBindings(priviledgedBindings, ScriptContext.GLOBAL_SCOPE);
+		context.setBindings(privileged(bindings), ScriptContext.GLOBAL_SCOPE);
 
 		try {
 			// evaluate user script
@@ -1,5 +1,6 @@
 package net.filebot.format;
 
+import static java.util.Collections.*;
 import static net.filebot.util.ExceptionUtilities.*;
 
 import java.security.AccessController;
@@ -8,9 +9,13 @@ import java.text.Format;
 import java.text.ParsePosition;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 import javax.lang.model.SourceVersion;
 import javax.script.Bindings;
@@ -36,17 +41,22 @@ public class ExpressionFormat extends Format {
 
 	private final Object[] compilation;
 
-	private SuppressedThrowables suppressed;
-
 	public ExpressionFormat(String expression) throws ScriptException {
 		this.expression = expression;
-		this.compilation = secure(compile(expression));
+		this.compilation = getCompilation(expression);
 	}
 
 	public String getExpression() {
 		return expression;
 	}
 
+	/**
+	 * @return names of all bindings that may be referenced by this format, or null if bindings are accessed dynamically
+	 */
+	public Set<String> getBindingNames() {
+		return getBindingNames(compilation);
+	}
+
 	protected Object[] compile(String expression) throws ScriptException {
 		List<Object> compilation = new ArrayList<Object>();
 
@@ -126,16 +136,28 @@ public class ExpressionFormat extends Format {
 
 	@Override
 	public StringBuffer format(Object object, StringBuffer sb, FieldPosition pos) {
-		return sb.append(format(getBindings(object)));
+		try {
+			return sb.append(format(getBindings(object)));
+		} finally {
+			// binding bean is done with the media info values it has fetched
+			if (object instanceof MediaBindingBean) {
+				((MediaBindingBean) object).flush();
+			}
+		}
 	}
 
 	public String format(Bindings bindings) {
-		// use privileged bindings so we are not restricted by the script sandbox
-		Bindings priviledgedBindings = PrivilegedInvocation.newProxy(Bindings.class, bindings, AccessController.getContext());
+		return format(bindings, null);
+	}
 
+	/**
+	 * @param suppressedHandler
+	 *            receives the exceptions of all expressions that failed without failing the format as a whole
+	 */
+	public String format(Bindings bindings, Consumer<SuppressedThrowables> suppressedHandler) {
 		// initialize script context with the privileged bindings
 		ScriptContext context = new SimpleScriptContext();
-		context.setBindings(priviledgedBindings, ScriptContext.GLOBAL_SCOPE);
+		context.setBindings(privileged(bindings), ScriptContext.GLOBAL_SCOPE);
 
 		// reset exception state
 		List<Throwable> suppressed = new ArrayList<Throwable>();
@@ -163,16 +185,13 @@ public class ExpressionFormat extends Format {
 			throw new SuppressedThrowables("Expression yields empty value", suppressed);
 		}
 
-		// store for later (not thread-safe)
-		this.suppressed = suppressed.isEmpty() ? null : new SuppressedThrowables("Suppressed", suppressed);
+		if (suppressedHandler != null && suppressed.size() > 0) {
+			suppressedHandler.accept(new SuppressedThrowables("Suppressed", suppressed));
+		}
 
 		return value;
 	}
 
-	public SuppressedThrowables suppressed() {
-		return suppressed;
-	}
-
 	protected Object normalizeBindingValue(Object value) {
 		return value;
 	}
@@ -207,6 +226,50 @@ public class ExpressionFormat extends Format {
 		throw new UnsupportedOperationException();
 	}
 
+	protected static Set<String> getBindingNames(Object... compilation) {
+		Set<String> names = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+
+		for (Object snippet : compilation) {
+			if (snippet instanceof SecureCompiledScript) {
+				snippet = ((SecureCompiledScript) snippet).getCompiledScript();
+			}
+
+			if (snippet instanceof Variable) {
+				names.add(((Variable) snippet).name);
+			} else if (snippet instanceof Scriptlet) {
+				Set<String> bindings = ((Scriptlet) snippet).getBindingNames();
+				if (bindings == null) {
+					return null;
+				}
+				names.addAll(bindings);
+			} else if (snippet instanceof CompiledScript) {
+				return null;
+			}
+		}
+
+		return unmodifiableSet(names);
+	}
+
+	private Object[] getCompilation(String expression) throws ScriptException {
+		// compiled templates are immutable and can be shared by all instances of the same class
+		String key = getClass().getName() + '\0' + expression;
+
+		synchronized (compilationCache) {
+			Object[] compilation = compilationCache.get(key);
+			if (compilation != null) {
+				return compilation;
+			}
+		}
+
+		Object[] compilation = secure(compile(expression));
+
+		synchronized (compilationCache) {
+			compilationCache.put(key, compilation);
+		}
+
+		return compilation;
+	}
+
 	private Object[] secure(Object[] compilation) {
 		for (int i = 0; i < compilation.length; i++) {
 			Object snippet = compilation[i];
@@ -217,17 +280,31 @@ public class ExpressionFormat extends Format {
 			}
 
 			if (snippet instanceof CompiledScript) {
-				compilation[i] = new SecureCompiledScript((CompiledScript) snippet);
+				compilation[i] = secure((CompiledScript) snippet);
 			}
 		}
 
 		return compilation;
 	}
 
+	protected static CompiledScript secure(CompiledScript scriptlet) {
+		// scriptlets that have been validated at compile time don't need to run in a restricted context
+		return CompileTimeSandbox.ENABLED.get() ? new SecureCompiledScript(scriptlet, null) : new SecureCompiledScript(scriptlet);
+	}
+
+	protected static Bindings privileged(Bindings bindings) {
+		// use privileged bindings so we are not restricted by the script sandbox
+		return CompileTimeSandbox.ENABLED.get() ? bindings : PrivilegedInvocation.newProxy(Bindings.class, bindings, AccessController.getContext());
+	}
+
+	private static final int CACHE_SIZE = 500;
+
+	private static final Map<String, Object[]> compilationCache = new LeastRecentlyUsedMap<String, Object[]>(CACHE_SIZE);
+	private static final Map<String, CompiledScript> scriptletCache = new LeastRecentlyUsedMap<String, CompiledScript>(CACHE_SIZE);
+
 	private static ScriptEngine engine;
-	private static Map<String, CompiledScript> scriptletCache = new HashMap<String, CompiledScript>();
 
-	protected static ScriptEngine createScriptEngine() {
+	protected static CompilerConfiguration createCompilerConfiguration() {
 		CompilerConfiguration config = new CompilerConfiguration();
 
 		// include default functions
@@ -235,7 +312,16 @@ public class ExpressionFormat extends Format {
 		imports.addStaticStars(ExpressionFormatFunctions.class.getName());
 		config.addCompilationCustomizers(imports);
 
-		GroovyClassLoader classLoader = new GroovyClassLoader(Thread.currentThread().getContextClassLoader(), config);
+		// reject illegal expressions at compile time
+		if (CompileTimeSandbox.ENABLED.get()) {
+			config.addCompilationCustomizers(CompileTimeSandbox.createCustomizers());
+		}
+
+		return config;
+	}
+
+	protected static ScriptEngine createScriptEngine() {
+		GroovyClassLoader classLoader = new GroovyClassLoader(Thread.currentThread().getContextClassLoader(), createCompilerConfiguration());
 		return new GroovyScriptEngineImpl(classLoader);
 	}
 
@@ -254,16 +340,30 @@ public class ExpressionFormat extends Format {
 
 		CompiledScript scriptlet = scriptletCache.get(expression);
 		if (scriptlet == null) {
-			Compilable engine = (Compilable) getGroovyScriptEngine();
-			scriptlet = engine.compile(expression);
+			scriptlet = new Scriptlet(expression, ((Compilable) getGroovyScriptEngine()).compile(expression));
 			scriptletCache.put(expression, scriptlet);
 		}
 		return scriptlet;
 	}
 
+	private static class LeastRecentlyUsedMap<K, V> extends LinkedHashMap<K, V> {
+
+		private final int capacity;
+
+		public LeastRecentlyUsedMap(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+
 	private static class Variable extends CompiledScript {
 
-		private String name;
+		private final String name;
 
 		public Variable(String name) {
 			this.name = name;
@@ -37,6 +37,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
@@ -54,10 +56,12 @@ import net.filebot.hash.HashType;
 import net.filebot.media.MetaAttributes;
 import net.filebot.media.PlexNamingStandard;
 import net.filebot.media.VideoFormat;
+import net.filebot.mediainfo.ContainerProbe;
 import net.filebot.mediainfo.ImageMetadata;
-import net.filebot.mediainfo.MediaInfo;
+import net.filebot.mediainfo.MediaInfoCache;
 import net.filebot.mediainfo.MediaInfo.StreamKind;
 import net.filebot.mediainfo.MediaInfoException;
+import net.filebot.mediainfo.MediaInfoSnapshot;
 import net.filebot.similarity.Normalization;
 import net.filebot.similarity.SimilarityComparator;
 import net.filebot.util.FileUtilities;
@@ -80,7 +84,8 @@ public class MediaBindingBean {
 	private final File mediaFile;
 	private final Map<File, ?> context;
 
-	private MediaInfo mediaInfo;
+	private MediaInfoSnapshot mediaInfo;
+	private Optional<ContainerProbe.Info> containerInfo;
 
 	public MediaBindingBean(Object infoObject, File mediaFile) {
 		this(infoObject, mediaFile, null);
@@ -92,6 +97,15 @@ public class MediaBindingBean {
 		this.context = context;
 	}
 
+	/**
+	 * @param mediaInfo
+	 *            media info of the inferred media file (e.g. from batch analysis) or null
+	 */
+	public MediaBindingBean(Object infoObject, File mediaFile, Map<File, ?> context, MediaInfoSnapshot mediaInfo) {
+		this(infoObject, mediaFile, context);
+		this.mediaInfo = mediaInfo;
+	}
+
 	@Define("object")
 	public Object getInfoObject() {
 		return infoObject;
@@ -353,8 +367,11 @@ public class MediaBindingBean {
 
 	@Define("vf")
 	public String getVideoFormat() {
-		int w = Integer.parseInt(getMediaInfo(StreamKind.Video, 0, "Width"));
-		int h = Integer.parseInt(getMediaInfo(StreamKind.Video, 0, "Height"));
+		ContainerProbe.Info info = getContainerInfo();
+		List<Integer> dim = info == null ? null : info.getDimension();
+
+		int w = dim != null ? dim.get(0) : Integer.parseInt(getMediaInfo(StreamKind.Video, 0, "Width"));
+		int h = dim != null ? dim.get(1) : Integer.parseInt(getMediaInfo(StreamKind.Video, 0, "Height"));
 
 		// e.g. 720p, nobody actually wants files to be tagged as interlaced, e.g. 720i
 		return String.format("%dp", VideoFormat.DEFAULT_GROUPS.guessFormat(w, h));
@@ -444,6 +461,11 @@ public class MediaBindingBean {
 
 	@Define("dim")
 	public List<Integer> getDimension() {
+		ContainerProbe.Info info = getContainerInfo();
+		if (info != null && info.getDimension() != null) {
+			return info.getDimension();
+		}
+
 		// collect value from Video Stream 0 or Image Stream 0
 		return Stream.of(StreamKind.Video, StreamKind.Image).map(k -> {
 			// collect Width and Height as Integer List
@@ -825,6 +847,11 @@ public class MediaBindingBean {
 
 	@Define("duration")
 	public Duration getDuration() {
+		ContainerProbe.Info info = getContainerInfo();
+		if (info != null && info.getDuration() >= 0) {
+			return Duration.ofMillis(info.getDuration());
+		}
+
 		long d = (long) Double.parseDouble(getMediaInfo(StreamKind.General, 0, "Duration"));
 		return Duration.ofMillis(d);
 	}
@@ -1173,9 +1200,9 @@ public class MediaBindingBean {
 		return null;
 	}
 
-	private static final Map<File, MediaInfo> sharedMediaInfoObjects = synchronizedMap(new WeakValueHashMap<File, MediaInfo>(64));
+	private static final Map<File, MediaInfoSnapshot> sharedMediaInfoObjects = synchronizedMap(new WeakValueHashMap<File, MediaInfoSnapshot>(64));
 
-	private synchronized MediaInfo getMediaInfo() {
+	private synchronized MediaInfoSnapshot getMediaInfo() {
 		// lazy initialize
 		if (mediaInfo == null) {
 			// use inferred media file (e.g. actual movie file instead of subtitle file)
@@ -1183,7 +1210,7 @@ public class MediaBindingBean {
 
 			mediaInfo = sharedMediaInfoObjects.computeIfAbsent(inferredMediaFile, f -> {
 				try {
-					return new MediaInfo().open(f);
+					return MediaInfoCache.lookup(f);
 				} catch (IOException e) {
 					throw new MediaInfoException(e.getMessage());
 				}
@@ -1193,6 +1220,24 @@ public class MediaBindingBean {
 		return mediaInfo;
 	}
 
+	/**
+	 * Store media info values that have been fetched for this binding bean, so that they don't need to be read again next time
+	 */
+	public synchronized void flush() {
+		if (mediaInfo != null) {
+			mediaInfo.flush();
+		}
+	}
+
+	private synchronized ContainerProbe.Info getContainerInfo() {
+		// always ask the container headers first, so that values don't depend on whether media info has already been loaded by another binding
+		if (containerInfo == null) {
+			containerInfo = Optional.ofNullable(ContainerProbe.probe(getInferredMediaFile()));
+		}
+
+		return containerInfo.orElse(null);
+	}
+
 	private Integer identityIndexOf(Iterable<?> c, Object o) {
 		Iterator<?> itr = c.iterator();
 		for (int i = 0; itr.hasNext(); i++) {
@@ -1205,6 +1250,8 @@ public class MediaBindingBean {
 	}
 
 	private String getMediaInfo(StreamKind streamKind, int streamNumber, String... keys) {
+		getMediaInfo().prefetch(streamKind, keys);
+
 		for (String key : keys) {
 			String value = getMediaInfo().get(streamKind, streamNumber, key);
 			if (value.length() > 0) {
@@ -1215,6 +1262,8 @@ public class MediaBindingBean {
 	}
 
 	private Stream<String> getMediaInfo(StreamKind streamKind, String... keys) {
+		getMediaInfo().prefetch(streamKind, keys);
+
 		return IntStream.range(0, getMediaInfo().streamCount(streamKind)).mapToObj(streamNumber -> {
 			return stream(keys).map(key -> {
 				return getMediaInfo().get(streamKind, streamNumber, key);
@@ -1244,7 +1293,8 @@ public class MediaBindingBean {
 	}
 
 	private List<AssociativeScriptObject> createMediaInfoBindings(StreamKind kind) {
-		return getMediaInfo().snapshot().get(kind).stream().map(m -> new AssociativeScriptObject(m, this::undefined)).collect(toList());
+		// lazy bindings only fetch the values that are actually used
+		return IntStream.range(0, getMediaInfo().streamCount(kind)).mapToObj(i -> new AssociativeScriptObject(getMediaInfo().snapshot(kind, i), this::undefined)).collect(toList());
 	}
 
 	private String[] getFileNames(File file) {
@@ -1289,11 +1339,23 @@ public class MediaBindingBean {
 		return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CHARACTER_CLASS);
 	}
 
+	/**
+	 * @param bindings
+	 *            names of the bindings referenced by a format or null if unknown
+	 * @return true if any of the given bindings may need MediaInfo
+	 */
+	public static boolean requiresMediaInfo(Set<String> bindings) {
+		return bindings == null || bindings.stream().anyMatch(MEDIA_INFO_BINDINGS::contains);
+	}
+
 	@Override
 	public String toString() {
 		return String.format("%s ⇔ %s", infoObject, mediaFile == null ? null : mediaFile.getName());
 	}
 
+	// bindings that read MediaInfo or give access to all other bindings
+	private static final Set<String> MEDIA_INFO_BINDINGS = Stream.of("vc", "ac", "cf", "vf", "hpi", "af", "channels", "aco", "resolution", "bitdepth", "ws", "hd", "dim", "width", "height", "group", "mediaTitle", "audioLanguages", "textLanguages", "bitrate", "kbps", "mbps", "khz", "duration", "seconds", "minutes", "hours", "media", "menu", "image", "video", "audio", "text", "chapters", "encodedDate", "self", "model", "defines").collect(toCollection(() -> new TreeSet<String>(String.CASE_INSENSITIVE_ORDER)));
+
 	public static final String EXCEPTION_UNDEFINED = "undefined";
 	public static final String EXCEPTION_SAMPLE_FILE_NOT_SET = "Sample file has not been set. Click \"Change Sample\" to select a sample file.";
 
@@ -0,0 +1,142 @@
+package net.filebot.format;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static net.filebot.Logging.*;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.DynamicVariable;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
+
+import groovy.lang.GroovyClassLoader;
+
+/**
+ * Compiled Groovy expression that knows which bindings it may reference.
+ */
+public class Scriptlet extends CompiledScript {
+
+	// script members that give access to arbitrary bindings
+	private static final Set<String> DYNAMIC_ACCESS = unmodifiableSet(new TreeSet<String>(asList("binding", "getBinding", "getProperty", "setProperty", "getVariable", "hasVariable", "invokeMethod", "evaluate", "run")));
+
+	private final String expression;
+	private final CompiledScript compiledScript;
+
+	private Set<String> bindingNames;
+	private boolean analyzed;
+
+	public Scriptlet(String expression, CompiledScript compiledScript) {
+		this.expression = expression;
+		this.compiledScript = compiledScript;
+	}
+
+	public String getExpression() {
+		return expression;
+	}
+
+	@Override
+	public Object eval(ScriptContext context) throws ScriptException {
+		return compiledScript.eval(context);
+	}
+
+	@Override
+	public ScriptEngine getEngine() {
+		return compiledScript.getEngine();
+	}
+
+	/**
+	 * @return names of all bindings that may be referenced by this expression, or null if bindings are accessed dynamically (e.g. via {@code binding.variables})
+	 */
+	public synchronized Set<String> getBindingNames() {
+		if (!analyzed) {
+			try {
+				bindingNames = analyze(expression, ((GroovyScriptEngineImpl) getEngine()).getClassLoader());
+			} catch (Exception e) {
+				debug.warning(cause("Failed to analyze expression", e));
+			}
+			analyzed = true;
+		}
+		return bindingNames;
+	}
+
+	protected static Set<String> analyze(String expression, GroovyClassLoader classLoader) throws Exception {
+		// parse and resolve variable scopes but don't generate any classes
+		CompilationUnit unit = new CompilationUnit(ExpressionFormat.createCompilerConfiguration(), null, classLoader);
+		unit.addSource("Scriptlet.groovy", expression);
+		unit.compile(Phases.SEMANTIC_ANALYSIS);
+
+		BindingNameCollector collector = new BindingNameCollector();
+
+		for (ModuleNode module : unit.getAST().getModules()) {
+			for (ClassNode node : module.getClasses()) {
+				for (MethodNode method : node.getMethods()) {
+					if (method.getCode() != null) {
+						method.getCode().visit(collector);
+					}
+				}
+			}
+		}
+
+		return collector.dynamic ? null : unmodifiableSet(collector.names);
+	}
+
+	private static class BindingNameCollector extends CodeVisitorSupport {
+
+		private final Set<String> names = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+		private boolean dynamic = false;
+
+		@Override
+		public void visitVariableExpression(VariableExpression expression) {
+			if (DYNAMIC_ACCESS.contains(expression.getName())) {
+				dynamic = true;
+			} else if (expression.getAccessedVariable() instanceof DynamicVariable) {
+				// undeclared variables are resolved via script bindings
+				names.add(expression.getName());
+			}
+			super.visitVariableExpression(expression);
+		}
+
+		@Override
+		public void visitPropertyExpression(PropertyExpression expression) {
+			// e.g. this.n
+			if (expression.getObjectExpression() instanceof VariableExpression && ((VariableExpression) expression.getObjectExpression()).isThisExpression()) {
+				if (expression.getProperty() instanceof ConstantExpression && !DYNAMIC_ACCESS.contains(expression.getPropertyAsString())) {
+					names.add(expression.getPropertyAsString());
+				} else {
+					dynamic = true;
+				}
+			}
+			super.visitPropertyExpression(expression);
+		}
+
+		@Override
+		public void visitMethodCallExpression(MethodCallExpression call) {
+			// e.g. getVariable('n') or evaluate('n') or closure bindings
+			if (call.isImplicitThis()) {
+				if (call.getMethodAsString() == null || DYNAMIC_ACCESS.contains(call.getMethodAsString())) {
+					dynamic = true;
+				} else {
+					names.add(call.getMethodAsString());
+				}
+			}
+			super.visitMethodCallExpression(call);
+		}
+	}
+
+}
@@ -77,24 +77,23 @@ public class SecureCompiledScript extends CompiledScript {
 		this.sandbox = sandbox;
 	}
 
+	public CompiledScript getCompiledScript() {
+		return compiledScript;
+	}
+
 	@Override
 	public Object eval(ScriptContext context) throws ScriptException {
+		// no restricted context (e.g. for scriptlets that have been validated at compile time)
+		if (sandbox == null) {
+			return evaluate(context);
+		}
+
 		try {
 			return AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
 
 				@Override
 				public Object run() throws ScriptException {
-					Object value = compiledScript.eval(context);
-
-					if (value instanceof Callable<?>) {
-						try {
-							return ((Callable<?>) value).call();
-						} catch (Exception e) {
-							throw new ScriptException(e);
-						}
-					}
-
-					return value;
+					return evaluate(context);
 				}
 			}, sandbox);
 		} catch (PrivilegedActionException e) {
@@ -111,6 +110,20 @@ public class SecureCompiledScript extends CompiledScript {
 		}
 	}
 
+	private Object evaluate(ScriptContext context) throws ScriptException {
+		Object value = compiledScript.eval(context);
+
+		if (value instanceof Callable<?>) {
+			try {
+				return ((Callable<?>) value).call();
+			} catch (Exception e) {
+				throw new ScriptException(e);
+			}
+		}
+
+		return value;
+	}
+
 	@Override
 	public ScriptEngine getEngine() {
 		return compiledScript.getEngine();
@@ -0,0 +1,163 @@
+package net.filebot.hash;
+
+import static java.util.Collections.*;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-block SHA-256 digests of a file and the Merkle root over these digests.
+ *
+ * <pre>
+ * Sample:
+ * 9f86d08...:67108864:1073741824:2c26b46...fcde2b2...
+ * |  root  | |block | | length | |   block digests  |
+ * </pre>
+ */
+public class BlockHashes {
+
+	public static final String ALGORITHM = "SHA-256";
+
+	public static final int DIGEST_LENGTH = 32;
+
+	private final int blockSize;
+	private final long length;
+	private final List<byte[]> blocks;
+	private final byte[] root;
+
+	public BlockHashes(int blockSize, long length, List<byte[]> blocks) {
+		this.blockSize = blockSize;
+		this.length = length;
+		this.blocks = unmodifiableList(new ArrayList<byte[]>(blocks));
+		this.root = merkleRoot(blocks);
+	}
+
+	private BlockHashes(int blockSize, long length, List<byte[]> blocks, byte[] root) {
+		this.blockSize = blockSize;
+		this.length = length;
+		this.blocks = unmodifiableList(blocks);
+		this.root = root;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public int getBlockCount() {
+		return blocks.size();
+	}
+
+	public long getBlockOffset(int index) {
+		return (long) index * blockSize;
+	}
+
+	public int getBlockLength(int index) {
+		return (int) Math.min(blockSize, length - getBlockOffset(index));
+	}
+
+	public byte[] getBlock(int index) {
+		return blocks.get(index).clone();
+	}
+
+	public String getRoot() {
+		return hex(root);
+	}
+
+	public boolean isConsistent() {
+		// block count must match the file length and the root must match the block digests
+		long expectedBlockCount = length == 0 ? 1 : (length + blockSize - 1) / blockSize;
+		return blocks.size() == expectedBlockCount && Arrays.equals(root, merkleRoot(blocks));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(DIGEST_LENGTH * 2 * (blocks.size() + 1) + 32);
+		sb.append(hex(root)).append(':').append(blockSize).append(':').append(length).append(':');
+
+		for (byte[] b : blocks) {
+			sb.append(hex(b));
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Pattern used to parse the string representation of a block hash list.
+	 */
+	private static final Pattern PATTERN = Pattern.compile("^(\\p{XDigit}{64}):(\\d+):(\\d+):((?:\\p{XDigit}{64})+)$");
+
+	public static BlockHashes parse(String value) {
+		Matcher matcher = PATTERN.matcher(value);
+
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("Illegal block hash list: " + value);
+		}
+
+		String digests = matcher.group(4);
+		List<byte[]> blocks = new ArrayList<byte[]>(digests.length() / (DIGEST_LENGTH * 2));
+		for (int i = 0; i < digests.length(); i += DIGEST_LENGTH * 2) {
+			blocks.add(unhex(digests.substring(i, i + DIGEST_LENGTH * 2)));
+		}
+
+		return new BlockHashes(Integer.parseInt(matcher.group(2)), Long.parseLong(matcher.group(3)), blocks, unhex(matcher.group(1)));
+	}
+
+	public static MessageDigest newBlockDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static byte[] merkleRoot(List<byte[]> blocks) {
+		MessageDigest md = newBlockDigest();
+		List<byte[]> level = blocks;
+
+		if (level.isEmpty()) {
+			return md.digest();
+		}
+
+		// hash pairs of nodes until only the root is left, odd nodes are promoted to the next level as is
+		while (level.size() > 1) {
+			List<byte[]> next = new ArrayList<byte[]>((level.size() + 1) / 2);
+
+			for (int i = 0; i < level.size(); i += 2) {
+				if (i + 1 < level.size()) {
+					md.update((byte) 0x01);
+					md.update(level.get(i));
+					md.update(level.get(i + 1));
+					next.add(md.digest());
+				} else {
+					next.add(level.get(i));
+				}
+			}
+
+			level = next;
+		}
+
+		return level.get(0);
+	}
+
+	private static String hex(byte[] bytes) {
+		return String.format("%0" + (bytes.length * 2) + "x", new BigInteger(1, bytes));
+	}
+
+	private static byte[] unhex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		return bytes;
+	}
+
+}
@@ -138,6 +138,30 @@ public enum HashType {
 		public String toString() {
 			return "ED2K";
 		}
+	},
+
+	TREE {
+
+		@Override
+		public Hash newHash() {
+			return new TreeHash();
+		}
+
+		@Override
+		public VerificationFormat getFormat() {
+			// e.g 9f86d08...:67108864:1073741824:2c26b46...fcde2b2... ?TREE*folder/file.txt
+			return new TreeHashFormat();
+		}
+
+		@Override
+		public ExtensionFileFilter getFilter() {
+			return MediaTypes.getTypeFilter("verification/treehash");
+		}
+
+		@Override
+		public String toString() {
+			return "TREE";
+		}
 	};
 
 	public abstract Hash newHash();
@@ -0,0 +1,57 @@
+package net.filebot.hash;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TreeHash implements Hash {
+
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024 * 1024;
+
+	private final int blockSize;
+	private final MessageDigest md;
+
+	private final List<byte[]> blocks = new ArrayList<byte[]>();
+
+	private long length = 0;
+	private int blockPosition = 0;
+
+	public TreeHash() {
+		this(DEFAULT_BLOCK_SIZE);
+	}
+
+	public TreeHash(int blockSize) {
+		this.blockSize = blockSize;
+		this.md = BlockHashes.newBlockDigest();
+	}
+
+	@Override
+	public void update(byte[] bytes, int off, int len) {
+		while (len > 0) {
+			int n = Math.min(len, blockSize - blockPosition);
+			md.update(bytes, off, n);
+
+			off += n;
+			len -= n;
+			length += n;
+			blockPosition += n;
+
+			if (blockPosition == blockSize) {
+				blocks.add(md.digest());
+				blockPosition = 0;
+			}
+		}
+	}
+
+	@Override
+	public String digest() {
+		// finish last partial block (or the empty block for empty files)
+		if (blockPosition > 0 || blocks.isEmpty()) {
+			blocks.add(md.digest());
+			blockPosition = 0;
+		}
+
+		return new BlockHashes(blockSize, length, blocks).toString();
+	}
+
+}
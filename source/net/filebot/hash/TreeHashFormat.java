@@ -0,0 +1,37 @@
+package net.filebot.hash;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class TreeHashFormat extends VerificationFormat {
+
+	public TreeHashFormat() {
+		super("TREE");
+	}
+
+	/**
+	 * Pattern used to parse the lines of a tree hash file.
+	 *
+	 * <pre>
+	 * Sample:
+	 * 9f86d08...:67108864:1073741824:2c26b46...fcde2b2... ?TREE*folder/file.txt
+	 * |                   Group 1                    |       |   Group 2   |
+	 * </pre>
+	 */
+	private final Pattern pattern = Pattern.compile("^([\\p{XDigit}:]+)\\s+(?:\\?\\w+)?\\*?(.+)$");
+
+	@Override
+	public Entry<File, String> parseObject(String line) throws ParseException {
+		Matcher matcher = pattern.matcher(line);
+
+		if (!matcher.find()) {
+			throw new ParseException("Illegal input pattern", 0);
+		}
+
+		return entry(matcher.group(2), matcher.group(1));
+	}
+
+}
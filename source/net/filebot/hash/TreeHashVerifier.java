@@ -0,0 +1,123 @@
+package net.filebot.hash;
+
+import static java.nio.file.StandardOpenOption.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verify a file against its {@link BlockHashes} block by block, so that corruption is detected at the first bad block, verification can be resumed at any block, and periodic sweeps can check a random sample of blocks only.
+ */
+public class TreeHashVerifier {
+
+	public static final int OK = -1;
+
+	private final File file;
+	private final BlockHashes hashes;
+
+	public TreeHashVerifier(File file, String hash) {
+		this(file, BlockHashes.parse(hash));
+	}
+
+	public TreeHashVerifier(File file, BlockHashes hashes) {
+		this.file = file;
+		this.hashes = hashes;
+	}
+
+	public BlockHashes getBlockHashes() {
+		return hashes;
+	}
+
+	/**
+	 * @return index of the first corrupted block starting from the given block, or {@link #OK} if all remaining blocks are good
+	 */
+	public int verify(int fromBlock) throws IOException, InterruptedException {
+		if (!isLengthMatch()) {
+			return fromBlock;
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			MessageDigest md = BlockHashes.newBlockDigest();
+
+			for (int i = fromBlock; i < hashes.getBlockCount(); i++) {
+				if (!verifyBlock(channel, buffer, md, i)) {
+					return i;
+				}
+			}
+		}
+
+		return OK;
+	}
+
+	/**
+	 * @return index of the first corrupted block within a random sample of the given size, or {@link #OK} if all sampled blocks are good
+	 */
+	public int verifySample(int sampleSize, Random random) throws IOException, InterruptedException {
+		if (!isLengthMatch()) {
+			return 0;
+		}
+
+		List<Integer> sample = new ArrayList<Integer>(hashes.getBlockCount());
+		for (int i = 0; i < hashes.getBlockCount(); i++) {
+			sample.add(i);
+		}
+
+		Collections.shuffle(sample, random);
+		sample = sample.subList(0, Math.min(sampleSize, sample.size()));
+
+		// read blocks in file order
+		Collections.sort(sample);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			MessageDigest md = BlockHashes.newBlockDigest();
+
+			for (int i : sample) {
+				if (!verifyBlock(channel, buffer, md, i)) {
+					return i;
+				}
+			}
+		}
+
+		return OK;
+	}
+
+	private boolean isLengthMatch() {
+		return file.length() == hashes.getLength();
+	}
+
+	private boolean verifyBlock(FileChannel channel, ByteBuffer buffer, MessageDigest md, int index) throws IOException, InterruptedException {
+		long position = hashes.getBlockOffset(index);
+		long limit = position + hashes.getBlockLength(index);
+
+		while (position < limit) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+
+			int len = channel.read(buffer, position);
+			if (len < 0) {
+				return false;
+			}
+
+			buffer.flip();
+			md.update(buffer);
+			position += len;
+
+			// make this long-running operation interruptible
+			if (Thread.interrupted())
+				throw new InterruptedException();
+		}
+
+		return MessageDigest.isEqual(md.digest(), hashes.getBlock(index));
+	}
+
+}
@@ -0,0 +1,131 @@
+package net.filebot.hash;
+
+import static java.nio.charset.StandardCharsets.*;
+import static net.filebot.Logging.*;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of completed hash computations that is kept next to a verification file, so that an interrupted -compute or -check run can continue where it left off.
+ *
+ * <pre>
+ * Sample:
+ * ; type=SHA256
+ * 1073741824	1514764800000	1a02a7c1e9ac91346d08829d5037b240f42ded07	folder/file.txt
+ * |  length  | | lastModified | |            hash                     | |    path     |
+ * </pre>
+ */
+public class VerificationJournal implements Closeable {
+
+	public static File getJournalFile(File verificationFile) {
+		return new File(verificationFile.getPath() + ".journal");
+	}
+
+	private final File file;
+	private final String header;
+
+	private final Map<String, Record> records = new HashMap<String, Record>();
+
+	private PrintWriter out;
+
+	public VerificationJournal(File verificationFile, HashType type) throws IOException {
+		this.file = getJournalFile(verificationFile);
+		this.header = "; type=" + type.name();
+
+		if (file.exists()) {
+			List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
+
+			// ignore journals for a different hash type
+			if (lines.size() > 0 && lines.get(0).equals(header)) {
+				for (String line : lines.subList(1, lines.size())) {
+					String[] field = line.split("\t", 4);
+
+					// ignore partially written lines
+					if (field.length == 4) {
+						try {
+							records.put(field[3], new Record(Long.parseLong(field[0]), Long.parseLong(field[1]), field[2]));
+						} catch (NumberFormatException e) {
+							debug.warning(format("Illegal journal entry: %s", line));
+						}
+					}
+				}
+			}
+
+			if (records.size() > 0) {
+				log.info(format("Resume from journal: %d entries [%s]", records.size(), file));
+			}
+		}
+	}
+
+	/**
+	 * @return recorded hash value, or null if there is no record or if the file has changed since
+	 */
+	public String get(File f, String path) {
+		Record r = records.get(path);
+
+		if (r != null && r.length == f.length() && r.lastModified == f.lastModified()) {
+			return r.hash;
+		}
+
+		return null;
+	}
+
+	public synchronized void put(File f, String path, String hash) throws IOException {
+		if (out == null) {
+			boolean append = records.size() > 0;
+			out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), UTF_8)), false);
+
+			if (!append) {
+				out.format("%s%n", header);
+			}
+		}
+
+		Record r = new Record(f.length(), f.lastModified(), hash);
+		records.put(path, r);
+
+		// checkpoint after each entry
+		out.format("%d\t%d\t%s\t%s%n", r.length, r.lastModified, r.hash, path);
+		out.flush();
+
+		if (out.checkError()) {
+			throw new IOException("Failed to write journal: " + file);
+		}
+	}
+
+	public void delete() throws IOException {
+		close();
+		Files.deleteIfExists(file.toPath());
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+		}
+	}
+
+	private static class Record {
+
+		public final long length;
+		public final long lastModified;
+		public final String hash;
+
+		public Record(long length, long lastModified, String hash) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+	}
+
+}
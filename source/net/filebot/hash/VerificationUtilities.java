@@ -1,5 +1,6 @@
 package net.filebot.hash;
 
+import static net.filebot.Logging.*;
 import static net.filebot.util.FileUtilities.*;
 
 import java.io.File;
@@ -10,6 +11,8 @@ import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import net.filebot.MetaAttributeView;
+
 public final class VerificationUtilities {
 
 	/**
@@ -61,6 +64,27 @@ public final class VerificationUtilities {
 		return getHashFromVerificationFile(folder.getParentFile(), target, type, depth + 1, maxDepth);
 	}
 
+	public static String getStoredChecksum(File file) {
+		// try CRC32 xattr (as stored by verify script)
+		try {
+			String checksum = new MetaAttributeView(file).get("CRC32");
+			if (checksum != null) {
+				return checksum;
+			}
+		} catch (Exception e) {
+			// ignore if xattr metadata is not supported for the given file
+		}
+
+		// try to get checksum from sfv file in the same folder
+		try {
+			return getHashFromVerificationFile(file, HashType.SFV, 0);
+		} catch (Exception e) {
+			debug.warning(cause(e));
+		}
+
+		return null;
+	}
+
 	public static HashType getHashType(File verificationFile) {
 		for (HashType hashType : HashType.values()) {
 			if (hashType.getFilter().accept(verificationFile))
@@ -35,10 +35,13 @@ import java.util.logging.Level;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import net.filebot.Language;
+import net.filebot.mediainfo.ContainerProbe;
 import net.filebot.mediainfo.MediaInfo;
 import net.filebot.mediainfo.MediaInfo.StreamKind;
 import net.filebot.similarity.NameSimilarityMetric;
 import net.filebot.util.FastFile;
+import net.filebot.util.FileWalker;
 import net.filebot.web.Episode;
 import net.filebot.web.Movie;
 
@@ -55,23 +58,18 @@ public class AutoDetection {
 
 		// resolve folders if required
 		if (resolve) {
-			this.files = resolve(stream(files), getSystemFilesFilter()).toArray(File[]::new);
+			this.files = resolve(files, getSystemFilesFilter()).toArray(File[]::new);
 		}
 	}
 
-	protected Stream<File> resolve(Stream<File> root, FileFilter excludes) {
-		return root.flatMap(f -> {
-			if (f.isHidden() || excludes.accept(f)) {
-				return Stream.empty();
-			}
-			if (f.isFile()) {
-				return Stream.of(f);
-			}
-			if (f.isDirectory()) {
-				return isDiskFolder(f) ? Stream.of(f) : resolve(getChildren(f).stream(), excludes);
-			}
-			return Stream.empty();
-		});
+	protected List<FastFile> resolve(File[] root, FileFilter excludes) {
+		File[] roots = stream(root).filter(f -> !f.isHidden() && !excludes.accept(f)).toArray(File[]::new);
+
+		// select files and disk folders, but don't descend into disk folders (hidden files are skipped and there is no depth limit)
+		FileFilter diskFolder = f -> f.isDirectory() && isDiskFolder(f);
+		FileWalker walker = new FileWalker(Integer.MAX_VALUE, f -> !excludes.accept(f) && (f.isFile() || diskFolder.accept(f)), f -> excludes.accept(f) || diskFolder.accept(f));
+
+		return walker.listSnapshots(roots, null);
 	}
 
 	public List<File> getFiles() {
@@ -118,6 +116,20 @@ public class AutoDetection {
 
 		if (VIDEO_FILES.accept(f) && f.length() > ONE_MEGABYTE) {
 			// check for Japanese audio or characteristic subtitles
+			ContainerProbe.Info info = ContainerProbe.probe(f);
+			if (info != null && info.getDuration() >= 0) {
+				if (Duration.ofMillis(info.getDuration()).toMinutes() < 60) {
+					return true;
+				}
+
+				// fall back to MediaInfo if the container headers don't specify any audio languages
+				List<String> languages = info.getLanguages(StreamKind.Audio);
+				if (languages.size() > 0) {
+					Language japanese = Language.getLanguage("ja");
+					return languages.stream().anyMatch(japanese::matches) && info.getCodecs(StreamKind.Text).stream().anyMatch(c -> c.toUpperCase().contains("ASS"));
+				}
+			}
+
 			try (MediaInfo mi = new MediaInfo().open(f)) {
 				long minutes = Duration.ofMillis(Long.parseLong(mi.get(StreamKind.General, 0, "Duration"))).toMinutes();
 				return minutes < 60 || mi.get(StreamKind.General, 0, "AudioLanguageList").contains("Japanese") && mi.get(StreamKind.General, 0, "TextCodecList").contains("ASS");
@@ -147,6 +159,9 @@ public class AutoDetection {
 		// can't use parallel stream because default fork/join pool doesn't play well with the security manager
 		ExecutorService workerThreadPool = Executors.newFixedThreadPool(getPreferredThreadPoolSize());
 		try {
+			// read xattr metadata for all files at once, so that detection workers don't read it one file at a time
+			xattr.preload(asList(files), workerThreadPool);
+
 			stream(files).collect(toMap(f -> f, f -> workerThreadPool.submit(() -> detectGroup(f)))).forEach((file, group) -> {
 				try {
 					groups.computeIfAbsent(group.get(), k -> new TreeSet<File>()).add(new File(file.getPath())); // use FastFile internally but do not expose to outside code that expects File objects
@@ -0,0 +1,445 @@
+package net.filebot.media;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Collections.*;
+import static java.util.stream.Collectors.*;
+import static net.filebot.Logging.*;
+import static net.filebot.MediaTypes.*;
+import static net.filebot.WebServices.*;
+import static net.filebot.media.MediaDetection.*;
+import static net.filebot.util.FileUtilities.*;
+import static net.filebot.util.StringUtilities.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import net.filebot.ApplicationFolder;
+import net.filebot.MediaTypes;
+import net.filebot.util.FastFile;
+import net.filebot.util.StringUtilities;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Persistent index of all files in a media library folder, including cached detection results for each file. The index is refreshed incrementally by re-listing only folders that have been modified since the last refresh.
+ *
+ * <pre>
+ * Sample:
+ * ; version=2; root=/Volumes/Media
+ * D	1514764800000	TV Shows/Firefly/Season 1
+ * F	1073741824	1514764800000	(dev=801,ino=1234)	video/mkv	episode=true&amp;clutter=false	Firefly - 1x01 - Serenity.mkv
+ * </pre>
+ *
+ * Paths and file names are escaped (see {@link StringUtilities#escapeField(String)}). Files that are modified in place (without adding, removing or renaming any files in the same folder) are only picked up by a full refresh, but their cached detection results are discarded as soon as size or last-modified time no longer match.
+ */
+public class LibraryIndex {
+
+	public static final SystemProperty<Boolean> ENABLED = SystemProperty.of("net.filebot.LibraryIndex", Boolean::parseBoolean, false);
+
+	private static final Map<File, LibraryIndex> instances = new HashMap<File, LibraryIndex>();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(LibraryIndex::saveAll, "LibraryIndexShutdownHook")); // store detection results on shutdown
+	}
+
+	private static synchronized void saveAll() {
+		instances.values().forEach(index -> {
+			try {
+				index.save();
+			} catch (Exception e) {
+				debug.warning(cause("Failed to store library index", e));
+			}
+		});
+	}
+
+	/**
+	 * @return refreshed library index for the given folder
+	 */
+	public static synchronized LibraryIndex getLibraryIndex(File root) throws IOException {
+		File folder = root.getAbsoluteFile();
+
+		LibraryIndex index = instances.get(folder);
+		if (index == null) {
+			File store = ApplicationFolder.Cache.resolve("library").toPath().resolve(md5(folder.getPath()) + ".tsv").toFile();
+			index = new LibraryIndex(folder, store);
+			instances.put(folder, index);
+		}
+
+		index.refresh(false);
+		index.save();
+		return index;
+	}
+
+	private final File root;
+	private final File store;
+	private final String header;
+
+	private SortedMap<String, Folder> folders = new TreeMap<String, Folder>();
+	private boolean modified = false;
+
+	public LibraryIndex(File root, File store) throws IOException {
+		this.root = root;
+		this.store = store;
+		this.header = "; version=2; root=" + escapeField(root.getPath());
+
+		if (store.exists()) {
+			load();
+		}
+	}
+
+	public File getRoot() {
+		return root;
+	}
+
+	private void load() throws IOException {
+		List<String> lines = Files.readAllLines(store.toPath(), UTF_8);
+
+		// ignore index files for a different folder
+		if (lines.isEmpty() || !lines.get(0).equals(header)) {
+			return;
+		}
+
+		Folder folder = null;
+		for (String line : lines.subList(1, lines.size())) {
+			try {
+				if (line.startsWith("D\t")) {
+					String[] field = line.split("\t", 3);
+					folder = new Folder(Long.parseLong(field[1]));
+					folders.put(unescapeField(field[2]), folder);
+				} else if (line.startsWith("F\t") && folder != null) {
+					String[] field = line.split("\t", 7);
+					folder.files.put(unescapeField(field[6]), new Record(Long.parseLong(field[1]), Long.parseLong(field[2]), field[3], field[4], decode(field[5])));
+				}
+			} catch (RuntimeException e) {
+				debug.warning(format("Illegal index entry: %s", line));
+			}
+		}
+
+		// restore folder structure
+		folders.keySet().forEach(path -> {
+			Folder parent = path.isEmpty() ? null : folders.get(getParentPath(path));
+			if (parent != null) {
+				parent.folders.add(getName(path));
+			}
+		});
+	}
+
+	public synchronized void save() throws IOException {
+		if (!modified) {
+			return;
+		}
+
+		Files.createDirectories(store.getParentFile().toPath());
+		Path tmp = store.toPath().resolveSibling(store.getName() + ".tmp");
+
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(Files.newBufferedWriter(tmp, UTF_8)))) {
+			out.format("%s%n", header);
+			folders.forEach((path, folder) -> {
+				out.format("D\t%d\t%s%n", folder.lastModified, escapeField(path));
+				folder.files.forEach((name, r) -> {
+					out.format("F\t%d\t%d\t%s\t%s\t%s\t%s%n", r.length, r.lastModified, r.key, r.type, encode(r.detection), escapeField(name));
+				});
+			});
+
+			if (out.checkError()) {
+				throw new IOException("Failed to write library index: " + store);
+			}
+		}
+
+		Files.move(tmp, store.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		modified = false;
+	}
+
+	/**
+	 * Update the index with the current state of the file system
+	 *
+	 * @param full
+	 *            re-list all folders, not just modified folders
+	 */
+	public synchronized void refresh(boolean full) {
+		SortedMap<String, Folder> index = new TreeMap<String, Folder>();
+		refresh(root, "", FILE_WALK_MAX_DEPTH, full, index);
+
+		if (!index.keySet().equals(folders.keySet())) {
+			modified = true;
+		}
+		folders = index;
+	}
+
+	private void refresh(File dir, String path, int depth, boolean full, SortedMap<String, Folder> index) {
+		BasicFileAttributes attr = FastFile.readAttributes(dir.toPath());
+		if (attr == null || !attr.isDirectory() || depth < 0) {
+			return;
+		}
+
+		Folder folder = folders.get(path);
+		if (full || folder == null || folder.lastModified != attr.lastModifiedTime().toMillis()) {
+			folder = list(dir, attr.lastModifiedTime().toMillis(), folder);
+			modified = true;
+		}
+		index.put(path, folder);
+
+		for (String name : folder.folders) {
+			refresh(new File(dir, name), path.isEmpty() ? name : path + '/' + name, depth - 1, full, index);
+		}
+	}
+
+	private Folder list(File dir, long lastModified, Folder previous) {
+		Folder folder = new Folder(lastModified);
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath())) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				BasicFileAttributes attr = FastFile.readAttributes(path);
+
+				// ignore hidden files and broken links
+				if (attr == null || new FastFile(dir, name, attr).isHidden()) {
+					continue;
+				}
+
+				if (attr.isDirectory()) {
+					folder.folders.add(name);
+				} else if (attr.isRegularFile()) {
+					Record record = new Record(attr.size(), attr.lastModifiedTime().toMillis(), Objects.toString(attr.fileKey(), "-"), Objects.toString(MediaTypes.getMediaType(getExtension(name)), "-"), null);
+
+					// keep detection results of unchanged files
+					Record r = previous == null ? null : previous.files.get(name);
+					if (r != null && r.length == record.length && r.lastModified == record.lastModified) {
+						record.detection.putAll(r.detection);
+					}
+
+					folder.files.put(name, record);
+				}
+			}
+		} catch (IOException e) {
+			debug.warning(cause("Failed to list folder", e));
+		}
+
+		sort(folder.folders);
+		return folder;
+	}
+
+	public synchronized List<File> getFolders() {
+		return folders.keySet().stream().map(this::getFile).collect(toList());
+	}
+
+	public synchronized List<File> getFiles() {
+		List<File> files = new ArrayList<File>();
+		folders.forEach((path, folder) -> {
+			File dir = getFile(path);
+			folder.files.keySet().forEach(name -> files.add(new File(dir, name)));
+		});
+		return files;
+	}
+
+	/**
+	 * @return folders that contain video files and disk folders, but not any folders within these folders
+	 */
+	public synchronized List<File> getMediaFolders() {
+		Set<String> mediaFolders = new LinkedHashSet<String>();
+
+		folders.forEach((path, folder) -> {
+			// ignore folders within media folders
+			for (String p = path; !p.isEmpty();) {
+				p = getParentPath(p);
+				if (mediaFolders.contains(p)) {
+					return;
+				}
+			}
+
+			File dir = getFile(path);
+			if (folder.files.keySet().stream().anyMatch(VIDEO_FILES::accept) || Stream.concat(folder.files.keySet().stream(), folder.folders.stream()).anyMatch(n -> releaseInfo.getDiskFolderEntryFilter().accept(new File(dir, n)))) {
+				mediaFolders.add(path);
+			}
+		});
+
+		return mediaFolders.stream().map(this::getFile).sorted(CASE_INSENSITIVE_PATH_ORDER).collect(toList());
+	}
+
+	/**
+	 * @return cached detection result if the file has not changed since, or compute and cache a new detection result
+	 */
+	public String getDetection(File file, String key, Function<File, Object> detection) {
+		Record record = getRecord(file);
+		if (record == null) {
+			return Objects.toString(detection.apply(file), null);
+		}
+
+		String value = record.detection.get(key);
+		if (value == null) {
+			value = Objects.toString(detection.apply(file), "");
+			record.detection.put(key, value);
+
+			synchronized (this) {
+				modified = true;
+			}
+		}
+		return value.isEmpty() ? null : value;
+	}
+
+	public boolean isEpisode(File file, boolean strict) {
+		return Boolean.parseBoolean(getDetection(file, strict ? "episode.strict" : "episode", f -> MediaDetection.isEpisode(f, strict)));
+	}
+
+	public boolean isMovie(File file, boolean strict) {
+		return Boolean.parseBoolean(getDetection(file, strict ? "movie.strict" : "movie", f -> MediaDetection.isMovie(f, strict)));
+	}
+
+	public boolean isClutterFile(File file) {
+		return Boolean.parseBoolean(getDetection(file, "clutter", f -> getClutterFileFilter().accept(f)));
+	}
+
+	public String getSeriesName(File file, Locale locale) {
+		return getDetection(file, "series." + locale.toLanguageTag(), f -> {
+			try {
+				return detectSeriesNames(singleton(f), false, locale).stream().findFirst().orElse(null);
+			} catch (Exception e) {
+				debug.warning(cause("Failed to detect series name", e));
+				return null;
+			}
+		});
+	}
+
+	public String getMovie(File file, Locale locale) {
+		return getDetection(file, "movie.name." + locale.toLanguageTag(), f -> {
+			try {
+				return detectMovie(f, TheMovieDB, locale, true).stream().findFirst().orElse(null);
+			} catch (Exception e) {
+				debug.warning(cause("Failed to detect movie", e));
+				return null;
+			}
+		});
+	}
+
+	private synchronized Record getRecord(File file) {
+		Path path = file.getAbsoluteFile().toPath();
+		if (!path.startsWith(root.toPath()) || path.getNameCount() == root.toPath().getNameCount()) {
+			return null;
+		}
+
+		String relativePath = root.toPath().relativize(path.getParent()).toString().replace(File.separatorChar, '/');
+		Folder folder = folders.get(relativePath);
+		if (folder == null) {
+			return null;
+		}
+
+		String name = path.getFileName().toString();
+		Record record = folder.files.get(name);
+		if (record == null) {
+			return null;
+		}
+
+		// files that are modified in place don't change the last-modified time of the folder, so detection results must be checked against the file itself
+		BasicFileAttributes attr = FastFile.readAttributes(path);
+		if (attr == null || !attr.isRegularFile()) {
+			return null;
+		}
+
+		if (record.length != attr.size() || record.lastModified != attr.lastModifiedTime().toMillis()) {
+			record = new Record(attr.size(), attr.lastModifiedTime().toMillis(), Objects.toString(attr.fileKey(), "-"), record.type, null);
+			folder.files.put(name, record);
+			modified = true;
+		}
+
+		return record;
+	}
+
+	private File getFile(String path) {
+		return path.isEmpty() ? root : new File(root, path);
+	}
+
+	private static String getParentPath(String path) {
+		int i = path.lastIndexOf('/');
+		return i < 0 ? "" : path.substring(0, i);
+	}
+
+	private static String getName(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	private static String encode(Map<String, String> detection) {
+		if (detection.isEmpty()) {
+			return "-";
+		}
+
+		return detection.entrySet().stream().map(it -> {
+			try {
+				return URLEncoder.encode(it.getKey(), "UTF-8") + '=' + URLEncoder.encode(it.getValue(), "UTF-8");
+			} catch (Exception e) {
+				throw new IllegalArgumentException(e);
+			}
+		}).collect(joining("&"));
+	}
+
+	private static Map<String, String> decode(String detection) {
+		Map<String, String> map = new HashMap<String, String>();
+
+		if (!detection.equals("-")) {
+			for (String it : detection.split("&")) {
+				String[] kv = it.split("=", 2);
+				try {
+					map.put(URLDecoder.decode(kv[0], "UTF-8"), URLDecoder.decode(kv[1], "UTF-8"));
+				} catch (Exception e) {
+					throw new IllegalArgumentException(e);
+				}
+			}
+		}
+
+		return map;
+	}
+
+	private static class Folder {
+
+		public final long lastModified;
+
+		public final List<String> folders = new ArrayList<String>();
+		public final SortedMap<String, Record> files = new TreeMap<String, Record>();
+
+		public Folder(long lastModified) {
+			this.lastModified = lastModified;
+		}
+	}
+
+	private static class Record {
+
+		public final long length;
+		public final long lastModified;
+		public final String key;
+		public final String type;
+
+		public final Map<String, String> detection = new ConcurrentHashMap<String, String>();
+
+		public Record(long length, long lastModified, String key, String type, Map<String, String> detection) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.key = key;
+			this.type = type;
+
+			if (detection != null) {
+				this.detection.putAll(detection);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+package net.filebot.media;
+
+import static java.nio.charset.StandardCharsets.*;
+import static net.filebot.Logging.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.filebot.ApplicationFolder;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Persistent per-volume copy of xattr metadata, so that metadata can be looked up instantly on file systems that don't support xattr or where reading xattr is slow. Records are only valid as long as the size and last-modified time of the file haven't changed.
+ *
+ * <pre>
+ * Sample:
+ * 1073741824	1514764800000	/Volumes/Media/Firefly - 1x01 - Serenity.mkv	Firefly.S01E01.720p.mkv	{"@type":"Episode", ...}
+ * |  length  | | lastModified | |                 path                      | |   original name     | |   metadata   |
+ * </pre>
+ */
+public class XattrIndex {
+
+	public static final SystemProperty<Boolean> ENABLED = SystemProperty.of("net.filebot.XattrIndex", Boolean::parseBoolean, false);
+
+	private static final Map<String, XattrIndex> volumes = new HashMap<String, XattrIndex>();
+	private static final Map<File, String> folderVolumes = new ConcurrentHashMap<File, String>();
+
+	/**
+	 * @return index for the volume of the given file
+	 */
+	public static XattrIndex getIndex(File file) {
+		File folder = file.getAbsoluteFile().getParentFile();
+		String volume = folderVolumes.computeIfAbsent(folder, XattrIndex::getVolume);
+
+		synchronized (volumes) {
+			return volumes.computeIfAbsent(volume, v -> new XattrIndex(ApplicationFolder.Cache.resolve("xattr").toPath().resolve(String.format("%08x.tsv", v.hashCode())).toFile()));
+		}
+	}
+
+	private static String getVolume(File folder) {
+		try {
+			return Files.getFileStore(folder.toPath()).toString();
+		} catch (Exception e) {
+			debug.finest(e::toString);
+		}
+		return "";
+	}
+
+	private final File store;
+
+	private Map<String, Record> records;
+	private PrintWriter out;
+
+	public XattrIndex(File store) {
+		this.store = store;
+	}
+
+	public synchronized Record get(File file) {
+		Record r = getRecords().get(file.getAbsolutePath());
+
+		if (r != null && r.length == file.length() && r.lastModified == file.lastModified()) {
+			return r;
+		}
+
+		return null;
+	}
+
+	public synchronized void put(File file, String originalName, String json) {
+		String path = file.getAbsolutePath();
+
+		// keep the first original name
+		Record previous = get(file);
+		if (previous != null && previous.originalName != null) {
+			originalName = previous.originalName;
+		}
+
+		append(new Record(file.length(), file.lastModified(), originalName, json), path);
+	}
+
+	public synchronized void remove(File file) {
+		if (getRecords().containsKey(file.getAbsolutePath())) {
+			append(new Record(0, 0, null, null), file.getAbsolutePath());
+		}
+	}
+
+	private Map<String, Record> getRecords() {
+		if (records == null) {
+			records = new HashMap<String, Record>();
+
+			try {
+				if (store.exists()) {
+					load();
+				}
+			} catch (Exception e) {
+				debug.warning(cause("Failed to read xattr index", e));
+			}
+		}
+		return records;
+	}
+
+	private void load() throws IOException {
+		List<String> lines = Files.readAllLines(store.toPath(), UTF_8);
+
+		for (String line : lines) {
+			String[] field = line.split("\t", 5);
+
+			// ignore partially written lines
+			if (field.length == 5) {
+				try {
+					Record r = new Record(Long.parseLong(field[0]), Long.parseLong(field[1]), field[3], field[4]);
+					if (r.isEmpty()) {
+						records.remove(field[2]);
+					} else {
+						records.put(field[2], r);
+					}
+				} catch (NumberFormatException e) {
+					debug.warning(format("Illegal index entry: %s", line));
+				}
+			}
+		}
+
+		// drop outdated records
+		if (lines.size() > 2 * records.size() + 100) {
+			compact();
+		}
+	}
+
+	private void compact() throws IOException {
+		Path tmp = store.toPath().resolveSibling(store.getName() + ".tmp");
+
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(Files.newBufferedWriter(tmp, UTF_8)))) {
+			records.forEach((path, r) -> write(out, r, path));
+
+			if (out.checkError()) {
+				throw new IOException("Failed to write xattr index: " + store);
+			}
+		}
+
+		Files.move(tmp, store.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void append(Record r, String path) {
+		// paths and names that can't be stored in a single line are not indexed
+		if (!isValid(path) || !isValid(r.originalName) || !isValid(r.json)) {
+			return;
+		}
+
+		if (r.isEmpty()) {
+			getRecords().remove(path);
+		} else {
+			getRecords().put(path, r);
+		}
+
+		try {
+			if (out == null) {
+				Files.createDirectories(store.getParentFile().toPath());
+				out = new PrintWriter(Files.newBufferedWriter(store.toPath(), UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND), false);
+			}
+
+			write(out, r, path);
+			out.flush();
+		} catch (Exception e) {
+			debug.warning(cause("Failed to write xattr index", e));
+		}
+	}
+
+	private static void write(PrintWriter out, Record r, String path) {
+		out.format("%d\t%d\t%s\t%s\t%s%n", r.length, r.lastModified, path, r.originalName == null ? "" : r.originalName, r.json == null ? "" : r.json);
+	}
+
+	private static boolean isValid(String s) {
+		return s == null || s.chars().noneMatch(c -> c == '\t' || c == '\n' || c == '\r');
+	}
+
+	public static class Record {
+
+		public final long length;
+		public final long lastModified;
+
+		public final String originalName;
+		public final String json;
+
+		public Record(long length, long lastModified, String originalName, String json) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.originalName = originalName == null || originalName.isEmpty() ? null : originalName;
+			this.json = json == null || json.isEmpty() ? null : json;
+		}
+
+		public boolean isEmpty() {
+			return originalName == null && json == null;
+		}
+
+		public String getOriginalName() {
+			return originalName;
+		}
+
+		public Object getObject() {
+			return MetaAttributes.toObject(json);
+		}
+	}
+
+}
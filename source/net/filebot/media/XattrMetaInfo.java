@@ -1,10 +1,16 @@
 package net.filebot.media;
 
+import static java.util.stream.Collectors.*;
 import static net.filebot.Logging.*;
 import static net.filebot.Settings.*;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 import net.filebot.Cache;
@@ -25,6 +31,8 @@ public class XattrMetaInfo {
 	private final Cache xattrMetaInfoCache = Cache.getCache(MetaAttributes.METADATA_KEY, CacheType.Ephemeral);
 	private final Cache xattrOriginalNameCache = Cache.getCache(MetaAttributes.FILENAME_KEY, CacheType.Ephemeral);
 
+	private volatile XattrWriter writer;
+
 	public XattrMetaInfo(boolean useExtendedFileAttributes, boolean useCreationDate) {
 		this.useExtendedFileAttributes = useExtendedFileAttributes;
 		this.useCreationDate = useCreationDate;
@@ -52,28 +60,121 @@ public class XattrMetaInfo {
 		return -1;
 	}
 
-	public synchronized Object getMetaInfo(File file) {
-		return getXattrValue(xattrMetaInfoCache, file, MetaAttributes::getObject);
+	public Object getMetaInfo(File file) {
+		return getXattrValue(xattrMetaInfoCache, file, MetaAttributes::getObject, XattrIndex.Record::getObject);
 	}
 
-	public synchronized String getOriginalName(File file) {
-		return (String) getXattrValue(xattrOriginalNameCache, file, MetaAttributes::getOriginalName);
+	public String getOriginalName(File file) {
+		String name = (String) getXattrValue(xattrOriginalNameCache, file, MetaAttributes::getOriginalName, XattrIndex.Record::getOriginalName);
+
+		// original name may not have been written yet
+		if (name == null && writer != null) {
+			return writer.getPendingOriginalName(file);
+		}
+		return name;
 	}
 
-	private Object getXattrValue(Cache cache, File file, Function<MetaAttributes, Object> compute) {
+	private Object getXattrValue(Cache cache, File file, Function<MetaAttributes, Object> compute, Function<XattrIndex.Record, Object> index) {
 		// try in-memory cache of previously stored xattr metadata
 		if (!useExtendedFileAttributes) {
-			return cache.get(file);
+			Object value = cache.get(file);
+			return value != null ? value : getIndexValue(file, index);
 		}
 
 		try {
-			return cache.computeIfAbsent(file, element -> compute.apply(xattr(file))); // read only
+			return cache.computeIfAbsent(file, element -> {
+				Object value = null;
+				try {
+					value = compute.apply(xattr(file)); // read only
+				} catch (Throwable e) {
+					debug.warning(cause("Failed to read xattr", e));
+				}
+				return value != null ? value : getIndexValue(file, index);
+			});
 		} catch (Throwable e) {
 			debug.warning(cause("Failed to read xattr", e));
 		}
 		return null;
 	}
 
+	private Object getIndexValue(File file, Function<XattrIndex.Record, Object> index) {
+		if (XattrIndex.ENABLED.get() && file.isFile()) {
+			XattrIndex.Record r = XattrIndex.getIndex(file).get(file);
+			if (r != null) {
+				return index.apply(r);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Read xattr metadata for the given files in parallel, so that subsequent lookups are served from memory
+	 */
+	public void preload(Collection<File> files) {
+		// use a bounded worker pool for disk reads (see AutoDetection.group())
+		ExecutorService workerThreadPool = Executors.newFixedThreadPool(getPreferredThreadPoolSize());
+		try {
+			preload(files, workerThreadPool);
+		} finally {
+			workerThreadPool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Read xattr metadata for the given files on the given worker pool
+	 */
+	public void preload(Collection<File> files, ExecutorService workerThreadPool) {
+		if (!useExtendedFileAttributes && !XattrIndex.ENABLED.get()) {
+			return;
+		}
+
+		List<File> selection = files.stream().filter(f -> xattrMetaInfoCache.get(f) == null && f.isFile()).collect(toList());
+		if (selection.size() <= 1) {
+			return;
+		}
+
+		try {
+			workerThreadPool.invokeAll(selection.stream().map(f -> (Callable<Void>) () -> {
+				load(f);
+				return null;
+			}).collect(toList()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void load(File file) {
+		Object model = null;
+		String original = null;
+
+		// read all values with the same attribute view
+		if (useExtendedFileAttributes) {
+			try {
+				MetaAttributes attributes = xattr(file);
+				model = attributes.getObject();
+				original = attributes.getOriginalName();
+			} catch (Throwable e) {
+				debug.finest(cause("Failed to read xattr", e));
+			}
+		}
+
+		if (model == null && original == null && XattrIndex.ENABLED.get()) {
+			XattrIndex.Record r = XattrIndex.getIndex(file).get(file);
+			if (r != null) {
+				model = r.getObject();
+				original = r.getOriginalName();
+			}
+		}
+
+		// don't override in-memory values if xattr is disabled
+		if (model != null || useExtendedFileAttributes) {
+			xattrMetaInfoCache.put(file, model);
+		}
+		if (original != null || useExtendedFileAttributes) {
+			xattrOriginalNameCache.put(file, original);
+		}
+	}
+
 	private File writable(File f) throws Exception {
 		// make file writable if necessary
 		if (!f.canWrite()) {
@@ -90,12 +191,41 @@ public class XattrMetaInfo {
 		return new MetaAttributes(f);
 	}
 
-	public synchronized void setMetaInfo(File file, Object model, String original) {
+	public void setMetaInfo(File file, Object model, String original) {
 		// only for Episode / Movie objects
 		if (!isMetaInfo(model) || !file.isFile()) {
 			return;
 		}
 
+		// update in-memory cache right away and write xattr metadata in the background
+		xattrMetaInfoCache.put(file, model);
+		getWriter().submit(file, model, original);
+	}
+
+	/**
+	 * Wait for all pending xattr metadata writes
+	 */
+	public void flush() {
+		if (writer != null) {
+			writer.flush();
+		}
+	}
+
+	private synchronized XattrWriter getWriter() {
+		if (writer == null) {
+			writer = new XattrWriter(this, getPreferredThreadPoolSize(), XattrWriter.THREADS_PER_DEVICE.get(), XattrWriter.QUEUE_SIZE.get());
+			Runtime.getRuntime().addShutdownHook(new Thread(writer::flush, "XattrWriterShutdownHook")); // daemon workers must finish pending writes before the JVM halts
+		}
+		return writer;
+	}
+
+	protected void writeMetaInfo(File file, Object model, String original) {
+		// file may have been moved or deleted in the meantime
+		if (!file.isFile()) {
+			debug.finest(message("Skip xattr", file));
+			return;
+		}
+
 		// set creation date to episode / movie release date
 		Resource<MetaAttributes> xattr = Resource.lazy(() -> xattr(writable(file)));
 
@@ -110,33 +240,46 @@ public class XattrMetaInfo {
 			}
 		}
 
+		// keep the original name of previous renames
+		if (original != null && (original.isEmpty() || getOriginalName(file) != null)) {
+			original = null;
+		}
+
 		// store metadata object and original name as xattr
 		try {
-			if (isMetaInfo(model)) {
-				xattrMetaInfoCache.put(file, model);
-
-				if (useExtendedFileAttributes) {
-					xattr.get().setObject(model);
-				}
+			if (original != null) {
+				xattrOriginalNameCache.put(file, original);
 			}
 
-			if (original != null && original.length() > 0 && getOriginalName(file) == null) {
-				xattrOriginalNameCache.put(file, original);
+			if (useExtendedFileAttributes) {
+				xattr.get().setObject(model);
 
-				if (useExtendedFileAttributes) {
+				if (original != null) {
 					xattr.get().setOriginalName(original);
 				}
 			}
 		} catch (Throwable e) {
 			debug.warning(cause("Failed to set xattr", e));
 		}
+
+		// mirror metadata into the persistent index
+		if (XattrIndex.ENABLED.get()) {
+			XattrIndex.getIndex(file).put(file, original, MetaAttributes.toJson(model));
+		}
 	}
 
-	public synchronized void clear(File file) {
-		// clear in-memory cache
+	public void clear(File file) {
+		// drop pending writes and clear in-memory cache
+		if (writer != null) {
+			writer.cancel(file);
+		}
 		xattrMetaInfoCache.remove(file);
 		xattrOriginalNameCache.remove(file);
 
+		if (XattrIndex.ENABLED.get()) {
+			XattrIndex.getIndex(file).remove(file);
+		}
+
 		if (useExtendedFileAttributes) {
 			try {
 				xattr(writable(file)).clear();
@@ -30,6 +30,7 @@ public class XattrMetaInfoProvider implements Datasource {
 	public Map<File, Object> match(Collection<File> files, boolean strict) {
 		// enable xattr regardless of -DuseExtendedFileAttributes system properties
 		XattrMetaInfo xattr = new XattrMetaInfo(true, false);
+		xattr.preload(files);
 
 		Map<File, Object> result = new LinkedHashMap<File, Object>();
 
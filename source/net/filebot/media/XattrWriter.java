@@ -0,0 +1,149 @@
+package net.filebot.media;
+
+import static net.filebot.Logging.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import net.filebot.util.DefaultThreadFactory;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Write xattr metadata on background threads. The number of pending files is bounded, concurrent writes are limited per device, and writes to the same file that haven't started yet are coalesced into a single write.
+ */
+public class XattrWriter {
+
+	public static final SystemProperty<Integer> THREADS_PER_DEVICE = SystemProperty.of("net.filebot.XattrWriter.threadsPerDevice", Integer::parseInt, 2);
+	public static final SystemProperty<Integer> QUEUE_SIZE = SystemProperty.of("net.filebot.XattrWriter.queueSize", Integer::parseInt, 256);
+
+	private final XattrMetaInfo xattr;
+	private final int threadsPerDevice;
+
+	private final ExecutorService workers;
+	private final Semaphore capacity;
+
+	private final Map<File, Write> pending = new ConcurrentHashMap<File, Write>();
+	private final Map<String, Semaphore> devices = new ConcurrentHashMap<String, Semaphore>();
+
+	private int inFlight = 0;
+
+	public XattrWriter(XattrMetaInfo xattr, int threads, int threadsPerDevice, int queueSize) {
+		this.xattr = xattr;
+		this.threadsPerDevice = threadsPerDevice;
+		this.workers = Executors.newFixedThreadPool(threads, new DefaultThreadFactory("XattrWriter", Thread.NORM_PRIORITY, true));
+		this.capacity = new Semaphore(queueSize);
+	}
+
+	/**
+	 * Queue metadata for the given file, and block if too many files are pending
+	 */
+	public void submit(File file, Object model, String original) {
+		capacity.acquireUninterruptibly();
+
+		boolean[] queued = { false };
+		pending.compute(file, (k, w) -> {
+			if (w == null) {
+				queued[0] = true;
+				return new Write(model, original);
+			}
+			// keep the original name of the previous write
+			return new Write(model, original != null ? original : w.original);
+		});
+
+		if (!queued[0]) {
+			capacity.release();
+			return;
+		}
+
+		synchronized (this) {
+			inFlight++;
+		}
+
+		workers.execute(() -> run(file));
+	}
+
+	/**
+	 * @return original name of a pending write or null
+	 */
+	public String getPendingOriginalName(File file) {
+		Write w = pending.get(file);
+		return w == null ? null : w.original;
+	}
+
+	/**
+	 * Drop the pending write for the given file (if it hasn't started yet)
+	 */
+	public void cancel(File file) {
+		pending.remove(file);
+	}
+
+	/**
+	 * Wait for all writes that have been submitted so far
+	 */
+	public synchronized void flush() {
+		boolean interrupted = false;
+
+		while (inFlight > 0) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run(File file) {
+		Semaphore device = devices.computeIfAbsent(getDevice(file), k -> new Semaphore(threadsPerDevice));
+		device.acquireUninterruptibly();
+
+		try {
+			// take the most recent metadata, writes that are submitted from now on will be queued again
+			Write w = pending.remove(file);
+
+			if (w != null) {
+				xattr.writeMetaInfo(file, w.model, w.original);
+			}
+		} catch (Throwable e) {
+			debug.warning(cause("Failed to write xattr", e));
+		} finally {
+			device.release();
+			capacity.release();
+
+			synchronized (this) {
+				inFlight--;
+				notifyAll();
+			}
+		}
+	}
+
+	private String getDevice(File file) {
+		try {
+			return Files.getFileStore(file.toPath()).toString();
+		} catch (IOException e) {
+			debug.finest(e::toString);
+		}
+		return "";
+	}
+
+	private static class Write {
+
+		public final Object model;
+		public final String original;
+
+		public Write(Object model, String original) {
+			this.model = model;
+			this.original = original;
+		}
+	}
+
+}
@@ -0,0 +1,699 @@
+package net.filebot.mediainfo;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static java.util.stream.Collectors.*;
+import static net.filebot.Logging.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Read resolution, duration, codecs and track languages straight from the container headers of Matroska, MPEG-4 and AVI files. Only the header structures are read (via positional reads) so probing a file is cheap compared to a full MediaInfo analysis, but anything else still requires MediaInfo.
+ */
+public class ContainerProbe {
+
+	public static final SystemProperty<Boolean> ENABLED = SystemProperty.of("net.filebot.ContainerProbe", Boolean::parseBoolean, true);
+
+	/**
+	 * Maximum number of bytes that are read for a single header structure
+	 */
+	private static final int MAX_HEADER_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * @return container information or null if the file is not a supported container or the headers can't be read
+	 */
+	public static Info probe(File file) {
+		if (!ENABLED.get() || !file.isFile()) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer magic = read(channel, 0, 12);
+			if (magic.remaining() < 12) {
+				return null;
+			}
+
+			if (magic.getInt(0) == EBML_HEADER) {
+				return probeMatroska(channel);
+			}
+			if (magic.getInt(0) == fourcc("RIFF") && magic.getInt(8) == fourcc("AVI ")) {
+				return probeAVI(channel);
+			}
+			if (magic.getInt(4) == fourcc("ftyp") || magic.getInt(4) == fourcc("moov")) {
+				return probeMPEG4(channel);
+			}
+		} catch (Exception e) {
+			debug.finest(format("Failed to probe container headers: %s: %s", file, e));
+		}
+
+		return null;
+	}
+
+	private static final int EBML_HEADER = 0x1A45DFA3;
+	private static final int EBML_DOCTYPE = 0x4282;
+	private static final int SEGMENT = 0x18538067;
+	private static final int SEEK_HEAD = 0x114D9B74;
+	private static final int SEEK = 0x4DBB;
+	private static final int SEEK_ID = 0x53AB;
+	private static final int SEEK_POSITION = 0x53AC;
+	private static final int INFO = 0x1549A966;
+	private static final int TIMECODE_SCALE = 0x2AD7B1;
+	private static final int DURATION = 0x4489;
+	private static final int TRACKS = 0x1654AE6B;
+	private static final int TRACK_ENTRY = 0xAE;
+	private static final int TRACK_TYPE = 0x83;
+	private static final int CODEC_ID = 0x86;
+	private static final int LANGUAGE = 0x22B59C;
+	private static final int LANGUAGE_BCP47 = 0x22B59D;
+	private static final int VIDEO = 0xE0;
+	private static final int PIXEL_WIDTH = 0xB0;
+	private static final int PIXEL_HEIGHT = 0xBA;
+	private static final int CLUSTER = 0x1F43B675;
+
+	private static Info probeMatroska(FileChannel channel) throws IOException {
+		Element header = readElement(channel, 0);
+		String format = "Matroska";
+
+		ByteBuffer ebml = read(channel, header.data, header.size);
+		while (ebml.hasRemaining()) {
+			int id = readId(ebml);
+			ByteBuffer data = payload(ebml, readSize(ebml));
+			if (id == EBML_DOCTYPE && "webm".equals(readString(data))) {
+				format = "WebM";
+			}
+		}
+
+		Element segment = readElement(channel, header.end());
+		if (segment.id != SEGMENT) {
+			return null;
+		}
+
+		long end = segment.size < 0 ? channel.size() : Math.min(segment.end(), channel.size());
+		long info = -1, tracks = -1, seekInfo = -1, seekTracks = -1;
+
+		// top-level elements usually precede the first cluster, otherwise we need to follow the seek head
+		for (long position = segment.data; position < end && (info < 0 || tracks < 0);) {
+			Element e = readElement(channel, position);
+
+			if (e.id == INFO) {
+				info = position;
+			} else if (e.id == TRACKS) {
+				tracks = position;
+			} else if (e.id == SEEK_HEAD) {
+				ByteBuffer seekHead = read(channel, e.data, e.size);
+				while (seekHead.hasRemaining()) {
+					int id = readId(seekHead);
+					ByteBuffer seek = payload(seekHead, readSize(seekHead));
+					if (id == SEEK) {
+						int seekId = 0;
+						long seekPosition = -1;
+						while (seek.hasRemaining()) {
+							int child = readId(seek);
+							ByteBuffer data = payload(seek, readSize(seek));
+							if (child == SEEK_ID) {
+								seekId = (int) readUnsigned(data);
+							} else if (child == SEEK_POSITION) {
+								seekPosition = segment.data + readUnsigned(data);
+							}
+						}
+						if (seekId == INFO) {
+							seekInfo = seekPosition;
+						} else if (seekId == TRACKS) {
+							seekTracks = seekPosition;
+						}
+					}
+				}
+			} else if (e.id == CLUSTER) {
+				break;
+			}
+
+			if (e.size < 0) {
+				break;
+			}
+			position = e.end();
+		}
+
+		if (info < 0) {
+			info = seekInfo;
+		}
+		if (tracks < 0) {
+			tracks = seekTracks;
+		}
+		if (info < 0 && tracks < 0) {
+			return null;
+		}
+
+		long duration = -1;
+		if (info >= 0) {
+			duration = readMatroskaDuration(channel, readElement(channel, info));
+		}
+
+		List<Track> trackList = new ArrayList<Track>();
+		if (tracks >= 0) {
+			Element e = readElement(channel, tracks);
+			if (e.id == TRACKS) {
+				ByteBuffer buffer = read(channel, e.data, e.size);
+				while (buffer.hasRemaining()) {
+					int id = readId(buffer);
+					ByteBuffer data = payload(buffer, readSize(buffer));
+					if (id == TRACK_ENTRY) {
+						Track track = readMatroskaTrack(data);
+						if (track != null) {
+							trackList.add(track);
+						}
+					}
+				}
+			}
+		}
+
+		return new Info(format, duration, trackList);
+	}
+
+	private static long readMatroskaDuration(FileChannel channel, Element e) throws IOException {
+		if (e.id != INFO) {
+			return -1;
+		}
+
+		long scale = 1000000;
+		double duration = -1;
+
+		ByteBuffer buffer = read(channel, e.data, e.size);
+		while (buffer.hasRemaining()) {
+			int id = readId(buffer);
+			ByteBuffer data = payload(buffer, readSize(buffer));
+			if (id == TIMECODE_SCALE) {
+				scale = readUnsigned(data);
+			} else if (id == DURATION) {
+				duration = data.remaining() == 4 ? data.getFloat() : data.getDouble();
+			}
+		}
+
+		// duration is given in timecode scale units (nanoseconds)
+		return duration < 0 ? -1 : Math.round(duration * scale / 1e6);
+	}
+
+	private static Track readMatroskaTrack(ByteBuffer entry) {
+		StreamKind kind = null;
+		String codec = null, language = null, languageBCP47 = null;
+		int width = 0, height = 0;
+
+		while (entry.hasRemaining()) {
+			int id = readId(entry);
+			ByteBuffer data = payload(entry, readSize(entry));
+
+			switch (id) {
+			case TRACK_TYPE:
+				kind = getMatroskaTrackType((int) readUnsigned(data));
+				break;
+			case CODEC_ID:
+				codec = readString(data);
+				break;
+			case LANGUAGE:
+				language = readString(data);
+				break;
+			case LANGUAGE_BCP47:
+				languageBCP47 = readString(data);
+				break;
+			case VIDEO:
+				while (data.hasRemaining()) {
+					int child = readId(data);
+					ByteBuffer value = payload(data, readSize(data));
+					if (child == PIXEL_WIDTH) {
+						width = (int) readUnsigned(value);
+					} else if (child == PIXEL_HEIGHT) {
+						height = (int) readUnsigned(value);
+					}
+				}
+				break;
+			}
+		}
+
+		// use primary language subtag of BCP 47 tags (e.g. ja for ja-JP)
+		if (languageBCP47 != null) {
+			language = Locale.forLanguageTag(languageBCP47).getLanguage();
+		}
+
+		return kind == null ? null : new Track(kind, codec, language, width, height);
+	}
+
+	private static StreamKind getMatroskaTrackType(int type) {
+		switch (type) {
+		case 1:
+			return StreamKind.Video;
+		case 2:
+			return StreamKind.Audio;
+		case 0x11:
+			return StreamKind.Text;
+		default:
+			return null;
+		}
+	}
+
+	private static Info probeMPEG4(FileChannel channel) throws IOException {
+		Box moov = findBox(readBoxes(channel, 0, channel.size()), "moov");
+		if (moov == null) {
+			return null;
+		}
+
+		List<Box> boxes = readBoxes(channel, moov.data, moov.end);
+		long duration = -1;
+
+		Box mvhd = findBox(boxes, "mvhd");
+		if (mvhd != null) {
+			ByteBuffer data = read(channel, mvhd.data, 32);
+			int version = data.getInt() >>> 24;
+			data.position(version == 1 ? 20 : 12);
+			long timescale = data.getInt() & 0xFFFFFFFFL;
+			long units = version == 1 ? data.getLong() : data.getInt() & 0xFFFFFFFFL;
+			if (timescale > 0 && units >= 0 && units != 0xFFFFFFFFL) {
+				duration = units * 1000 / timescale;
+			}
+		}
+
+		List<Track> tracks = new ArrayList<Track>();
+		for (Box trak : boxes) {
+			if (trak.type == fourcc("trak")) {
+				Track track = readMPEG4Track(channel, trak);
+				if (track != null) {
+					tracks.add(track);
+				}
+			}
+		}
+
+		return new Info("MPEG-4", duration, tracks);
+	}
+
+	private static Track readMPEG4Track(FileChannel channel, Box trak) throws IOException {
+		Box mdia = findBox(readBoxes(channel, trak.data, trak.end), "mdia");
+		if (mdia == null) {
+			return null;
+		}
+
+		List<Box> boxes = readBoxes(channel, mdia.data, mdia.end);
+		Box hdlr = findBox(boxes, "hdlr");
+		if (hdlr == null) {
+			return null;
+		}
+
+		StreamKind kind = getMPEG4HandlerType(read(channel, hdlr.data, 12).getInt(8));
+		if (kind == null) {
+			return null;
+		}
+
+		String language = null;
+		Box mdhd = findBox(boxes, "mdhd");
+		if (mdhd != null) {
+			ByteBuffer data = read(channel, mdhd.data, 34);
+			int version = data.getInt(0) >>> 24;
+			int code = data.getShort(version == 1 ? 32 : 20) & 0x7FFF;
+
+			// packed ISO 639-2/T code, smaller values are Macintosh language codes
+			if (code >= 0x400) {
+				language = new String(new char[] { (char) ((code >> 10 & 0x1F) + 0x60), (char) ((code >> 5 & 0x1F) + 0x60), (char) ((code & 0x1F) + 0x60) });
+			}
+		}
+
+		String codec = null;
+		int width = 0, height = 0;
+
+		Box minf = findBox(boxes, "minf");
+		Box stbl = minf == null ? null : findBox(readBoxes(channel, minf.data, minf.end), "stbl");
+		Box stsd = stbl == null ? null : findBox(readBoxes(channel, stbl.data, stbl.end), "stsd");
+		if (stsd != null) {
+			ByteBuffer data = read(channel, stsd.data, 44);
+			if (data.remaining() >= 16 && data.getInt(4) > 0) {
+				codec = fourcc(data.getInt(12));
+				if (kind == StreamKind.Video && data.remaining() >= 44) {
+					width = data.getShort(40) & 0xFFFF;
+					height = data.getShort(42) & 0xFFFF;
+				}
+			}
+		}
+
+		return new Track(kind, codec, language, width, height);
+	}
+
+	private static StreamKind getMPEG4HandlerType(int type) {
+		if (type == fourcc("vide")) {
+			return StreamKind.Video;
+		}
+		if (type == fourcc("soun")) {
+			return StreamKind.Audio;
+		}
+		if (type == fourcc("sbtl") || type == fourcc("subt") || type == fourcc("text") || type == fourcc("clcp")) {
+			return StreamKind.Text;
+		}
+		return null;
+	}
+
+	private static Info probeAVI(FileChannel channel) throws IOException {
+		ByteBuffer list = read(channel, 12, 12).order(ByteOrder.LITTLE_ENDIAN);
+		if (list.remaining() < 12 || list.getInt(0) != riff("LIST") || list.getInt(8) != riff("hdrl")) {
+			return null;
+		}
+
+		ByteBuffer hdrl = read(channel, 24, (list.getInt(4) & 0xFFFFFFFFL) - 4).order(ByteOrder.LITTLE_ENDIAN);
+		long duration = -1;
+		List<Track> tracks = new ArrayList<Track>();
+
+		while (hdrl.remaining() >= 8) {
+			int id = hdrl.getInt();
+			ByteBuffer data = chunk(hdrl);
+
+			if (id == riff("avih") && data.remaining() >= 20) {
+				// microseconds per frame * total frames (of the first RIFF chunk)
+				duration = (data.getInt(0) & 0xFFFFFFFFL) * (data.getInt(16) & 0xFFFFFFFFL) / 1000;
+			} else if (id == riff("LIST") && data.remaining() >= 4 && data.getInt() == riff("strl")) {
+				Track track = null;
+				long length = -1;
+
+				while (data.remaining() >= 8) {
+					int child = data.getInt();
+					ByteBuffer value = chunk(data);
+
+					if (child == riff("strh") && value.remaining() >= 36) {
+						StreamKind kind = getAVIStreamType(value.getInt(0));
+						if (kind != null) {
+							track = new Track(kind, null, null, 0, 0);
+						}
+
+						// stream length in rate / scale units
+						long scale = value.getInt(20) & 0xFFFFFFFFL;
+						long rate = value.getInt(24) & 0xFFFFFFFFL;
+						if (kind == StreamKind.Video && rate > 0) {
+							length = (value.getInt(32) & 0xFFFFFFFFL) * scale * 1000 / rate;
+						}
+					} else if (child == riff("strf") && track != null) {
+						if (track.kind == StreamKind.Video && value.remaining() >= 20) {
+							track = new Track(track.kind, fourcc(Integer.reverseBytes(value.getInt(16))), null, value.getInt(4), Math.abs(value.getInt(8)));
+						} else if (track.kind == StreamKind.Audio && value.remaining() >= 2) {
+							track = new Track(track.kind, Integer.toHexString(value.getShort(0) & 0xFFFF).toUpperCase(), null, 0, 0);
+						}
+					}
+				}
+
+				if (track != null) {
+					tracks.add(track);
+				}
+				if (length >= 0) {
+					duration = length;
+				}
+			}
+		}
+
+		return new Info("AVI", duration, tracks);
+	}
+
+	private static StreamKind getAVIStreamType(int type) {
+		if (type == riff("vids")) {
+			return StreamKind.Video;
+		}
+		if (type == riff("auds")) {
+			return StreamKind.Audio;
+		}
+		if (type == riff("txts")) {
+			return StreamKind.Text;
+		}
+		return null;
+	}
+
+	private static ByteBuffer chunk(ByteBuffer buffer) {
+		long size = buffer.getInt() & 0xFFFFFFFFL;
+		ByteBuffer data = payload(buffer, size);
+
+		// chunks are word-aligned
+		if ((size & 1) != 0 && buffer.hasRemaining()) {
+			buffer.get();
+		}
+		return data.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, long size) throws IOException {
+		if (size < 0 || size > MAX_HEADER_SIZE) {
+			throw new IOException("Illegal header size: " + size);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				break;
+			}
+		}
+
+		buffer.flip();
+		return buffer;
+	}
+
+	private static ByteBuffer payload(ByteBuffer buffer, long size) {
+		// unknown or truncated size
+		int length = size < 0 || size > buffer.remaining() ? buffer.remaining() : (int) size;
+
+		ByteBuffer data = buffer.slice();
+		data.limit(length);
+		buffer.position(buffer.position() + length);
+		return data;
+	}
+
+	private static Element readElement(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = read(channel, position, 12);
+		int id = readId(buffer);
+		long size = readSize(buffer);
+		return new Element(id, position + buffer.position(), size);
+	}
+
+	private static int readId(ByteBuffer buffer) {
+		int first = buffer.get() & 0xFF;
+		int length = Integer.numberOfLeadingZeros(first) - 23;
+		if (length > 4) {
+			throw new IllegalStateException("Illegal element id");
+		}
+
+		// element ids include the length marker
+		int id = first;
+		for (int i = 1; i < length; i++) {
+			id = id << 8 | buffer.get() & 0xFF;
+		}
+		return id;
+	}
+
+	private static long readSize(ByteBuffer buffer) {
+		int first = buffer.get() & 0xFF;
+		int length = Integer.numberOfLeadingZeros(first) - 23;
+		if (length > 8) {
+			throw new IllegalStateException("Illegal element size");
+		}
+
+		long size = first & (0xFF >> length);
+		boolean unknown = size == 0xFF >> length;
+		for (int i = 1; i < length; i++) {
+			int b = buffer.get() & 0xFF;
+			size = size << 8 | b;
+			unknown &= b == 0xFF;
+		}
+		return unknown ? -1 : size;
+	}
+
+	private static long readUnsigned(ByteBuffer data) {
+		long value = 0;
+		while (data.hasRemaining()) {
+			value = value << 8 | data.get() & 0xFF;
+		}
+		return value;
+	}
+
+	private static String readString(ByteBuffer data) {
+		byte[] bytes = new byte[data.remaining()];
+		data.get(bytes);
+
+		// strings may be zero-padded
+		String s = new String(bytes, UTF_8);
+		int nul = s.indexOf('\0');
+		return nul < 0 ? s : s.substring(0, nul);
+	}
+
+	private static List<Box> readBoxes(FileChannel channel, long start, long end) throws IOException {
+		List<Box> boxes = new ArrayList<Box>();
+
+		for (long position = start; position + 8 <= end;) {
+			ByteBuffer header = read(channel, position, 16);
+			if (header.remaining() < 8) {
+				break;
+			}
+
+			long size = header.getInt() & 0xFFFFFFFFL;
+			int type = header.getInt();
+			long data = position + 8;
+
+			if (size == 1 && header.remaining() >= 8) {
+				size = header.getLong();
+				data += 8;
+			} else if (size == 0) {
+				size = end - position;
+			}
+
+			if (size < data - position) {
+				break;
+			}
+
+			boxes.add(new Box(type, data, Math.min(position + size, end)));
+			position += size;
+		}
+
+		return boxes;
+	}
+
+	private static Box findBox(List<Box> boxes, String type) {
+		return boxes.stream().filter(b -> b.type == fourcc(type)).findFirst().orElse(null);
+	}
+
+	private static int fourcc(String s) {
+		return s.charAt(0) << 24 | s.charAt(1) << 16 | s.charAt(2) << 8 | s.charAt(3);
+	}
+
+	private static int riff(String s) {
+		// little-endian byte order
+		return Integer.reverseBytes(fourcc(s));
+	}
+
+	private static String fourcc(int i) {
+		return new String(new byte[] { (byte) (i >> 24), (byte) (i >> 16), (byte) (i >> 8), (byte) i }, ISO_8859_1).trim();
+	}
+
+	private static class Element {
+
+		public final int id;
+		public final long data;
+		public final long size;
+
+		public Element(int id, long data, long size) {
+			this.id = id;
+			this.data = data;
+			this.size = size;
+		}
+
+		public long end() {
+			return data + size;
+		}
+	}
+
+	private static class Box {
+
+		public final int type;
+		public final long data;
+		public final long end;
+
+		public Box(int type, long data, long end) {
+			this.type = type;
+			this.data = data;
+			this.end = end;
+		}
+	}
+
+	public static class Info {
+
+		private final String format;
+		private final long duration;
+		private final List<Track> tracks;
+
+		public Info(String format, long duration, List<Track> tracks) {
+			this.format = format;
+			this.duration = duration;
+			this.tracks = unmodifiableList(tracks);
+		}
+
+		public String getFormat() {
+			return format;
+		}
+
+		/**
+		 * @return duration in milliseconds or -1 if unknown
+		 */
+		public long getDuration() {
+			return duration;
+		}
+
+		public List<Track> getTracks() {
+			return tracks;
+		}
+
+		public List<Track> getTracks(StreamKind kind) {
+			return tracks.stream().filter(t -> t.kind == kind).collect(toList());
+		}
+
+		/**
+		 * @return width and height of the first video track or null if unknown
+		 */
+		public List<Integer> getDimension() {
+			return tracks.stream().filter(t -> t.kind == StreamKind.Video && t.width > 0 && t.height > 0).map(t -> asList(t.width, t.height)).findFirst().orElse(null);
+		}
+
+		public List<String> getCodecs(StreamKind kind) {
+			return tracks.stream().filter(t -> t.kind == kind).map(Track::getCodec).filter(Objects::nonNull).distinct().collect(toList());
+		}
+
+		public List<String> getLanguages(StreamKind kind) {
+			return tracks.stream().filter(t -> t.kind == kind).map(Track::getLanguage).filter(Objects::nonNull).distinct().collect(toList());
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s [%d ms] %s", format, duration, tracks);
+		}
+	}
+
+	public static class Track {
+
+		private final StreamKind kind;
+		private final String codec;
+		private final String language;
+		private final int width;
+		private final int height;
+
+		public Track(StreamKind kind, String codec, String language, int width, int height) {
+			this.kind = kind;
+			this.codec = codec == null || codec.isEmpty() ? null : codec;
+			this.language = language == null || language.isEmpty() || language.equals("und") ? null : language;
+			this.width = width;
+			this.height = height;
+		}
+
+		public StreamKind getKind() {
+			return kind;
+		}
+
+		public String getCodec() {
+			return codec;
+		}
+
+		public String getLanguage() {
+			return language;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s [%s, %s, %dx%d]", kind, codec, language, width, height);
+		}
+	}
+
+}
@@ -24,6 +24,12 @@ public class MediaDurationFilter implements FileFilter {
 	}
 
 	public long getDuration(File f) {
+		// read duration from container headers if possible
+		ContainerProbe.Info info = ContainerProbe.probe(f);
+		if (info != null && info.getDuration() >= 0) {
+			return info.getDuration();
+		}
+
 		try (MediaInfo mi = new MediaInfo().open(f)) {
 			String duration = mi.get(StreamKind.General, 0, "Duration");
 			if (duration.length() > 0) {
@@ -1,6 +1,8 @@
 package net.filebot.mediainfo;
 
 import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
 import static java.util.stream.Collectors.*;
 import static net.filebot.Logging.*;
 import static net.filebot.util.RegularExpressions.*;
@@ -13,15 +15,17 @@ import java.lang.ref.Cleaner;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import com.sun.jna.Platform;
 import com.sun.jna.Pointer;
 import com.sun.jna.WString;
 
-public class MediaInfo implements Closeable {
+public class MediaInfo implements Closeable, MediaInfoSource {
 
 	private Pointer handle;
 	private Cleaner.Cleanable cleanable;
@@ -136,6 +140,44 @@ public class MediaInfo implements Closeable {
 		return MediaInfoLibrary.INSTANCE.Count_Get(handle, streamKind.ordinal(), streamNumber);
 	}
 
+	private static final String FIELD_SEPARATOR = "\u001F";
+	private static final String RECORD_SEPARATOR = "\u001E";
+
+	/**
+	 * Get the given parameters of all streams of the given kind via a single custom inform template instead of one native call per stream and parameter
+	 */
+	public synchronized List<Map<String, String>> get(StreamKind streamKind, String... parameters) {
+		int streamCount = streamCount(streamKind);
+		List<Map<String, String>> values = new ArrayList<Map<String, String>>(streamCount);
+
+		if (streamCount > 0) {
+			String[] records = null;
+			try {
+				option("Inform", stream(parameters).map(p -> '%' + p + '%').collect(joining(FIELD_SEPARATOR, streamKind + ";", RECORD_SEPARATOR)));
+				records = inform().split(RECORD_SEPARATOR, -1);
+			} finally {
+				option("Inform", "");
+			}
+
+			for (int i = 0; i < streamCount; i++) {
+				String[] fields = i < records.length ? records[i].replaceFirst("^\\R+", "").split(FIELD_SEPARATOR, -1) : new String[0];
+				Map<String, String> streamInfo = new LinkedHashMap<String, String>(parameters.length);
+
+				for (int j = 0; j < parameters.length; j++) {
+					// fall back to separate calls if the inform template is not supported
+					String value = fields.length == parameters.length ? fields[j] : get(streamKind, i, parameters[j]);
+					if (value.length() > 0) {
+						streamInfo.put(parameters[j], value);
+					}
+				}
+
+				values.add(streamInfo);
+			}
+		}
+
+		return values;
+	}
+
 	public Map<StreamKind, List<Map<String, String>>> snapshot() {
 		Map<StreamKind, List<Map<String, String>>> mediaInfo = new EnumMap<StreamKind, List<Map<String, String>>>(StreamKind.class);
 
@@ -169,20 +211,31 @@ public class MediaInfo implements Closeable {
 
 		// MediaInfo does not support EXIF image metadata natively so we use the metadata-extractor library and implicitly merge that information in
 		if (streamKind == StreamKind.Image && streamNumber == 0) {
-			String path = get(StreamKind.General, 0, "CompleteName");
-			try {
-				Map<String, String> values = new ImageMetadata(new File(path)).snapshot(t -> {
-					return Stream.of(t.getDirectoryName(), t.getTagName()).flatMap(NON_WORD::splitAsStream).distinct().collect(joining("_"));
-				});
-				streamInfo.putAll(values);
-			} catch (Throwable e) {
-				debug.warning(format("%s: %s", e, path));
-			}
+			streamInfo.putAll(getImageMetadata());
 		}
 
 		return streamInfo;
 	}
 
+	Map<String, String> getImageMetadata() {
+		String path = get(StreamKind.General, 0, "CompleteName");
+		try {
+			return new ImageMetadata(new File(path)).snapshot(t -> {
+				return Stream.of(t.getDirectoryName(), t.getTagName()).flatMap(NON_WORD::splitAsStream).distinct().collect(joining("_"));
+			});
+		} catch (Throwable e) {
+			debug.warning(format("%s: %s", e, path));
+		}
+		return emptyMap();
+	}
+
+	/**
+	 * Close the current file and free all values but keep the native handle for reuse
+	 */
+	public synchronized void reset() {
+		MediaInfoLibrary.INSTANCE.Close(handle);
+	}
+
 	@Override
 	public synchronized void close() {
 		cleanable.clean();
@@ -244,6 +297,31 @@ public class MediaInfo implements Closeable {
 		return staticOption("Info_Parameters");
 	}
 
+	/**
+	 * @return names of all parameters that MediaInfo may report for the given stream kind
+	 */
+	public static Set<String> parameters(StreamKind streamKind) {
+		synchronized (parameterNames) {
+			if (parameterNames.isEmpty()) {
+				StreamKind section = null;
+
+				for (String line : NEWLINE.split(parameters())) {
+					int colon = line.indexOf(':');
+					if (colon < 0 && line.trim().length() > 0) {
+						// stream kind Other has formerly been known as Chapters
+						String name = line.trim();
+						section = name.equals("Other") ? StreamKind.Chapters : stream(StreamKind.values()).filter(k -> k.name().equals(name)).findFirst().orElse(null);
+					} else if (colon > 0 && section != null) {
+						parameterNames.computeIfAbsent(section, k -> new LinkedHashSet<String>()).add(line.substring(0, colon).trim());
+					}
+				}
+			}
+			return parameterNames.getOrDefault(streamKind, emptySet());
+		}
+	}
+
+	private static final Map<StreamKind, Set<String>> parameterNames = new EnumMap<StreamKind, Set<String>>(StreamKind.class);
+
 	public static String codecs() {
 		return staticOption("Info_Codecs");
 	}
@@ -0,0 +1,133 @@
+package net.filebot.mediainfo;
+
+import static java.nio.charset.StandardCharsets.*;
+import static net.filebot.Logging.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import net.filebot.Cache;
+import net.filebot.CacheType;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Persistent cache of MediaInfo snapshots, so that each version of a media file is only analyzed once. Cache entries are keyed by path and are only valid as long as size, last-modified time and file key (e.g. inode) of the file haven't changed.
+ */
+public class MediaInfoCache {
+
+	public static final SystemProperty<Boolean> ENABLED = SystemProperty.of("net.filebot.MediaInfoCache", Boolean::parseBoolean, true);
+
+	private static final Cache cache = Cache.getCache("mediainfo", CacheType.Persistent);
+
+	public static MediaInfoSnapshot snapshot(File file) throws IOException {
+		if (!ENABLED.get()) {
+			return analyze(file);
+		}
+
+		String path = file.getCanonicalPath();
+		byte[] identity = getIdentity(file);
+
+		MediaInfoSnapshot snapshot = restore(cache, path, identity);
+		if (snapshot == null || !snapshot.isComplete()) {
+			snapshot = analyze(file);
+			store(cache, path, identity, snapshot);
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * @return cached snapshot, or lazy snapshot that only fetches the values that are actually used and stores them on flush (merged with previously stored values)
+	 */
+	public static MediaInfoSnapshot lookup(File file) throws IOException {
+		return lookup(file, () -> open(file), cache);
+	}
+
+	static MediaInfoSnapshot lookup(File file, Callable<? extends MediaInfoSource> source, Cache cache) throws IOException {
+		if (!ENABLED.get()) {
+			return new MediaInfoSnapshot(source, null);
+		}
+
+		String path = file.getCanonicalPath();
+		byte[] identity = getIdentity(file);
+
+		MediaInfoSnapshot record = restore(cache, path, identity);
+		if (record != null && record.isComplete()) {
+			return record;
+		}
+
+		MediaInfoSnapshot snapshot = new MediaInfoSnapshot(source, s -> store(cache, path, identity, s));
+		if (record != null) {
+			snapshot.merge(record);
+		}
+
+		return snapshot;
+	}
+
+	private static MediaInfoSnapshot restore(Cache cache, String path, byte[] identity) {
+		// restore snapshot if the file hasn't changed since
+		Object record = cache.get(path);
+		if (record instanceof byte[]) {
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream((byte[]) record))) {
+				byte[] key = new byte[in.readUnsignedShort()];
+				in.readFully(key);
+
+				if (Arrays.equals(key, identity)) {
+					byte[] data = new byte[in.available()];
+					in.readFully(data);
+					return MediaInfoSnapshot.decode(data);
+				}
+			} catch (Exception e) {
+				debug.warning(cause("Failed to restore media info", e));
+			}
+		}
+		return null;
+	}
+
+	private static void store(Cache cache, String path, byte[] identity, MediaInfoSnapshot snapshot) {
+		// merge partial snapshot with values that have been stored in the meantime
+		if (!snapshot.isComplete()) {
+			MediaInfoSnapshot record = restore(cache, path, identity);
+			if (record != null) {
+				if (record.isComplete()) {
+					return;
+				}
+				snapshot.merge(record);
+			}
+		}
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeShort(identity.length);
+				out.write(identity);
+				out.write(snapshot.encode());
+			}
+			cache.put(path, bytes.toByteArray());
+		} catch (Exception e) {
+			debug.warning(cause("Failed to store media info", e));
+		}
+	}
+
+	private static MediaInfoSnapshot analyze(File file) throws IOException {
+		return MediaInfoService.getInstance().snapshot(file);
+	}
+
+	private static MediaInfo open(File file) throws IOException {
+		return MediaInfoService.getInstance().open(file);
+	}
+
+	private static byte[] getIdentity(File file) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		return String.join(":", String.valueOf(attributes.size()), String.valueOf(attributes.lastModifiedTime().toMillis()), String.valueOf(attributes.fileKey())).getBytes(UTF_8);
+	}
+
+}
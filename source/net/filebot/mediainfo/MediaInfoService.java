@@ -0,0 +1,184 @@
+package net.filebot.mediainfo;
+
+import static java.util.stream.Collectors.*;
+import static net.filebot.Logging.*;
+import static net.filebot.Settings.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import net.filebot.util.DefaultThreadFactory;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Analyze media files with a pool of reusable MediaInfo handles. The number of concurrent analyses is limited per device, so that parallel batch analysis doesn't thrash spinning disks.
+ */
+public class MediaInfoService {
+
+	public static final SystemProperty<Integer> THREADS = SystemProperty.of("net.filebot.MediaInfoService.threads", Integer::parseInt, getPreferredThreadPoolSize());
+	public static final SystemProperty<Integer> THREADS_PER_DEVICE = SystemProperty.of("net.filebot.MediaInfoService.threadsPerDevice", Integer::parseInt, 2);
+
+	private static MediaInfoService instance;
+
+	public static synchronized MediaInfoService getInstance() {
+		if (instance == null) {
+			instance = new MediaInfoService(THREADS.get(), THREADS_PER_DEVICE.get());
+		}
+		return instance;
+	}
+
+	private final int threads;
+	private final int threadsPerDevice;
+
+	private final ExecutorService workers;
+
+	private final Deque<PooledMediaInfo> handles = new ArrayDeque<PooledMediaInfo>();
+	private final Map<String, Semaphore> devices = new ConcurrentHashMap<String, Semaphore>();
+
+	public MediaInfoService(int threads, int threadsPerDevice) {
+		this.threads = threads;
+		this.threadsPerDevice = threadsPerDevice;
+		this.workers = Executors.newFixedThreadPool(threads, new DefaultThreadFactory("MediaInfoService", Thread.NORM_PRIORITY, true));
+	}
+
+	/**
+	 * Analyze the given files in parallel (or restore snapshots from the cache)
+	 *
+	 * @return snapshots in the same order as the given files, or null for files that cannot be analyzed
+	 */
+	public Stream<MediaInfoSnapshot> analyze(Collection<File> files) {
+		return map(files, f -> {
+			try {
+				return MediaInfoCache.snapshot(f);
+			} catch (IllegalArgumentException e) {
+				debug.finest(e::toString);
+			} catch (Exception e) {
+				debug.warning(format("Failed to read media info: %s: %s", f, e));
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Apply the given function to the given files in parallel (e.g. evaluate a format with lazy media info bindings, so that only the values that are actually used are fetched)
+	 *
+	 * @return results in the same order as the given files
+	 */
+	public <T> Stream<T> map(Collection<File> files, Function<File, T> function) {
+		List<Future<T>> results = files.stream().map(f -> workers.submit(() -> function.apply(f))).collect(toList());
+		return results.stream().map(this::get).onClose(() -> results.forEach(r -> r.cancel(false)));
+	}
+
+	/**
+	 * Analyze the given file with a pooled MediaInfo handle
+	 */
+	public MediaInfoSnapshot snapshot(File file) throws IOException {
+		try (MediaInfo mi = open(file)) {
+			return MediaInfoSnapshot.of(mi);
+		}
+	}
+
+	/**
+	 * Open the given file with a pooled MediaInfo handle that is owned by the caller, and returned to the pool when closed. The device permit is held until then.
+	 */
+	public MediaInfo open(File file) throws IOException {
+		Semaphore device = getDevice(file);
+		device.acquireUninterruptibly();
+
+		PooledMediaInfo mi = acquire(device);
+		try {
+			return mi.open(file);
+		} catch (IOException | RuntimeException e) {
+			mi.close();
+			throw e;
+		}
+	}
+
+	private PooledMediaInfo acquire(Semaphore device) {
+		PooledMediaInfo mi;
+		synchronized (handles) {
+			mi = handles.poll();
+		}
+		if (mi == null) {
+			mi = new PooledMediaInfo();
+		}
+		mi.device = device;
+		return mi;
+	}
+
+	private void release(PooledMediaInfo mi) {
+		// free parsed values but keep the native handle
+		mi.reset();
+
+		synchronized (handles) {
+			if (handles.size() < threads) {
+				handles.push(mi);
+				return;
+			}
+		}
+		mi.dispose();
+	}
+
+	private class PooledMediaInfo extends MediaInfo {
+
+		private Semaphore device;
+
+		@Override
+		public synchronized void close() {
+			// ignore repeated close calls, so the handle is not returned to the pool twice
+			if (device == null) {
+				return;
+			}
+
+			Semaphore permit = device;
+			device = null;
+
+			release(this);
+			permit.release();
+		}
+
+		public void dispose() {
+			super.close();
+		}
+	}
+
+	private <T> T get(Future<T> result) {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			throw new CancellationException();
+		} catch (ExecutionException e) {
+			debug.warning(cause(e));
+		}
+		return null;
+	}
+
+	private Semaphore getDevice(File file) {
+		return devices.computeIfAbsent(getDeviceName(file), k -> new Semaphore(threadsPerDevice));
+	}
+
+	private String getDeviceName(File file) {
+		try {
+			return Files.getFileStore(file.toPath()).toString();
+		} catch (IOException e) {
+			debug.finest(e::toString);
+		}
+		return "";
+	}
+
+}
@@ -0,0 +1,427 @@
+package net.filebot.mediainfo;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+
+/**
+ * Values of all streams of a media file that can be stored and restored without any native MediaInfo calls. Lazy snapshots only open a MediaInfo handle and fetch values on demand, all values are fetched only if they are actually enumerated, and the values that have been fetched so far can be stored and restored as partial snapshots.
+ */
+public class MediaInfoSnapshot {
+
+	/**
+	 * Parameters that are used by format bindings but may not be included in the default parameter enumeration (e.g. legacy parameters)
+	 */
+	public static final String[] NAMED_PARAMETERS = { "Encoded_Library_Name", "Encoded_Library/Name", "CodecID/Hint", "Codec/Extensions", "Codec_Profile", "Channel(s)_Original", "ChannelPositions/String2", "SamplingRate/String", "Movie" };
+
+	static MediaInfoSnapshot of(MediaInfoSource mediaInfo) {
+		Map<StreamKind, List<Map<String, String>>> streams = mediaInfo.snapshot();
+
+		streams.forEach((kind, list) -> {
+			for (int i = 0; i < list.size(); i++) {
+				for (String key : NAMED_PARAMETERS) {
+					if (!list.get(i).containsKey(key)) {
+						String value = mediaInfo.get(kind, i, key);
+						if (value.length() > 0) {
+							list.get(i).put(key, value);
+						}
+					}
+				}
+			}
+		});
+
+		return new MediaInfoSnapshot(streams);
+	}
+
+	private Map<StreamKind, List<Map<String, String>>> streams;
+
+	private Callable<? extends MediaInfoSource> open;
+	private MediaInfoSource source;
+	private Consumer<MediaInfoSnapshot> store;
+	private boolean modified;
+
+	private final Map<StreamKind, Integer> streamCount = new EnumMap<StreamKind, Integer>(StreamKind.class);
+	private final Map<String, Map<String, String>> values = new HashMap<String, Map<String, String>>();
+	private final Map<String, Map<String, String>> streamSnapshots = new HashMap<String, Map<String, String>>();
+
+	public MediaInfoSnapshot(Map<StreamKind, List<Map<String, String>>> streams) {
+		this.streams = streams;
+	}
+
+	/**
+	 * Lazy snapshot that opens a MediaInfo handle on demand and takes ownership of it
+	 *
+	 * @param store
+	 *            callback that receives this snapshot when new values have been fetched (on flush or once all values have been fetched)
+	 */
+	MediaInfoSnapshot(Callable<? extends MediaInfoSource> source, Consumer<MediaInfoSnapshot> store) {
+		this.open = source;
+		this.store = store;
+	}
+
+	/**
+	 * @return true if all values have been fetched, false if this is a lazy or partial snapshot
+	 */
+	public synchronized boolean isComplete() {
+		return streams != null;
+	}
+
+	public synchronized int streamCount(StreamKind streamKind) {
+		if (streams == null) {
+			return streamCount.computeIfAbsent(streamKind, k -> {
+				modified = true;
+				return getSource().streamCount(k);
+			});
+		}
+
+		List<Map<String, String>> list = streams.get(streamKind);
+		return list == null ? 0 : list.size();
+	}
+
+	public synchronized String get(StreamKind streamKind, int streamNumber, String parameter) {
+		if (streamNumber >= streamCount(streamKind)) {
+			return "";
+		}
+
+		if (streams == null) {
+			return getValues(streamKind, streamNumber).computeIfAbsent(parameter, p -> fetch(streamKind, streamNumber, p));
+		}
+
+		return streams.get(streamKind).get(streamNumber).getOrDefault(parameter, "");
+	}
+
+	/**
+	 * Fetch the given parameters of all streams of the given kind at once
+	 */
+	public synchronized void prefetch(StreamKind streamKind, String... parameters) {
+		// image streams may require additional EXIF lookups
+		if (streams != null || streamKind == StreamKind.Image || streamCount(streamKind) == 0) {
+			return;
+		}
+
+		String[] missing = stream(parameters).filter(p -> !getValues(streamKind, 0).containsKey(p)).distinct().toArray(String[]::new);
+		if (missing.length == 0) {
+			return;
+		}
+
+		List<Map<String, String>> list = getSource().get(streamKind, missing);
+		modified = true;
+
+		for (int i = 0; i < list.size(); i++) {
+			for (String p : missing) {
+				getValues(streamKind, i).put(p, list.get(i).getOrDefault(p, ""));
+			}
+		}
+	}
+
+	public synchronized Map<StreamKind, List<Map<String, String>>> snapshot() {
+		if (streams == null) {
+			complete(of(getSource()).streams);
+			modified = true;
+			flush();
+		}
+
+		return unmodifiableMap(streams);
+	}
+
+	/**
+	 * Pass all values that have been fetched since the last flush to the store callback, and release the native handle until more values are needed
+	 */
+	public synchronized void flush() {
+		if (modified && store != null) {
+			modified = false;
+			store.accept(this);
+		}
+		release();
+	}
+
+	/**
+	 * Add values of the given snapshot (e.g. previously stored partial snapshot) that haven't been fetched yet
+	 */
+	public synchronized void merge(MediaInfoSnapshot other) {
+		if (streams != null) {
+			return;
+		}
+
+		if (other.streams != null) {
+			complete(other.streams);
+			return;
+		}
+
+		other.streamCount.forEach(streamCount::putIfAbsent);
+		other.values.forEach((k, v) -> v.forEach(values.computeIfAbsent(k, x -> new HashMap<String, String>())::putIfAbsent));
+	}
+
+	private void complete(Map<StreamKind, List<Map<String, String>>> streams) {
+		this.streams = streams;
+
+		// all values have been fetched so we don't need the native handle anymore
+		release();
+
+		streamCount.clear();
+		values.clear();
+		streamSnapshots.clear();
+	}
+
+	public synchronized Map<String, String> snapshot(StreamKind streamKind, int streamNumber) {
+		if (streamNumber >= streamCount(streamKind)) {
+			return emptyMap();
+		}
+
+		if (streams == null) {
+			return new StreamView(streamKind, streamNumber);
+		}
+
+		return unmodifiableMap(streams.get(streamKind).get(streamNumber));
+	}
+
+	private Map<String, String> getValues(StreamKind streamKind, int streamNumber) {
+		return values.computeIfAbsent(streamKind + "/" + streamNumber, k -> new HashMap<String, String>());
+	}
+
+	private void release() {
+		if (source != null) {
+			source.close();
+			source = null;
+		}
+	}
+
+	private MediaInfoSource getSource() {
+		if (source == null) {
+			if (open == null) {
+				throw new IllegalStateException("Partial snapshot");
+			}
+
+			try {
+				source = open.call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new MediaInfoException(e.getMessage());
+			}
+		}
+		return source;
+	}
+
+	private String fetch(StreamKind streamKind, int streamNumber, String parameter) {
+		String value = getSource().get(streamKind, streamNumber, parameter);
+		modified = true;
+
+		// MediaInfo does not support EXIF image metadata natively
+		if (value.isEmpty() && streamKind == StreamKind.Image && streamNumber == 0) {
+			value = getStreamSnapshot(streamKind, streamNumber).getOrDefault(parameter, "");
+		}
+
+		return value;
+	}
+
+	private Map<String, String> getStreamSnapshot(StreamKind streamKind, int streamNumber) {
+		return streamSnapshots.computeIfAbsent(streamKind + "/" + streamNumber, k -> {
+			Map<String, String> stream = getSource().snapshot(streamKind, streamNumber);
+			for (String key : NAMED_PARAMETERS) {
+				if (!stream.containsKey(key)) {
+					String value = getSource().get(streamKind, streamNumber, key);
+					if (value.length() > 0) {
+						stream.put(key, value);
+					}
+				}
+			}
+			return unmodifiableMap(stream);
+		});
+	}
+
+	private synchronized Set<String> getParameterNames(StreamKind streamKind, int streamNumber) {
+		if (streams != null) {
+			return streams.get(streamKind).get(streamNumber).keySet();
+		}
+
+		Set<String> names = new LinkedHashSet<String>(MediaInfo.parameters(streamKind));
+		names.addAll(asList(NAMED_PARAMETERS));
+
+		// EXIF keys are only known after reading the image metadata
+		if (streamKind == StreamKind.Image && streamNumber == 0) {
+			names.addAll(getStreamSnapshot(streamKind, streamNumber).keySet());
+		}
+
+		return names;
+	}
+
+	private synchronized Map<String, String> getStream(StreamKind streamKind, int streamNumber) {
+		if (streams != null) {
+			return streams.get(streamKind).get(streamNumber);
+		}
+		return getStreamSnapshot(streamKind, streamNumber);
+	}
+
+	/**
+	 * Map view that fetches values on demand, and only fetches all values if the entries are enumerated
+	 */
+	private class StreamView extends AbstractMap<String, String> {
+
+		private final StreamKind streamKind;
+		private final int streamNumber;
+
+		public StreamView(StreamKind streamKind, int streamNumber) {
+			this.streamKind = streamKind;
+			this.streamNumber = streamNumber;
+		}
+
+		@Override
+		public String get(Object key) {
+			String value = MediaInfoSnapshot.this.get(streamKind, streamNumber, key.toString());
+			return value.isEmpty() ? null : value;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return getParameterNames(streamKind, streamNumber);
+		}
+
+		@Override
+		public Set<Entry<String, String>> entrySet() {
+			return getStream(streamKind, streamNumber).entrySet();
+		}
+	}
+
+	private static final int VERSION = 2;
+
+	/**
+	 * Compressed binary encoding of all values, or all values that have been fetched so far
+	 */
+	public synchronized byte[] encode() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+
+		try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+			out.writeByte(VERSION);
+			out.writeBoolean(streams != null);
+
+			for (StreamKind kind : StreamKind.values()) {
+				Integer count = streams != null ? Integer.valueOf(streams.getOrDefault(kind, emptyList()).size()) : streamCount.get(kind);
+
+				// stream count of partial snapshots is unknown if it hasn't been fetched
+				writeInt(out, count == null ? 0 : count + 1);
+
+				for (int i = 0; count != null && i < count; i++) {
+					Map<String, String> stream = streams != null ? streams.get(kind).get(i) : values.getOrDefault(kind + "/" + i, emptyMap());
+					writeInt(out, stream.size());
+					for (Map.Entry<String, String> it : stream.entrySet()) {
+						writeString(out, it.getKey());
+						writeString(out, it.getValue());
+					}
+				}
+			}
+		}
+
+		return bytes.toByteArray();
+	}
+
+	public static MediaInfoSnapshot decode(byte[] bytes) throws IOException {
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+			int version = in.readByte();
+			if (version != VERSION) {
+				throw new IOException("Unsupported version: " + version);
+			}
+
+			boolean complete = in.readBoolean();
+			Map<StreamKind, List<Map<String, String>>> streams = new EnumMap<StreamKind, List<Map<String, String>>>(StreamKind.class);
+			MediaInfoSnapshot snapshot = complete ? new MediaInfoSnapshot(streams) : new MediaInfoSnapshot(null, null);
+
+			for (StreamKind kind : StreamKind.values()) {
+				int streamCount = readInt(in) - 1;
+				if (streamCount < 0) {
+					continue;
+				}
+
+				List<Map<String, String>> list = new ArrayList<Map<String, String>>(streamCount);
+
+				for (int i = 0; i < streamCount; i++) {
+					int size = readInt(in);
+					Map<String, String> stream = new LinkedHashMap<String, String>(size * 2);
+					for (int j = 0; j < size; j++) {
+						stream.put(readString(in), readString(in));
+					}
+					list.add(stream);
+				}
+
+				if (complete) {
+					if (streamCount > 0) {
+						streams.put(kind, list);
+					}
+				} else {
+					snapshot.streamCount.put(kind, streamCount);
+					for (int i = 0; i < streamCount; i++) {
+						snapshot.getValues(kind, i).putAll(list.get(i));
+					}
+				}
+			}
+
+			return snapshot;
+		}
+	}
+
+	private static void writeInt(DataOutputStream out, int value) throws IOException {
+		// variable-length encoding, 7 bits per byte
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Illegal variable-length integer");
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(UTF_8);
+		writeInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[readInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	@Override
+	public synchronized String toString() {
+		// print values that have been fetched so far, but don't fetch any values just for printing
+		return streams != null ? streams.toString() : values.toString();
+	}
+
+}
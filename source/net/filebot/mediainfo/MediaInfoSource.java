@@ -0,0 +1,27 @@
+package net.filebot.mediainfo;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+
+/**
+ * Values of an opened media file that lazy snapshots fetch on demand
+ */
+interface MediaInfoSource extends Closeable {
+
+	int streamCount(StreamKind streamKind);
+
+	String get(StreamKind streamKind, int streamNumber, String parameter);
+
+	List<Map<String, String>> get(StreamKind streamKind, String... parameters);
+
+	Map<StreamKind, List<Map<String, String>>> snapshot();
+
+	Map<String, String> snapshot(StreamKind streamKind, int streamNumber);
+
+	@Override
+	void close();
+
+}
@@ -0,0 +1,26 @@
+package net.filebot.platform.posix;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Library;
+import com.sun.jna.NativeLong;
+
+interface LibC extends Library {
+
+	int O_RDONLY = 0;
+	int O_WRONLY = 1;
+	int O_CREAT = 0100;
+	int O_EXCL = 0200;
+
+	// _IOW(0x94, 9, int)
+	NativeLong FICLONE = new NativeLong(0x40049409L);
+
+	int open(String path, int flags, int mode) throws LastErrorException;
+
+	int close(int fd) throws LastErrorException;
+
+	int ioctl(int fd, NativeLong request, int arg) throws LastErrorException;
+
+	// Mac OS X 10.12 or higher
+	int clonefile(String src, String dst, int flags) throws LastErrorException;
+
+}
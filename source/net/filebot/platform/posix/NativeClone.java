@@ -0,0 +1,99 @@
+package net.filebot.platform.posix;
+
+import static net.filebot.Logging.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.logging.Level;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+
+/**
+ * Copy-on-write clones via reflink (Linux) or clonefile (Mac OS X) without spawning a cp process for each file.
+ */
+public class NativeClone {
+
+	private static LibC lib_c;
+
+	private static synchronized LibC getLibC() {
+		if (lib_c == null) {
+			lib_c = (LibC) Native.loadLibrary("c", LibC.class);
+		}
+		return lib_c;
+	}
+
+	public static boolean isSupported() {
+		try {
+			return (Platform.isLinux() || Platform.isMac()) && getLibC() != null;
+		} catch (Throwable e) {
+			debug.log(Level.WARNING, e, e::toString);
+			return false;
+		}
+	}
+
+	/**
+	 * Clone the given file and fail if the source and destination are not on the same copy-on-write capable filesystem (e.g. btrfs, xfs or apfs)
+	 */
+	public static File clone(File source, File destination) throws IOException {
+		// never clone a file onto itself (e.g. case-only rename on a case-insensitive filesystem or hardlinks to the same inode)
+		if (destination.exists() && Files.isSameFile(source.toPath(), destination.toPath())) {
+			throw new IOException(String.format("Failed to clone [%s] to [%s]: same file", source, destination));
+		}
+
+		// clone into a temporary file and replace the destination file only if cloning succeeded
+		File part = new File(destination.getParentFile(), "." + destination.getName() + "." + Long.toHexString(System.nanoTime()) + ".part");
+
+		try {
+			if (Platform.isMac()) {
+				getLibC().clonefile(source.getPath(), part.getPath(), 0);
+			} else {
+				reflink(source, part);
+				copyAttributes(source, part);
+			}
+
+			Files.move(part.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (LastErrorException e) {
+			throw new IOException(String.format("Failed to clone [%s] to [%s]: errno %d", source, destination, e.getErrorCode()), e);
+		} finally {
+			Files.deleteIfExists(part.toPath());
+		}
+
+		return destination;
+	}
+
+	private static void reflink(File source, File destination) throws IOException {
+		LibC c = getLibC();
+
+		int src = c.open(source.getPath(), LibC.O_RDONLY, 0);
+		try {
+			// destination must be a new file that is only accessible by the owner until the source permissions have been copied
+			int dst = c.open(destination.getPath(), LibC.O_WRONLY | LibC.O_CREAT | LibC.O_EXCL, 0600);
+			try {
+				c.ioctl(dst, LibC.FICLONE, src);
+			} finally {
+				c.close(dst);
+			}
+		} finally {
+			c.close(src);
+		}
+	}
+
+	private static void copyAttributes(File source, File destination) throws IOException {
+		// clonefile copies permissions and times by itself, but reflink only clones the data
+		Files.setPosixFilePermissions(destination.toPath(), Files.getPosixFilePermissions(source.toPath()));
+
+		BasicFileAttributes attributes = Files.readAttributes(source.toPath(), BasicFileAttributes.class);
+		Files.getFileAttributeView(destination.toPath(), BasicFileAttributeView.class).setTimes(attributes.lastModifiedTime(), attributes.lastAccessTime(), null);
+	}
+
+	private NativeClone() {
+		throw new UnsupportedOperationException();
+	}
+
+}
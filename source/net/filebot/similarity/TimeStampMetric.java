@@ -6,6 +6,8 @@ import java.nio.file.Files;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.temporal.ChronoUnit;
 
+import net.filebot.util.FastFile;
+
 public class TimeStampMetric implements SimilarityMetric {
 
 	private long epoch;
@@ -32,7 +34,7 @@ public class TimeStampMetric implements SimilarityMetric {
 		if (object instanceof File) {
 			File f = (File) object;
 			try {
-				BasicFileAttributes attr = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+				BasicFileAttributes attr = f instanceof FastFile ? ((FastFile) f).getAttributes() : Files.readAttributes(f.toPath(), BasicFileAttributes.class);
 				long creationTime = attr.creationTime().toMillis();
 				if (creationTime > 0) {
 					return creationTime;
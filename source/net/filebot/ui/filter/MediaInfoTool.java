@@ -1,12 +1,12 @@
 package net.filebot.ui.filter;
 
 import static java.util.Collections.*;
-import static net.filebot.Logging.*;
 import static net.filebot.MediaTypes.*;
 import static net.filebot.util.FileUtilities.*;
 
 import java.awt.Color;
 import java.io.File;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -14,6 +14,7 @@ import java.util.TreeMap;
 import java.util.concurrent.CancellationException;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import javax.swing.BorderFactory;
 import javax.swing.JScrollPane;
@@ -23,8 +24,9 @@ import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableColumnModel;
 import javax.swing.table.TableModel;
 
-import net.filebot.mediainfo.MediaInfo;
 import net.filebot.mediainfo.MediaInfo.StreamKind;
+import net.filebot.mediainfo.MediaInfoService;
+import net.filebot.mediainfo.MediaInfoSnapshot;
 import net.filebot.util.ui.LoadingOverlayPane;
 import net.miginfocom.swing.MigLayout;
 
@@ -62,11 +64,14 @@ class MediaInfoTool extends Tool<TableModel> {
 		List<File> files = listFiles(root, filter(VIDEO_FILES, AUDIO_FILES), HUMAN_NAME_ORDER);
 		Map<MediaInfoKey, String[]> data = new TreeMap<MediaInfoKey, String[]>();
 
-		try (MediaInfo mi = new MediaInfo()) {
+		// analyze files in parallel
+		try (Stream<MediaInfoSnapshot> snapshots = MediaInfoService.getInstance().analyze(files)) {
+			Iterator<MediaInfoSnapshot> mi = snapshots.iterator();
+
 			IntStream.range(0, files.size()).forEach(f -> {
-				try {
-					mi.open(files.get(f));
-					mi.snapshot().forEach((kind, streams) -> {
+				MediaInfoSnapshot snapshot = mi.next();
+				if (snapshot != null) {
+					snapshot.snapshot().forEach((kind, streams) -> {
 						IntStream.range(0, streams.size()).forEach(i -> {
 							streams.get(i).forEach((name, value) -> {
 								String[] values = data.computeIfAbsent(new MediaInfoKey(kind, i, name), k -> new String[files.size()]);
@@ -74,10 +79,6 @@ class MediaInfoTool extends Tool<TableModel> {
 							});
 						});
 					});
-				} catch (IllegalArgumentException e) {
-					debug.finest(e::toString);
-				} catch (Exception e) {
-					debug.warning(e::toString);
 				}
 
 				if (Thread.interrupted()) {
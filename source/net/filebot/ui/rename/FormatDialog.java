@@ -487,9 +487,11 @@ public class FormatDialog extends JDialog {
 			// create new worker
 			currentPreviewFuture = new SwingWorker<String, Void>() {
 
+				private SuppressedThrowables suppressed;
+
 				@Override
 				protected String doInBackground() throws Exception {
-					return format.format(sample);
+					return format.format(format.getBindings(sample), s -> suppressed = s);
 				}
 
 				@Override
@@ -498,8 +500,8 @@ public class FormatDialog extends JDialog {
 						preview.setText(get());
 
 						// check internal script exception
-						if (format.suppressed() != null) {
-							throw format.suppressed();
+						if (suppressed != null) {
+							throw suppressed;
 						}
 
 						// no warning or error
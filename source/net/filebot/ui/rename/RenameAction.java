@@ -76,6 +76,9 @@ class RenameAction extends AbstractAction {
 			List<Match<Object, File>> matches = new ArrayList<Match<Object, File>>(model.matches());
 			StandardRenameAction action = (StandardRenameAction) getValue(RENAME_ACTION);
 
+			// make sure that pending xattr metadata has been written before files are moved again
+			xattr.flush();
+
 			// start processing
 			Map<File, File> renameLog = new LinkedHashMap<File, File>();
 
@@ -234,6 +237,10 @@ class RenameAction extends AbstractAction {
 
 		@Override
 		public Map<File, File> call(Consumer<String> message, BiConsumer<Long, Long> progress, Supplier<Boolean> cancelled) throws Exception {
+			// report progress in bytes
+			long total = renameMap.keySet().stream().mapToLong(File::length).sum();
+			long done = 0;
+
 			for (Entry<File, File> mapping : renameMap.entrySet()) {
 				if (cancelled.get()) {
 					return renameLog;
@@ -244,11 +251,20 @@ class RenameAction extends AbstractAction {
 				// rename file, throw exception on failure
 				File source = mapping.getKey();
 				File destination = resolve(mapping.getKey(), mapping.getValue());
+				long length = source.length();
 
 				if (!equalsCaseSensitive(source, destination)) {
-					action.rename(source, destination);
+					if (action == StandardRenameAction.COPY) {
+						long offset = done;
+						copyAs(source, destination, n -> progress.accept(offset + n, total));
+					} else {
+						action.rename(source, destination);
+					}
 				}
 
+				done += length;
+				progress.accept(done, total);
+
 				// remember successfully renamed matches for history entry and possible revert
 				renameLog.put(mapping.getKey(), mapping.getValue());
 			}
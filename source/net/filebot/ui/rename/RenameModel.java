@@ -15,9 +15,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -27,6 +24,7 @@ import javax.swing.SwingWorker.StateValue;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.TransformedList;
 import ca.odell.glazedlists.event.ListEvent;
+import net.filebot.format.BatchFormatter;
 import net.filebot.similarity.Match;
 import net.filebot.util.ui.SwingUI;
 
@@ -162,7 +160,7 @@ public class RenameModel extends MatchModel<Object, File> {
 
 		private final List<FormattedFuture> futures = new ArrayList<FormattedFuture>();
 
-		private final Executor backgroundFormatter = new ThreadPoolExecutor(0, 1, 5L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		private final BatchFormatter backgroundFormatter = BatchFormatter.getInstance();
 
 		public FormattedFutureEventList(EventList<Object> source) {
 			super(source);
@@ -205,6 +203,7 @@ public class RenameModel extends MatchModel<Object, File> {
 
 		@Override
 		public void listChanged(ListEvent<Object> listChanges) {
+			List<FormattedFuture> batch = new ArrayList<FormattedFuture>();
 			updates.beginEvent(true);
 
 			while (listChanges.next()) {
@@ -245,7 +244,7 @@ public class RenameModel extends MatchModel<Object, File> {
 					}
 
 					// observe and enqueue worker task
-					submit(future);
+					batch.add(future);
 				} else if (type == ListEvent.DELETE) {
 					// remove future from data and formatter queue
 					FormattedFuture obsolete = futures.remove(index);
@@ -255,9 +254,11 @@ public class RenameModel extends MatchModel<Object, File> {
 			}
 
 			updates.commitEvent();
+			submit(batch);
 		}
 
 		public void refresh() {
+			List<FormattedFuture> batch = new ArrayList<FormattedFuture>();
 			updates.beginEvent(true);
 
 			for (int i = 0; i < size(); i++) {
@@ -269,18 +270,19 @@ public class RenameModel extends MatchModel<Object, File> {
 				cancel(futures.set(i, future));
 
 				// submit new future
-				submit(future);
+				batch.add(future);
 
 				updates.elementUpdated(i, obsolete, future);
 			}
 
 			updates.commitEvent();
+			submit(batch);
 		}
 
-		private void submit(FormattedFuture future) {
-			// observe and enqueue worker task
-			future.addPropertyChangeListener(futureListener);
-			backgroundFormatter.execute(future);
+		private void submit(List<FormattedFuture> batch) {
+			// observe and enqueue worker tasks, all matches are formatted in parallel
+			batch.forEach(future -> future.addPropertyChangeListener(futureListener));
+			backgroundFormatter.execute(batch, future -> BatchFormatter.getSharedResources(future.getMatch().getValue(), future.getMatch().getCandidate()));
 		}
 
 		private void cancel(FormattedFuture future) {
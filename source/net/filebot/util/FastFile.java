@@ -5,7 +5,11 @@ import static java.util.Arrays.*;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
-import java.util.BitSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.Optional;
 
 public class FastFile extends File {
 
@@ -15,11 +19,9 @@ public class FastFile extends File {
 	public static final int DIRECTORY = 1;
 	public static final int FILE = 2;
 
-	private BitSet stats;
+	private Optional<BasicFileAttributes> attributes;
 
 	private String name;
-	private long length = UNDEFINED;
-	private long lastModified = UNDEFINED;
 
 	private long totalSpace = UNDEFINED;
 	private long freeSpace = UNDEFINED;
@@ -32,6 +34,11 @@ public class FastFile extends File {
 
 	public FastFile(File file) {
 		super(file.getPath());
+
+		// share attributes with the given snapshot
+		if (file instanceof FastFile) {
+			this.attributes = ((FastFile) file).attributes;
+		}
 	}
 
 	public FastFile(File parentFile, String name) {
@@ -41,20 +48,38 @@ public class FastFile extends File {
 		this.name = name;
 	}
 
-	public boolean stats(int bitIndex) {
-		if (stats == null) {
-			stats = new BitSet(3);
-			stats.set(HIDDEN, super.isHidden());
-
-			if (super.isFile()) {
-				stats.set(FILE);
-			} else if (super.isDirectory()) {
-				stats.set(DIRECTORY);
-			}
+	public FastFile(File parentFile, String name, BasicFileAttributes attributes) {
+		this(parentFile, name);
+
+		this.attributes = Optional.ofNullable(attributes);
+	}
+
+	/**
+	 * @return file attributes from a single attribute read, or null if the file does not exist
+	 */
+	public BasicFileAttributes getAttributes() {
+		if (attributes == null) {
+			attributes = Optional.ofNullable(readAttributes(toPath()));
 		}
+		return attributes.orElse(null);
+	}
 
-		return stats.get(bitIndex);
+	public boolean stats(int bitIndex) {
+		BasicFileAttributes attr = getAttributes();
+		if (attr == null) {
+			return false;
+		}
 
+		switch (bitIndex) {
+		case HIDDEN:
+			return attr instanceof DosFileAttributes ? ((DosFileAttributes) attr).isHidden() : getName().startsWith(".");
+		case DIRECTORY:
+			return attr.isDirectory();
+		case FILE:
+			return attr.isRegularFile();
+		default:
+			return false;
+		}
 	}
 
 	@Override
@@ -79,12 +104,14 @@ public class FastFile extends File {
 
 	@Override
 	public long length() {
-		return length != UNDEFINED ? length : (length = super.length());
+		BasicFileAttributes attr = getAttributes();
+		return attr == null ? 0 : attr.size();
 	}
 
 	@Override
 	public long lastModified() {
-		return lastModified != UNDEFINED ? lastModified : (lastModified = super.lastModified());
+		BasicFileAttributes attr = getAttributes();
+		return attr == null ? 0 : attr.lastModifiedTime().toMillis();
 	}
 
 	@Override
@@ -120,6 +147,11 @@ public class FastFile extends File {
 		return (listFiles = stream(list()).map(s -> new FastFile(this, s)).toArray(File[]::new));
 	}
 
+	void setListFiles(File[] files) {
+		this.listFiles = files;
+		this.list = files == null ? null : stream(files).map(File::getName).toArray(String[]::new);
+	}
+
 	@Override
 	public File[] listFiles(FileFilter filter) {
 		return stream(listFiles()).filter(filter::accept).toArray(File[]::new);
@@ -241,4 +273,15 @@ public class FastFile extends File {
 		return f == null ? null : new FastFile(f);
 	}
 
+	private static final boolean DOS_ATTRIBUTES = File.separatorChar == '\\';
+
+	public static BasicFileAttributes readAttributes(Path path) {
+		try {
+			return DOS_ATTRIBUTES ? Files.readAttributes(path, DosFileAttributes.class) : Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (Exception e) {
+			// file does not exist, is a broken symlink or is not accessible
+			return null;
+		}
+	}
+
 }
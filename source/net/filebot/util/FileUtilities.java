@@ -15,6 +15,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
@@ -46,9 +47,9 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.LongConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 import org.apache.commons.io.FileUtils;
 
@@ -87,6 +88,10 @@ public final class FileUtilities {
 	}
 
 	public static File copyAs(File source, File destination) throws IOException {
+		return copyAs(source, destination, null);
+	}
+
+	public static File copyAs(File source, File destination, LongConsumer progress) throws IOException {
 		// resolve destination
 		destination = resolveDestination(source, destination);
 
@@ -97,7 +102,40 @@ public final class FileUtilities {
 		}
 
 		// copy file
-		return Files.copy(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING).toFile();
+		return copyFile(source, destination, progress);
+	}
+
+	public static File copyFile(File source, File destination, LongConsumer progress) throws IOException {
+		// do nothing if source and destination is the same file (and make sure that we don't truncate the source)
+		if (destination.exists() && Files.isSameFile(source.toPath(), destination.toPath())) {
+			return destination;
+		}
+
+		// transfer data channel to channel so that the kernel can copy the data without user space buffers (e.g. via sendfile or copy_file_range)
+		try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ); FileChannel out = FileChannel.open(destination.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			long position = 0;
+
+			while (position < size) {
+				long n = in.transferTo(position, Math.min(COPY_CHUNK_SIZE, size - position), out);
+				if (n <= 0) {
+					throw new IOException(String.format("Unexpected end of file: %s (%,d of %,d bytes)", source, position, size));
+				}
+
+				position += n;
+
+				if (progress != null) {
+					progress.accept(position);
+				}
+
+				// make this long-running operation interruptible
+				if (Thread.interrupted()) {
+					throw new InterruptedIOException("Copy interrupted: " + source);
+				}
+			}
+		}
+
+		return destination;
 	}
 
 	public static File resolve(File source, File destination) {
@@ -275,6 +313,51 @@ public final class FileUtilities {
 		return a.getPath().equals(b.getPath());
 	}
 
+	public static boolean equalsFileSample(File a, File b) {
+		// must have the same file size
+		if (a.length() != b.length()) {
+			return false;
+		}
+
+		// must not be a folder
+		if (a.isDirectory() || b.isDirectory()) {
+			return false;
+		}
+
+		// small files are cheap enough to compare byte by byte
+		if (a.length() <= 3 * SAMPLE_CHUNK_SIZE) {
+			return equalsFileContent(a, b);
+		}
+
+		// must be equal at head, middle and tail
+		try (FileChannel ca = FileChannel.open(a.toPath(), StandardOpenOption.READ); FileChannel cb = FileChannel.open(b.toPath(), StandardOpenOption.READ)) {
+			long size = ca.size();
+			ByteBuffer ba = ByteBuffer.allocate(SAMPLE_CHUNK_SIZE);
+			ByteBuffer bb = ByteBuffer.allocate(SAMPLE_CHUNK_SIZE);
+
+			for (long position : new long[] { 0, (size - SAMPLE_CHUNK_SIZE) / 2, size - SAMPLE_CHUNK_SIZE }) {
+				if (!readFully(ca, ba, position).equals(readFully(cb, bb, position))) {
+					return false;
+				}
+			}
+
+			return true;
+		} catch (Exception e) {
+			log.warning(cause(e));
+		}
+
+		return false;
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		buffer.clear();
+		while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+			continue;
+		}
+		buffer.flip();
+		return buffer;
+	}
+
 	public static boolean equalsFileContent(File a, File b) {
 		// must have the same file size
 		if (a.length() != b.length()) {
@@ -528,42 +611,7 @@ public final class FileUtilities {
 	}
 
 	public static List<File> listFiles(File[] files, int depth, FileFilter filter, Comparator<File> order) {
-		List<File> sink = new ArrayList<File>();
-
-		// traverse file tree recursively
-		streamFiles(files, FOLDERS, order).forEach(f -> listFiles(f, sink, depth, filter, order));
-
-		// add selected files in preferred order
-		streamFiles(files, filter, order).forEach(sink::add);
-
-		return sink;
-	}
-
-	private static void listFiles(File folder, List<File> sink, int depth, FileFilter filter, Comparator<File> order) {
-		if (depth < 0) {
-			return;
-		}
-
-		// children array may be null if folder permissions do not allow listing of files
-		File[] files = folder.listFiles(NOT_HIDDEN);
-
-		// traverse file tree recursively
-		streamFiles(files, FOLDERS, order).forEach(f -> listFiles(f, sink, depth - 1, filter, order));
-
-		// add selected files in preferred order
-		streamFiles(files, filter, order).forEach(sink::add);
-	}
-
-	private static Stream<File> streamFiles(File[] files, FileFilter filter, Comparator<File> order) {
-		if (files == null || files.length == 0) {
-			return Stream.empty();
-		}
-
-		if (order == null) {
-			return stream(files).filter(filter::accept);
-		} else {
-			return stream(files).filter(filter::accept).sorted(order);
-		}
+		return new FileWalker(depth, filter, null).list(files, order);
 	}
 
 	public static SortedMap<File, List<File>> mapByFolder(Iterable<File> files) {
@@ -716,6 +764,10 @@ public final class FileUtilities {
 
 	public static final int BUFFER_SIZE = 64 * 1024;
 
+	public static final long COPY_CHUNK_SIZE = 64 * 1024 * 1024;
+
+	public static final int SAMPLE_CHUNK_SIZE = 64 * 1024;
+
 	public static final long ONE_KILOBYTE = 1000;
 	public static final long ONE_MEGABYTE = 1000 * ONE_KILOBYTE;
 	public static final long ONE_GIGABYTE = 1000 * ONE_MEGABYTE;
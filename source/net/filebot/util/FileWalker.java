@@ -0,0 +1,186 @@
+package net.filebot.util;
+
+import static java.util.Arrays.*;
+import static java.util.stream.Collectors.*;
+import static net.filebot.Logging.*;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Walk file trees with one directory stream per folder and one attribute read per entry. Subtrees are walked in parallel on a shared work-stealing thread pool. Hidden files and folders below the given root files are skipped, unless hidden files are explicitly included.
+ */
+public class FileWalker {
+
+	public static final SystemProperty<Integer> THREADS = SystemProperty.of("net.filebot.FileWalker.threads", Integer::parseInt, 8);
+
+	private static ForkJoinPool workerPool;
+
+	private static synchronized ForkJoinPool getWorkerPool() {
+		if (workerPool == null) {
+			workerPool = new ForkJoinPool(Math.max(1, THREADS.get()));
+		}
+		return workerPool;
+	}
+
+	private final int depth;
+	private final FileFilter filter;
+	private final FileFilter prune;
+	private final boolean hidden;
+
+	public FileWalker(int depth, FileFilter filter, FileFilter prune) {
+		this(depth, filter, prune, false);
+	}
+
+	/**
+	 * @param depth
+	 *            maximum folder depth (e.g. FILE_WALK_MAX_DEPTH or Integer.MAX_VALUE for no limit)
+	 * @param filter
+	 *            select files and folders
+	 * @param prune
+	 *            select folders that are not traversed any further (may be null)
+	 * @param hidden
+	 *            include hidden files and folders
+	 */
+	public FileWalker(int depth, FileFilter filter, FileFilter prune, boolean hidden) {
+		this.depth = depth;
+		this.filter = filter;
+		this.prune = prune;
+		this.hidden = hidden;
+	}
+
+	/**
+	 * Ordered mode: select files in the same order as a sequential depth-first walk, i.e. for each folder the selected files of each sub folder followed by the selected files of the folder itself, each level sorted by the given order (or in directory order if order is null)
+	 */
+	public List<File> list(File[] roots, Comparator<File> order) {
+		return listSnapshots(roots, order).stream().map(f -> new File(f.getPath())).collect(toList());
+	}
+
+	/**
+	 * Ordered mode, but return the file attribute snapshots taken during the walk
+	 */
+	public List<FastFile> listSnapshots(File[] roots, Comparator<File> order) {
+		return getWorkerPool().invoke(new RootTask(roots, order, null));
+	}
+
+	/**
+	 * Unordered streaming mode: pass each selected file to the consumer as soon as it has been found. The consumer is called concurrently from multiple worker threads.
+	 */
+	public void walk(File[] roots, Consumer<File> consumer) {
+		getWorkerPool().invoke(new RootTask(roots, null, f -> consumer.accept(new File(f.getPath()))));
+	}
+
+	private class RootTask extends RecursiveTask<List<FastFile>> {
+
+		private final File[] roots;
+		private final Comparator<File> order;
+		private final Consumer<FastFile> consumer;
+
+		public RootTask(File[] roots, Comparator<File> order, Consumer<FastFile> consumer) {
+			this.roots = roots;
+			this.order = order;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected List<FastFile> compute() {
+			FastFile[] files = stream(roots).map(FastFile::new).toArray(FastFile[]::new);
+			return walk(files, depth, order, consumer);
+		}
+	}
+
+	private class FolderTask extends RecursiveTask<List<FastFile>> {
+
+		private final FastFile folder;
+		private final int depth;
+		private final Comparator<File> order;
+		private final Consumer<FastFile> consumer;
+
+		private boolean accept;
+
+		public FolderTask(FastFile folder, int depth, Comparator<File> order, Consumer<FastFile> consumer) {
+			this.folder = folder;
+			this.depth = depth;
+			this.order = order;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected List<FastFile> compute() {
+			if (depth >= 0) {
+				listFiles(folder);
+			}
+
+			// filter and prune may use the folder listing (e.g. disk folder filter)
+			accept = filter.accept(folder);
+
+			try {
+				if (depth < 0 || (prune != null && prune.accept(folder))) {
+					return new ArrayList<FastFile>(0);
+				}
+				return walk(stream(folder.listFiles()).map(FastFile.class::cast).filter(f -> hidden || !f.isHidden()).toArray(FastFile[]::new), depth - 1, order, consumer);
+			} finally {
+				folder.setListFiles(null);
+			}
+		}
+	}
+
+	private List<FastFile> walk(FastFile[] files, int depth, Comparator<File> order, Consumer<FastFile> consumer) {
+		if (order != null) {
+			sort(files, order);
+		}
+
+		// traverse sub folders in parallel
+		List<FolderTask> tasks = new ArrayList<FolderTask>();
+		for (FastFile it : files) {
+			if (it.isDirectory()) {
+				tasks.add(new FolderTask(it, depth, order, consumer));
+			}
+		}
+		ForkJoinTask.invokeAll(tasks);
+
+		List<FastFile> sink = new ArrayList<FastFile>();
+		tasks.forEach(t -> sink.addAll(t.join()));
+
+		// add selected files in preferred order
+		int folderIndex = 0;
+		for (FastFile it : files) {
+			if (it.isDirectory() ? tasks.get(folderIndex++).accept : filter.accept(it)) {
+				if (consumer == null) {
+					sink.add(it);
+				} else {
+					consumer.accept(it);
+				}
+			}
+		}
+
+		return sink;
+	}
+
+	private static void listFiles(FastFile folder) {
+		List<File> files = new ArrayList<File>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder.toPath())) {
+			for (Path path : stream) {
+				files.add(new FastFile(folder, path.getFileName().toString(), FastFile.readAttributes(path)));
+			}
+		} catch (IOException | RuntimeException e) {
+			// folder may not be readable or has been removed during the walk
+			debug.finest(cause("Failed to list folder", e));
+		}
+
+		folder.setListFiles(files.toArray(new File[0]));
+	}
+
+}
@@ -0,0 +1,112 @@
+package net.filebot.util;
+
+import static java.util.stream.Collectors.*;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Accumulate time spent in each stage of the rename pipeline. Nested stages are timed exclusively, e.g. time spent fetching data during movie detection is not counted as detection time. Stages running on different threads are timed independently, so the sum of all stages may exceed the elapsed time.
+ */
+public class StageTimer {
+
+	public enum Stage {
+		Walk, Detect, Fetch, Match, Format, Rename
+	}
+
+	public static final SystemProperty<Boolean> ENABLED = SystemProperty.of("net.filebot.StageTimer", Boolean::parseBoolean, false);
+
+	private static final boolean enabled = ENABLED.get();
+
+	private static final Map<Stage, LongAdder> totals = new EnumMap<Stage, LongAdder>(Stage.class);
+
+	static {
+		for (Stage stage : Stage.values()) {
+			totals.put(stage, new LongAdder());
+		}
+	}
+
+	private static final ThreadLocal<Deque<Split>> splits = ThreadLocal.withInitial(ArrayDeque::new);
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Start timing the given stage on the current thread and pause the enclosing stage until the returned split is closed
+	 */
+	public static Split start(Stage stage) {
+		if (!enabled) {
+			return NOOP;
+		}
+
+		Deque<Split> stack = splits.get();
+		long now = System.nanoTime();
+
+		if (stack.size() > 0) {
+			stack.peek().pause(now);
+		}
+
+		Split split = new Split(stage, stack, now);
+		stack.push(split);
+		return split;
+	}
+
+	public static Duration getTotal(Stage stage) {
+		return Duration.ofNanos(totals.get(stage).sum());
+	}
+
+	public static Map<Stage, Duration> getTotals() {
+		return Stream.of(Stage.values()).collect(toMap(s -> s, StageTimer::getTotal, (a, b) -> a, () -> new EnumMap<Stage, Duration>(Stage.class)));
+	}
+
+	public static void reset() {
+		totals.values().forEach(LongAdder::reset);
+	}
+
+	public static String format() {
+		return Stream.of(Stage.values()).map(s -> String.format("%s: %d ms", s, getTotal(s).toMillis())).collect(joining(", ", "[", "]"));
+	}
+
+	private static final Split NOOP = new Split(null, null, 0);
+
+	public static class Split implements AutoCloseable {
+
+		private final Stage stage;
+		private final Deque<Split> stack;
+
+		private long start;
+
+		private Split(Stage stage, Deque<Split> stack, long start) {
+			this.stage = stage;
+			this.stack = stack;
+			this.start = start;
+		}
+
+		private void pause(long now) {
+			totals.get(stage).add(now - start);
+		}
+
+		@Override
+		public void close() {
+			if (stack == null) {
+				return;
+			}
+
+			long now = System.nanoTime();
+			pause(now);
+			stack.remove(this);
+
+			// resume enclosing stage
+			if (stack.size() > 0) {
+				stack.peek().start = now;
+			}
+		}
+	}
+
+}
@@ -138,6 +138,54 @@ public final class StringUtilities {
 		return values.map(StringUtilities::asNonEmptyString).filter(Objects::nonNull).collect(joining(delimiter, prefix, suffix));
 	}
 
+	/**
+	 * Escape backslashes, tabs and line breaks, so that the given value can be stored as a single field of a tab-separated line
+	 */
+	public static String escapeField(String s) {
+		if (s.indexOf('\\') < 0 && s.indexOf('\t') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+			return s;
+		}
+
+		StringBuilder b = new StringBuilder(s.length() + 8);
+		for (char c : s.toCharArray()) {
+			switch (c) {
+			case '\\':
+				b.append("\\\\");
+				break;
+			case '\t':
+				b.append("\\t");
+				break;
+			case '\n':
+				b.append("\\n");
+				break;
+			case '\r':
+				b.append("\\r");
+				break;
+			default:
+				b.append(c);
+			}
+		}
+		return b.toString();
+	}
+
+	public static String unescapeField(String s) {
+		if (s.indexOf('\\') < 0) {
+			return s;
+		}
+
+		StringBuilder b = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\\' && i + 1 < s.length()) {
+				char n = s.charAt(++i);
+				b.append(n == 't' ? '\t' : n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+			} else {
+				b.append(c);
+			}
+		}
+		return b.toString();
+	}
+
 	public static class MatcherSpliterator extends AbstractSpliterator<MatchResult> {
 
 		private final Matcher m;
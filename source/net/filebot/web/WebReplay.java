@@ -0,0 +1,76 @@
+package net.filebot.web;
+
+import static net.filebot.Logging.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import net.filebot.util.SystemProperty;
+
+/**
+ * Record web responses to local fixture files, or replay previously recorded responses without any network access. Only HTTP requests are recorded. Responses are stored as is (without content encoding) in one file per request, named by host and the MD5 hash of the request URL and POST data.
+ */
+public class WebReplay {
+
+	@FunctionalInterface
+	public interface Exchange {
+
+		ByteBuffer fetch() throws IOException;
+	}
+
+	public static final SystemProperty<File> RECORD = SystemProperty.of("net.filebot.web.record", File::new);
+	public static final SystemProperty<File> REPLAY = SystemProperty.of("net.filebot.web.replay", File::new);
+
+	private static final File recordFolder = RECORD.get();
+	private static final File replayFolder = REPLAY.get();
+
+	public static boolean isEnabled(URL url) {
+		return (recordFolder != null || replayFolder != null) && url.getProtocol().startsWith("http");
+	}
+
+	public static ByteBuffer exchange(URL url, byte[] postData, Exchange exchange) throws IOException {
+		if (replayFolder != null) {
+			return replay(getFile(replayFolder, url, postData), url);
+		}
+
+		ByteBuffer data = exchange.fetch();
+		if (data != null) {
+			record(getFile(recordFolder, url, postData), url, data.duplicate());
+		}
+		return data;
+	}
+
+	protected static ByteBuffer replay(File file, URL url) throws IOException {
+		if (!file.isFile()) {
+			throw new FileNotFoundException("Replay resource not found: " + url);
+		}
+
+		debug.finest(format("Replay %s => %s", url, file));
+		return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+	}
+
+	protected static void record(File file, URL url, ByteBuffer data) throws IOException {
+		debug.finest(format("Record %s => %s", url, file));
+		file.getParentFile().mkdirs();
+
+		// write atomically, the same resource may be fetched concurrently
+		File part = new File(file.getPath() + "." + Thread.currentThread().getId() + ".part");
+		writeFile(data, part);
+		Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	protected static File getFile(File folder, URL url, byte[] postData) {
+		String key = url.toString();
+		if (postData != null) {
+			key += '\n' + md5(postData);
+		}
+		return new File(new File(folder, url.getHost()), md5(key));
+	}
+
+}
@@ -117,6 +117,14 @@ public final class WebRequest {
 	}
 
 	public static ByteBuffer fetch(URL url, long ifModifiedSince, Object etag, Map<String, String> requestParameters, Consumer<Map<String, List<String>>> responseParameters) throws IOException {
+		// record or replay complete responses
+		if (WebReplay.isEnabled(url)) {
+			return WebReplay.exchange(url, null, () -> get(url, 0, null, requestParameters, responseParameters));
+		}
+		return get(url, ifModifiedSince, etag, requestParameters, responseParameters);
+	}
+
+	private static ByteBuffer get(URL url, long ifModifiedSince, Object etag, Map<String, String> requestParameters, Consumer<Map<String, List<String>>> responseParameters) throws IOException {
 		URLConnection connection = url.openConnection();
 
 		if (ifModifiedSince > 0) {
@@ -181,6 +189,14 @@ public final class WebRequest {
 	}
 
 	public static ByteBuffer post(URL url, byte[] postData, String contentType, Map<String, String> requestParameters) throws IOException {
+		// record or replay complete responses
+		if (WebReplay.isEnabled(url)) {
+			return WebReplay.exchange(url, postData, () -> send(url, postData, contentType, requestParameters));
+		}
+		return send(url, postData, contentType, requestParameters);
+	}
+
+	private static ByteBuffer send(URL url, byte[] postData, String contentType, Map<String, String> requestParameters) throws IOException {
 		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
 
 		connection.addRequestProperty("Content-Length", String.valueOf(postData.length));
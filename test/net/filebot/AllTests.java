@@ -4,12 +4,25 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import net.filebot.cli.FolderWatchServiceTest;
+import net.filebot.cli.RenameExecutorTest;
+import net.filebot.format.BatchFormatterTest;
+import net.filebot.format.CompileTimeSandboxTest;
+import net.filebot.format.ExpressionBindingsTest;
 import net.filebot.format.ExpressionFormatTest;
+import net.filebot.hash.TreeHashTest;
 import net.filebot.hash.VerificationFormatTest;
+import net.filebot.hash.VerificationJournalTest;
+import net.filebot.media.LibraryIndexTest;
 import net.filebot.media.MediaDetectionTest;
 import net.filebot.media.ReleaseInfoTest;
 import net.filebot.media.VideoFormatTest;
+import net.filebot.media.XattrIndexTest;
+import net.filebot.mediainfo.ContainerProbeTest;
+import net.filebot.mediainfo.MediaInfoCacheTest;
+import net.filebot.mediainfo.MediaInfoSnapshotTest;
 import net.filebot.mediainfo.MediaInfoTest;
+import net.filebot.platform.posix.NativeCloneTest;
 import net.filebot.similarity.EpisodeMetricsTest;
 import net.filebot.similarity.SimilarityTestSuite;
 import net.filebot.subtitle.SubtitleReaderTestSuite;
@@ -19,7 +32,7 @@ import net.filebot.util.UtilTestSuite;
 import net.filebot.web.WebTestSuite;
 
 @RunWith(Suite.class)
-@SuiteClasses({ ExpressionFormatTest.class, VerificationFormatTest.class, MatchModelTest.class, SupportDialogTest.class, EpisodeMetricsTest.class, ReleaseInfoTest.class, VideoFormatTest.class, MediaDetectionTest.class, MediaInfoTest.class, SimilarityTestSuite.class, WebTestSuite.class, SubtitleReaderTestSuite.class, UtilTestSuite.class })
+@SuiteClasses({ ExpressionFormatTest.class, ExpressionBindingsTest.class, BatchFormatterTest.class, CompileTimeSandboxTest.class, HistoryStoreTest.class, RenameExecutorTest.class, FolderWatchServiceTest.class, VerificationFormatTest.class, TreeHashTest.class, VerificationJournalTest.class, MatchModelTest.class, SupportDialogTest.class, EpisodeMetricsTest.class, ReleaseInfoTest.class, VideoFormatTest.class, MediaDetectionTest.class, LibraryIndexTest.class, XattrIndexTest.class, MediaInfoTest.class, MediaInfoSnapshotTest.class, MediaInfoCacheTest.class, ContainerProbeTest.class, NativeCloneTest.class, SimilarityTestSuite.class, WebTestSuite.class, SubtitleReaderTestSuite.class, UtilTestSuite.class })
 public class AllTests {
 
 }
@@ -0,0 +1,125 @@
+package net.filebot;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.filebot.History.Element;
+
+public class HistoryStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	File createJournal() throws Exception {
+		return new File(folder.getRoot(), "history.log");
+	}
+
+	History createHistory(long date, Element... elements) {
+		History history = new History();
+		history.add(new Date(date), asList(elements));
+		return history;
+	}
+
+	@Test
+	public void appendAndRead() throws Exception {
+		File journal = createJournal();
+
+		new HistoryStore(journal).append(createHistory(1000, new Element("a.avi", "/output/A.avi", new File("/input")), new Element("b\tc.avi", "B.avi", new File("/in\\put"))).sequences());
+		new HistoryStore(journal).append(createHistory(2000, new Element("c.avi", "/output/C.avi", new File("/input"))).sequences());
+
+		HistoryStore store = new HistoryStore(journal);
+		assertEquals(3, store.size());
+		assertEquals(2, store.getHistory().sequences().size());
+		assertEquals("b\tc.avi", store.getHistory().sequences().get(0).elements().get(1).from());
+		assertEquals(new File("/input/a.avi"), store.getOriginalPath(new File("/output/A.avi")));
+		assertEquals(new File("/output/A.avi"), store.getCurrentPath(new File("/input/a.avi")));
+		assertEquals(new File("/in\\put/B.avi"), store.getRenameMap().get(new File("/in\\put", "b\tc.avi")));
+		assertEquals(1, store.getSequences(new Date(1500), new Date(2500)).size());
+	}
+
+	@Test
+	public void folderQuery() throws Exception {
+		File journal = createJournal();
+
+		HistoryStore store = new HistoryStore(journal);
+		store.append(createHistory(1000, new Element("a.avi", "/output/A.avi", new File("/input")), new Element("b.avi", "/output-b/B.avi", new File("/input"))).sequences());
+		store.append(createHistory(2000, new Element("A.avi", "/library/A.avi", new File("/output")), new Element("b.avi", "/output/B.avi", new File("/input"))).sequences());
+
+		assertEquals("{/input/a.avi=/output/A.avi, /input/b.avi=/output/B.avi, /output/A.avi=/library/A.avi}", store.getRenameMap(singleton(new File("/output"))).toString());
+		assertEquals("{/output/A.avi=/library/A.avi}", store.getRenameMap(singleton(new File("/library/A.avi"))).toString());
+		assertEquals("{}", store.getRenameMap(singleton(new File("/output-b"))).toString());
+		assertTrue(store.contains(new File("/output-b/B.avi")));
+	}
+
+	@Test
+	public void readIncrementally() throws Exception {
+		File journal = createJournal();
+
+		HistoryStore reader = new HistoryStore(journal);
+		assertEquals(0, reader.size());
+
+		new HistoryStore(journal).append(createHistory(1000, new Element("a.avi", "A.avi", new File("/input"))).sequences());
+		assertEquals(1, reader.size());
+
+		new HistoryStore(journal).append(createHistory(2000, new Element("b.avi", "B.avi", new File("/input"))).sequences());
+		assertEquals(2, reader.size());
+		assertEquals(singletonList(new File("/input/B.avi")), asList(reader.getRenameMap().get(new File("/input/b.avi"))));
+	}
+
+	@Test
+	public void ignorePartialLine() throws Exception {
+		File journal = createJournal();
+		new HistoryStore(journal).append(createHistory(1000, new Element("a.avi", "A.avi", new File("/input"))).sequences());
+
+		// interrupted commit torn in the middle of the destination field
+		try (FileOutputStream out = new FileOutputStream(journal, true)) {
+			out.write("S\t2000\nR\t/input\tb.avi\t/output/B".getBytes("UTF-8"));
+		}
+		assertEquals(1, new HistoryStore(journal).size());
+
+		new HistoryStore(journal).append(createHistory(3000, new Element("c.avi", "C.avi", new File("/input"))).sequences());
+
+		HistoryStore store = new HistoryStore(journal);
+		assertEquals(2, store.size());
+		assertFalse(store.contains(new File("/input/b.avi")));
+		assertFalse(store.contains(new File("/output/B")));
+		assertEquals(new File("/input/C.avi"), store.getCurrentPath(new File("/input/c.avi")));
+	}
+
+	@Test
+	public void migrateAfterFailure() throws Exception {
+		File journal = createJournal();
+		File xml = folder.newFile("history.xml");
+		Files.write(xml.toPath(), "<history><sequence".getBytes("UTF-8"));
+
+		HistoryStore store = new HistoryStore(journal);
+		try {
+			store.migrate(xml);
+			fail("malformed legacy history");
+		} catch (IOException e) {
+			assertEquals(0, journal.length());
+			assertEquals(1, folder.getRoot().list().length);
+		}
+
+		try (FileOutputStream out = new FileOutputStream(xml)) {
+			History.exportHistory(createHistory(1000, new Element("a.avi", "A.avi", new File("/input"))), out);
+		}
+
+		assertTrue(store.migrate(xml));
+		assertFalse(store.migrate(xml));
+		assertEquals(1, store.size());
+		assertEquals(new File("/input/A.avi"), store.getCurrentPath(new File("/input/a.avi")));
+	}
+
+}
@@ -0,0 +1,128 @@
+package net.filebot.cli;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.jna.Platform;
+
+public class FolderWatchServiceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// wait for the next tick of the commit scheduler
+	static final long TICK = 200;
+
+	// time only passes when the test says so
+	AtomicLong clock = new AtomicLong();
+
+	BlockingQueue<List<File>> commits = new LinkedBlockingQueue<List<File>>();
+
+	FolderWatchService service = new FolderWatchService(false, clock::get) {
+
+		@Override
+		public void processCommitSet(File[] files, File dir) {
+			commits.add(asList(files));
+		}
+	};
+
+	@After
+	public void close() throws Exception {
+		service.close();
+	}
+
+	File write(String name, String content) throws Exception {
+		File file = new File(folder.getRoot(), name);
+		Files.write(file.toPath(), content.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		return file;
+	}
+
+	List<File> advance(long step, int steps) throws Exception {
+		for (int i = 0; i < steps; i++) {
+			clock.addAndGet(step);
+			List<File> commit = commits.poll(TICK, TimeUnit.MILLISECONDS);
+			if (commit != null) {
+				return commit;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void isLocked() throws Exception {
+		assumeTrue(Platform.isWindows());
+
+		File file = write("locked.bin", "data");
+		assertFalse(FolderWatchService.isLocked(file));
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+			assertTrue(FolderWatchService.isLocked(file));
+		}
+
+		assertFalse(FolderWatchService.isLocked(file));
+	}
+
+	@Test
+	public void isLockedReadOnly() throws Exception {
+		File file = write("readonly.bin", "data");
+		file.setWritable(false);
+
+		// read-only files can never be written, so there is no need to wait for them
+		assertFalse(FolderWatchService.isLocked(file));
+	}
+
+	@Test
+	public void commitImmediately() throws Exception {
+		service.setCommitDelay(60000);
+		service.watchFolder(folder.getRoot());
+
+		File file = write("a.txt", "a");
+
+		// commit does not wait for the commit delay or for files to become stable
+		List<File> commit = null;
+		for (int i = 0; i < 50 && commit == null; i++) {
+			service.commit();
+			commit = commits.poll(TICK, TimeUnit.MILLISECONDS);
+		}
+
+		assertEquals(singletonList(file), commit);
+		assertEquals(0, clock.get());
+	}
+
+	@Test
+	public void processChangedFileOnce() throws Exception {
+		service.setCommitDelay(500);
+		service.watchFolder(folder.getRoot());
+
+		File file = write("a.txt", "a");
+
+		// move batch to the stability stage, then change the file again while it is waiting for files to become stable
+		assertNull(advance(500, 1));
+		write("a.txt", "b");
+
+		assertEquals(singletonList(file), advance(500, 50));
+		assertEquals("ab", new String(Files.readAllBytes(file.toPath())));
+
+		// no further commits no matter how much time passes
+		assertNull(advance(500, 5));
+	}
+
+}
@@ -0,0 +1,138 @@
+package net.filebot.cli;
+
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RenameExecutorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	File file(String path) {
+		return new File(folder.getRoot(), path);
+	}
+
+	@Test
+	public void dependencyOrder() throws Exception {
+		// b depends on a (same destination) and x depends on b (x is the destination of b and the source of the next operation)
+		Map<File, File> renameMap = new LinkedHashMap<File, File>();
+		renameMap.put(file("a"), file("x"));
+		renameMap.put(file("b"), file("x"));
+		renameMap.put(file("x"), file("y"));
+
+		List<String> order = Collections.synchronizedList(new ArrayList<String>());
+		Map<File, File> renameLog = new LinkedHashMap<File, File>();
+
+		new RenameExecutor(4, 4, false).execute(renameMap, (source, destination) -> {
+			// delay earlier operations so that later operations would overtake them if they were not ordered
+			Thread.sleep(source.getName().equals("a") ? 200 : 0);
+			order.add(source.getName());
+			return new SimpleEntry<File, File>(source, destination);
+		}, renameLog);
+
+		assertEquals("[a, b, x]", order.toString());
+		assertEquals(renameMap, renameLog);
+	}
+
+	@Test
+	public void threadsPerDevice() throws Exception {
+		Map<File, File> renameMap = new LinkedHashMap<File, File>();
+		for (int i = 0; i < 20; i++) {
+			renameMap.put(file("source" + i), file("destination" + i));
+		}
+
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		Map<File, File> renameLog = new LinkedHashMap<File, File>();
+
+		new RenameExecutor(8, 2, false).execute(renameMap, (source, destination) -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			Thread.sleep(20);
+			running.decrementAndGet();
+			return new SimpleEntry<File, File>(source, destination);
+		}, renameLog);
+
+		assertEquals(2, maxRunning.get());
+		assertEquals(new ArrayList<File>(renameMap.keySet()), new ArrayList<File>(renameLog.keySet()));
+	}
+
+	@Test
+	public void abortOnFirstFailure() throws Exception {
+		// all operations share the same destination folder and run one after another
+		Map<File, File> renameMap = new LinkedHashMap<File, File>();
+		renameMap.put(file("a"), file("x"));
+		renameMap.put(file("b"), file("y"));
+		renameMap.put(file("c"), file("z"));
+
+		List<String> order = Collections.synchronizedList(new ArrayList<String>());
+		Map<File, File> renameLog = new LinkedHashMap<File, File>();
+
+		try {
+			new RenameExecutor(4, 4, true).execute(renameMap, (source, destination) -> {
+				order.add(source.getName());
+				if (source.getName().equals("b")) {
+					throw new IOException("b");
+				}
+				return new SimpleEntry<File, File>(source, destination);
+			}, renameLog);
+			fail("exception expected");
+		} catch (IOException e) {
+			assertEquals("b", e.getMessage());
+		}
+
+		assertEquals("[a, b]", order.toString());
+		assertEquals("[a]", renameLog.keySet().stream().map(File::getName).collect(toList()).toString());
+	}
+
+	@Test
+	public void serializeFolders() throws Exception {
+		// INDEX conflict resolution must see all previously renamed files in the same destination folder
+		Map<File, File> renameMap = new LinkedHashMap<File, File>();
+		for (int i = 0; i < 10; i++) {
+			renameMap.put(file("source" + i), file("destination" + i));
+		}
+
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<String> order = Collections.synchronizedList(new ArrayList<String>());
+		Map<File, File> renameLog = new LinkedHashMap<File, File>();
+
+		new RenameExecutor(4, 4, true).execute(renameMap, (source, destination) -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			order.add(source.getName());
+			Thread.sleep(10);
+			running.decrementAndGet();
+			return new SimpleEntry<File, File>(source, destination);
+		}, renameLog);
+
+		assertEquals(1, maxRunning.get());
+		assertEquals("[source0, source1, source2, source3, source4, source5, source6, source7, source8, source9]", order.toString());
+	}
+
+	@Test
+	public void resourceKeyLocale() {
+		Locale locale = Locale.getDefault();
+		try {
+			Locale.setDefault(new Locale("tr", "TR"));
+			assertEquals(RenameExecutor.getResourceKey(new File("/FILE.mkv")), RenameExecutor.getResourceKey(new File("/file.mkv")));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+}
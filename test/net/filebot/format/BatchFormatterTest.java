@@ -0,0 +1,72 @@
+package net.filebot.format;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BatchFormatterTest {
+
+	BatchFormatter formatter = new BatchFormatter(4);
+
+	@Test
+	public void order() {
+		List<Integer> items = asList(5, 4, 3, 2, 1, 0);
+
+		List<CompletableFuture<String>> results = formatter.format(items, i -> emptyList(), i -> {
+			Thread.sleep(i * 10);
+			return i.toString();
+		});
+
+		assertEquals("[5, 4, 3, 2, 1, 0]", results.stream().map(CompletableFuture::join).collect(toList()).toString());
+	}
+
+	@Test
+	public void error() {
+		List<CompletableFuture<String>> results = formatter.format(asList("a", "", "c"), s -> singletonList("shared"), s -> {
+			if (s.isEmpty()) {
+				throw new IllegalArgumentException("empty");
+			}
+			return s.toUpperCase();
+		});
+
+		assertEquals("A", results.get(0).join());
+		assertEquals("C", results.get(2).join());
+
+		try {
+			results.get(1).join();
+			fail("CompletionException expected");
+		} catch (CompletionException e) {
+			assertEquals("empty", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void sharedResources() {
+		ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<String, String>();
+		AtomicInteger lookups = new AtomicInteger(0);
+
+		List<CompletableFuture<String>> results = formatter.format(asList("a1", "a2", "a3", "b1", "b2"), s -> singletonList(s.substring(0, 1)), s -> {
+			// expensive lookup that is cached after the first call
+			String k = s.substring(0, 1);
+			if (!cache.containsKey(k)) {
+				lookups.incrementAndGet();
+				Thread.sleep(50);
+				cache.put(k, k.toUpperCase());
+			}
+			return cache.get(k) + s.substring(1);
+		});
+
+		assertEquals("[A1, A2, A3, B1, B2]", results.stream().map(CompletableFuture::join).collect(toList()).toString());
+		assertEquals(2, lookups.get());
+	}
+
+}
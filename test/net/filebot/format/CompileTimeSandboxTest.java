@@ -0,0 +1,141 @@
+package net.filebot.format;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.MultipleCompilationErrorsException;
+import org.codehaus.groovy.control.customizers.ImportCustomizer;
+import org.junit.Test;
+
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+
+public class CompileTimeSandboxTest {
+
+	Script compile(String expression) {
+		CompilerConfiguration config = new CompilerConfiguration();
+
+		ImportCustomizer imports = new ImportCustomizer();
+		imports.addStaticStars(ExpressionFormatFunctions.class.getName());
+		config.addCompilationCustomizers(imports);
+		config.addCompilationCustomizers(CompileTimeSandbox.createCustomizers());
+
+		return new GroovyShell(config).parse(expression);
+	}
+
+	void assertIllegal(String expression) {
+		try {
+			compile(expression);
+			fail("Illegal expression: " + expression);
+		} catch (MultipleCompilationErrorsException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void legalExpressions() {
+		assertEquals("2-4", compile("[1, 2].collect{ it * 2 }.join('-')").run());
+		assertEquals("The IT Crowd", compile("'The IT Crowd (UK)'.replaceAll(/\\s*[(].+[)]$/, '')").run());
+		assertEquals("Firefly", compile("def n = 'firefly'; n.capitalize()").run());
+		assertEquals("b", compile("[a: 'b']['a']").run());
+
+		compile("n.upper() + ' ' + s00e00");
+		compile("any{ vf }{ hd }");
+		compile("new Date().format('yyyy')");
+	}
+
+	@Test
+	public void processExecution() {
+		assertIllegal("'ls'.execute()");
+		assertIllegal("['ls'].execute()");
+		assertIllegal("Runtime.getRuntime().exec('ls')");
+		assertIllegal("Runtime.runtime");
+		assertIllegal("new ProcessBuilder('ls').start()");
+		assertIllegal("System.exit(0)");
+		assertIllegal("System.&exit");
+		assertIllegal("java.lang.System.exit(0)");
+	}
+
+	@Test
+	public void fileSystemWrites() {
+		assertIllegal("new File('x').delete()");
+		assertIllegal("new File('x').text = 'y'");
+		assertIllegal("new File('x') << 'y'");
+		assertIllegal("new File('x').withWriter{ it.write('y') }");
+		assertIllegal("new FileOutputStream('x')");
+		assertIllegal("java.nio.file.Files.delete(null)");
+	}
+
+	@Test
+	public void reflection() {
+		assertIllegal("n.class");
+		assertIllegal("n.getClass()");
+		assertIllegal("n['class']");
+		assertIllegal("n.metaClass");
+		assertIllegal("Class.forName('java.lang.System')");
+		assertIllegal("n.@value");
+		assertIllegal("n.properties");
+		assertIllegal("n.metaPropertyValues");
+		assertIllegal("n.declaredFields");
+		assertIllegal("n.classLoader");
+		assertIllegal("n.getAt('class')");
+		assertIllegal("{ -> }.owner");
+		assertIllegal("n.\"${'class'}\"");
+		assertIllegal("n.\"${'execute'}\"()");
+		assertIllegal("java.lang.reflect.Array.newInstance(String, 1)");
+	}
+
+	@Test
+	public void whitelist() {
+		assertIllegal("new javax.script.ScriptEngineManager().getEngineByName('groovy').eval('\"id\".execute()')");
+		assertIllegal("org.codehaus.groovy.runtime.ProcessGroovyMethods.getMethods().find{ it.name == 'execute' }.invoke(null, 'id')");
+		assertIllegal("new groovy.text.SimpleTemplateEngine().createTemplate('${\"id\".execute()}').make().toString()");
+		assertIllegal("new java.io.PrintWriter('/any/file')");
+		assertIllegal("java.io.PrintWriter w = ['/any/file']");
+		assertIllegal("['/any/file'] as java.io.PrintWriter");
+		assertIllegal("n.properties.find{ it.key == 'cl' + 'ass' }.value.getMethods()");
+		assertIllegal("f.append('x')");
+		assertIllegal("'ls'.execute() | 'cat'.execute()");
+		assertIllegal("@groovy.transform.ASTTest(value = { 'id'.execute() }) def x = 1");
+	}
+
+	@Test
+	public void assignment() {
+		assertEquals(3, compile("def x = 1; x += 2; x").run());
+		assertEquals(2, compile("def x = 1; x++; x").run());
+
+		assertIllegal("f.text = 'x'");
+		assertIllegal("f['text'] = 'x'");
+		assertIllegal("[f].each{ text = 'x' }");
+		assertIllegal("f.lastModified++");
+		assertIllegal("x = 1");
+	}
+
+	@Test
+	public void receivers() {
+		assertEquals(2, compile("def m = [:]; m.put('a', 2); m.get('a')").run());
+		assertEquals(asList(1, 2), compile("def l = [1]; l.add(2); l").run());
+		assertEquals(1, compile("def f = { 1 }; f()").run());
+		assertEquals(1, compile("{ 1 }.call()").run());
+		assertEquals(1, compile("def m = new LinkedHashMap(); m.put('a', 1); m.a").run());
+
+		assertIllegal("info.put('x', 'y')");
+		assertIllegal("info.get('x')");
+		assertIllegal("info.closure.call()");
+		assertIllegal("def f = info.closure; f()");
+		assertIllegal("def f = { 1 }; f = info.closure; f()");
+		assertIllegal("def m = [:]; [1].each{ m = info }; m.put('x', 'y')");
+		assertIllegal("[info].each{ it.add('x') }");
+	}
+
+	@Test
+	public void scripting() {
+		assertIllegal("evaluate('1')");
+		assertIllegal("new GroovyShell().evaluate('1')");
+		assertIllegal("Eval.me('1')");
+		assertIllegal("import java.io.File; new File('x')");
+		assertIllegal("def f() { 1 }; f()");
+	}
+
+}
@@ -0,0 +1,91 @@
+package net.filebot.format;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ExpressionBindingsTest {
+
+	public static class TestBean {
+
+		private final String name;
+
+		public TestBean(String name) {
+			this.name = name;
+		}
+
+		@Define("n")
+		public String getName() {
+			return name;
+		}
+
+		@Define({ "i", "index" })
+		public int getIndex() {
+			return 42;
+		}
+
+		@Define("e")
+		public Object getEmpty() {
+			return "";
+		}
+
+		@Define("x")
+		public Object getException() {
+			throw new IllegalStateException("Failed");
+		}
+
+		@Define(Define.undefined)
+		public Object undefined(String name) {
+			return "undefined:" + name;
+		}
+	}
+
+	@Test
+	public void get() {
+		ExpressionBindings bindings = new ExpressionBindings(new TestBean("Firefly"));
+
+		assertEquals("Firefly", bindings.get("n"));
+		assertEquals("Firefly", bindings.get("N"));
+		assertEquals(42, bindings.get("i"));
+		assertEquals(42, bindings.get("index"));
+		assertEquals(null, bindings.get("y"));
+	}
+
+	@Test
+	public void undefined() {
+		ExpressionBindings bindings = new ExpressionBindings(new TestBean(null));
+
+		assertEquals("undefined:n", bindings.get("n"));
+		assertEquals("undefined:e", bindings.get("e"));
+		assertFalse(bindings.containsKey(Define.undefined));
+	}
+
+	@Test
+	public void exception() {
+		try {
+			new ExpressionBindings(new TestBean("Firefly")).get("x");
+			fail("BindingException expected");
+		} catch (BindingException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+		}
+	}
+
+	@Test
+	public void anonymousBindingBean() {
+		ExpressionBindings bindings = new ExpressionBindings(new Object() {
+
+			@Define("n")
+			public String getName() {
+				return "Serenity";
+			}
+		});
+
+		assertEquals("Serenity", bindings.get("n"));
+	}
+
+	@Test
+	public void bindingTableIsShared() {
+		assertSame(new ExpressionBindings(new TestBean("A")).keySet(), new ExpressionBindings(new TestBean("B")).keySet());
+	}
+
+}
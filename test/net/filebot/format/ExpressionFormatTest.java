@@ -3,13 +3,20 @@ package net.filebot.format;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.script.Bindings;
 import javax.script.CompiledScript;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
 
+import org.codehaus.groovy.control.CompilationFailedException;
 import org.junit.Test;
 
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyShell;
+
 public class ExpressionFormatTest {
 
 	@Test
@@ -97,19 +104,52 @@ public class ExpressionFormatTest {
 	@Test
 	public void illegalBinding() throws Exception {
 		TestScriptFormat format = new TestScriptFormat("Hello {xyz}");
-		format.format(new SimpleBindings());
+		List<SuppressedThrowables> suppressed = new ArrayList<SuppressedThrowables>();
+		format.format(new SimpleBindings(), suppressed::add);
 
 		// check message
-		assertEquals("Suppressed: Binding \"xyz\": undefined", format.suppressed().getMessage());
+		assertEquals("Suppressed: Binding \"xyz\": undefined", suppressed.get(0).getMessage());
 	}
 
 	@Test
 	public void illegalProperty() throws Exception {
 		TestScriptFormat format = new TestScriptFormat("Hello {value.xyz}");
-		format.format("test");
+		List<SuppressedThrowables> suppressed = new ArrayList<SuppressedThrowables>();
+		format.format(format.getBindings("test"), suppressed::add);
 
 		// check message
-		assertEquals("Suppressed: Binding \"xyz\": undefined", format.suppressed().getMessage());
+		assertEquals("Suppressed: Binding \"xyz\": undefined", suppressed.get(0).getMessage());
+	}
+
+	@Test
+	public void bindingNames() throws Exception {
+		GroovyClassLoader classLoader = new GroovyClassLoader();
+
+		assertEquals("[n, s00e00, t]", Scriptlet.analyze("n + ' - ' + s00e00 + ' - ' + t", classLoader).toString());
+		assertEquals("[n, vf]", Scriptlet.analyze("def x = n; any{ vf }{ x.upper() }", classLoader).toString());
+		assertEquals("[n]", Scriptlet.analyze("this.n", classLoader).toString());
+		assertEquals("[n]", Scriptlet.analyze("\"${n}\".split(/\\s/).collect{ it.lower() }.join()", classLoader).toString());
+		assertEquals(null, Scriptlet.analyze("binding.variables.n", classLoader));
+		assertEquals(null, Scriptlet.analyze("getVariable('n')", classLoader));
+	}
+
+	@Test
+	public void compileTimeSandbox() throws Exception {
+		System.setProperty("net.filebot.format.CompileTimeSandbox", "true");
+
+		try {
+			GroovyShell shell = new GroovyShell(ExpressionFormat.createCompilerConfiguration());
+			assertEquals("FIREFLY 2-4", shell.evaluate("'firefly'.upper() + ' ' + [1, 2].collect{ it * 2 }.join('-')"));
+
+			try {
+				shell.parse("new java.io.PrintWriter('/any/file')");
+				fail("CompilationFailedException expected");
+			} catch (CompilationFailedException e) {
+				// expected
+			}
+		} finally {
+			System.clearProperty("net.filebot.format.CompileTimeSandbox");
+		}
 	}
 
 	protected static class TestScriptFormat extends ExpressionFormat {
@@ -0,0 +1,95 @@
+package net.filebot.hash;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TreeHashTest {
+
+	static final int BLOCK_SIZE = 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	byte[] random(int length) {
+		byte[] data = new byte[length];
+		new Random(42).nextBytes(data);
+		return data;
+	}
+
+	String treeHash(byte[] data) {
+		Hash hash = new TreeHash(BLOCK_SIZE);
+
+		// feed data in odd chunks across block boundaries
+		for (int i = 0; i < data.length; i += 100) {
+			hash.update(data, i, Math.min(100, data.length - i));
+		}
+
+		return hash.digest();
+	}
+
+	@Test
+	public void blockHashes() throws Exception {
+		BlockHashes hashes = BlockHashes.parse(treeHash(random(10 * BLOCK_SIZE + 1)));
+
+		assertEquals(11, hashes.getBlockCount());
+		assertEquals(1, hashes.getBlockLength(10));
+		assertEquals(10 * BLOCK_SIZE + 1, hashes.getLength());
+		assertTrue(hashes.isConsistent());
+		assertEquals(hashes.toString(), BlockHashes.parse(hashes.toString()).toString());
+	}
+
+	@Test
+	public void emptyFile() throws Exception {
+		BlockHashes hashes = BlockHashes.parse(treeHash(new byte[0]));
+
+		assertEquals(1, hashes.getBlockCount());
+		assertTrue(hashes.isConsistent());
+	}
+
+	@Test
+	public void verifyFirstBadBlock() throws Exception {
+		byte[] data = random(8 * BLOCK_SIZE);
+		File file = folder.newFile("sample.bin");
+		Files.write(file.toPath(), data);
+
+		TreeHashVerifier verifier = new TreeHashVerifier(file, treeHash(data));
+
+		assertEquals(TreeHashVerifier.OK, verifier.verify(0));
+		assertEquals(TreeHashVerifier.OK, verifier.verifySample(3, new Random()));
+
+		// corrupt block 5
+		long position = 5 * BLOCK_SIZE + 7;
+		try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+			f.seek(position);
+			int b = f.read();
+			f.seek(position);
+			f.write(~b);
+		}
+
+		assertEquals(5, verifier.verify(0));
+		assertEquals(5, verifier.verify(3));
+		assertEquals(TreeHashVerifier.OK, verifier.verify(6));
+		assertEquals(5, verifier.verifySample(8, new Random()));
+	}
+
+	@Test
+	public void parseLine() throws Exception {
+		String hash = treeHash(random(3 * BLOCK_SIZE));
+
+		VerificationFormat format = HashType.TREE.getFormat();
+		Entry<File, String> entry = format.parseObject(format.format("folder/file.txt", hash));
+
+		assertEquals("folder/file.txt", entry.getKey().getPath());
+		assertEquals(hash, entry.getValue());
+	}
+
+}
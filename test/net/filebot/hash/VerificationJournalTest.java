@@ -0,0 +1,47 @@
+package net.filebot.hash;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VerificationJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void resume() throws Exception {
+		File output = new File(folder.getRoot(), "journal.sha256");
+		File file = folder.newFile("sample.bin");
+		Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+
+		VerificationJournal journal = new VerificationJournal(output, HashType.SHA256);
+		assertNull(journal.get(file, "sample.bin"));
+		journal.put(file, "sample.bin", "abc");
+		journal.close();
+
+		// same type resumes
+		journal = new VerificationJournal(output, HashType.SHA256);
+		assertEquals("abc", journal.get(file, "sample.bin"));
+		journal.close();
+
+		// modified files are computed again
+		file.setLastModified(file.lastModified() - 60000);
+		journal = new VerificationJournal(output, HashType.SHA256);
+		assertNull(journal.get(file, "sample.bin"));
+		journal.close();
+
+		// different type is ignored
+		journal = new VerificationJournal(output, HashType.MD5);
+		assertNull(journal.get(file, "sample.bin"));
+		journal.delete();
+
+		assertFalse(VerificationJournal.getJournalFile(output).exists());
+	}
+
+}
@@ -0,0 +1,105 @@
+package net.filebot.media;
+
+import static java.util.Collections.*;
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LibraryIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	File root;
+	File store;
+
+	@Before
+	public void setup() throws Exception {
+		root = folder.newFolder("library");
+		store = new File(folder.getRoot(), "library.tsv");
+	}
+
+	File createFile(String path) throws Exception {
+		File f = new File(root, path);
+		f.getParentFile().mkdirs();
+		f.createNewFile();
+		return f;
+	}
+
+	List<String> names(List<File> files) {
+		return files.stream().map(File::getName).collect(toList());
+	}
+
+	@Test
+	public void refresh() throws Exception {
+		File episode = createFile("a/1.mkv");
+		createFile("b/2.srt");
+		createFile(".hidden/3.mkv");
+
+		LibraryIndex index = new LibraryIndex(root, store);
+		index.refresh(false);
+
+		assertEquals("[1.mkv, 2.srt]", names(index.getFiles()).toString());
+		assertEquals("[a]", names(index.getMediaFolders()).toString());
+		assertEquals("A", index.getDetection(episode, "test", f -> "A"));
+		assertEquals("A", index.getDetection(episode, "test", f -> "B"));
+		index.save();
+
+		// reload index and pick up new files in modified folders
+		createFile("b/4.mkv");
+		new File(root, "b").setLastModified(0);
+
+		LibraryIndex reload = new LibraryIndex(root, store);
+		reload.refresh(false);
+
+		assertEquals("[1.mkv, 2.srt, 4.mkv]", names(reload.getFiles()).toString());
+		assertEquals("[a, b]", names(reload.getMediaFolders()).toString());
+		assertEquals("A", reload.getDetection(episode, "test", f -> "B"));
+	}
+
+	@Test
+	public void escapeFileNames() throws Exception {
+		// tabs and line breaks are not allowed in Windows file names
+		assumeTrue(File.separatorChar == '/');
+
+		File file = createFile("a\tb/1\t2\n3\\4.mkv");
+
+		LibraryIndex index = new LibraryIndex(root, store);
+		index.refresh(false);
+		assertEquals("A", index.getDetection(file, "test", f -> "A"));
+		index.save();
+
+		LibraryIndex reload = new LibraryIndex(root, store);
+		reload.refresh(false);
+
+		assertEquals(singletonList(file), reload.getFiles());
+		assertEquals("A", reload.getDetection(file, "test", f -> "B"));
+	}
+
+	@Test
+	public void modifiedInPlace() throws Exception {
+		File file = createFile("a/1.mkv");
+		long lastModified = file.getParentFile().lastModified();
+
+		LibraryIndex index = new LibraryIndex(root, store);
+		index.refresh(false);
+		assertEquals("A", index.getDetection(file, "test", f -> "A"));
+
+		// modify file without touching the folder
+		Files.write(file.toPath(), new byte[100]);
+		file.getParentFile().setLastModified(lastModified);
+		index.refresh(false);
+
+		assertEquals("B", index.getDetection(file, "test", f -> "B"));
+	}
+
+}
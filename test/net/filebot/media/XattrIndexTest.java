@@ -0,0 +1,54 @@
+package net.filebot.media;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class XattrIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	File store;
+	File file;
+
+	@Before
+	public void setup() throws Exception {
+		store = new File(folder.getRoot(), "xattr.tsv");
+		file = folder.newFile("Firefly - 1x01 - Serenity.mkv");
+	}
+
+	@Test
+	public void putAndReload() throws Exception {
+		new XattrIndex(store).put(file, "Firefly.S01E01.mkv", "{}");
+		new XattrIndex(store).put(file, "Firefly - 1x01.mkv", "{\"@type\":\"Episode\"}");
+
+		XattrIndex.Record r = new XattrIndex(store).get(file);
+		assertEquals("Firefly.S01E01.mkv", r.getOriginalName());
+		assertEquals("{\"@type\":\"Episode\"}", r.json);
+	}
+
+	@Test
+	public void ignoreModifiedFiles() throws Exception {
+		new XattrIndex(store).put(file, "Firefly.S01E01.mkv", "{}");
+		file.setLastModified(file.lastModified() - 60000);
+
+		assertNull(new XattrIndex(store).get(file));
+	}
+
+	@Test
+	public void remove() throws Exception {
+		XattrIndex index = new XattrIndex(store);
+		index.put(file, "Firefly.S01E01.mkv", "{}");
+		index.remove(file);
+
+		assertNull(index.get(file));
+		assertNull(new XattrIndex(store).get(file));
+	}
+
+}
@@ -0,0 +1,199 @@
+package net.filebot.mediainfo;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+
+public class ContainerProbeTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	byte[] concat(byte[]... data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] it : data) {
+			out.write(it, 0, it.length);
+		}
+		return out.toByteArray();
+	}
+
+	byte[] element(int id, byte[]... children) {
+		byte[] payload = concat(children);
+		ByteBuffer b = ByteBuffer.allocate(12 + payload.length);
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			if (id >>> shift != 0) {
+				b.put((byte) (id >>> shift));
+			}
+		}
+		b.putLong(0x0100000000000000L | payload.length).put(payload);
+		return copyOf(b.array(), b.position());
+	}
+
+	byte[] element(int id, long value) {
+		return element(id, ByteBuffer.allocate(8).putLong(value).array());
+	}
+
+	byte[] element(int id, double value) {
+		return element(id, ByteBuffer.allocate(8).putDouble(value).array());
+	}
+
+	byte[] element(int id, String value) {
+		return element(id, value.getBytes(UTF_8));
+	}
+
+	byte[] track(int type, String codec, String language, int width, int height) {
+		return element(0xAE, element(0x83, type), element(0x86, codec), language == null ? new byte[0] : element(0x22B59C, language), width == 0 ? new byte[0] : element(0xE0, element(0xB0, width), element(0xBA, height)));
+	}
+
+	byte[] box(String type, byte[]... children) {
+		byte[] payload = concat(children);
+		return ByteBuffer.allocate(8 + payload.length).putInt(8 + payload.length).put(type.getBytes(US_ASCII)).put(payload).array();
+	}
+
+	byte[] trak(String handler, String codec, String language, int width, int height) {
+		int lang = (language.charAt(0) - 0x60) << 10 | (language.charAt(1) - 0x60) << 5 | (language.charAt(2) - 0x60);
+		byte[] mdhd = ByteBuffer.allocate(24).putInt(0).putInt(0).putInt(0).putInt(1000).putInt(60000).putShort((short) lang).array();
+		byte[] hdlr = ByteBuffer.allocate(24).putInt(0).putInt(0).put(handler.getBytes(US_ASCII)).array();
+		ByteBuffer stsd = ByteBuffer.allocate(8 + 86).putInt(0).putInt(1).putInt(86).put(codec.getBytes(US_ASCII));
+		stsd.putShort(8 + 32, (short) width).putShort(8 + 34, (short) height);
+		return box("trak", box("tkhd", new byte[84]), box("mdia", box("mdhd", mdhd), box("hdlr", hdlr), box("minf", box("stbl", box("stsd", stsd.array())))));
+	}
+
+	byte[] chunk(String id, byte[]... children) {
+		byte[] payload = concat(children);
+		return ByteBuffer.allocate(8 + payload.length + payload.length % 2).order(ByteOrder.LITTLE_ENDIAN).put(id.getBytes(US_ASCII)).putInt(payload.length).put(payload).array();
+	}
+
+	byte[] le(int size, int... values) {
+		ByteBuffer b = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i : values) {
+			b.putInt(i);
+		}
+		return b.array();
+	}
+
+	@Test
+	public void matroska() throws Exception {
+		byte[] header = element(0x1A45DFA3, element(0x4282, "matroska"));
+		byte[] info = element(0x1549A966, element(0x2AD7B1, 1000000), element(0x4489, 1389000.0));
+		byte[] tracks = element(0x1654AE6B, track(1, "V_MPEG4/ISO/AVC", null, 1280, 720), track(2, "A_AAC", "jpn", 0, 0), track(0x11, "S_TEXT/ASS", "eng", 0, 0));
+		byte[] cluster = element(0x1F43B675, new byte[1024]);
+
+		File file = folder.newFile("sample.mkv");
+		Files.write(file.toPath(), concat(header, element(0x18538067, info, tracks, cluster)));
+
+		ContainerProbe.Info probe = ContainerProbe.probe(file);
+
+		assertEquals("Matroska", probe.getFormat());
+		assertEquals(1389000, probe.getDuration());
+		assertEquals(asList(1280, 720), probe.getDimension());
+		assertEquals(singletonList("jpn"), probe.getLanguages(StreamKind.Audio));
+		assertEquals(singletonList("S_TEXT/ASS"), probe.getCodecs(StreamKind.Text));
+	}
+
+	@Test
+	public void matroskaLanguageBCP47() throws Exception {
+		byte[] header = element(0x1A45DFA3, element(0x4282, "matroska"));
+		byte[] info = element(0x1549A966, element(0x4489, 1389000.0));
+		byte[] audio = element(0xAE, element(0x83, 2), element(0x86, "A_AAC"), element(0x22B59C, "und"), element(0x22B59D, "ja-JP"));
+		byte[] text = element(0xAE, element(0x83, 0x11), element(0x86, "S_TEXT/ASS"), element(0x22B59D, "und"));
+		byte[] cluster = element(0x1F43B675, new byte[1024]);
+
+		File file = folder.newFile("sample.mkv");
+		Files.write(file.toPath(), concat(header, element(0x18538067, info, element(0x1654AE6B, audio, text), cluster)));
+
+		ContainerProbe.Info probe = ContainerProbe.probe(file);
+
+		assertEquals(singletonList("ja"), probe.getLanguages(StreamKind.Audio));
+		assertEquals(emptyList(), probe.getLanguages(StreamKind.Text));
+	}
+
+	@Test
+	public void matroskaSeekHead() throws Exception {
+		byte[] header = element(0x1A45DFA3, element(0x4282, "webm"));
+		byte[] cluster = element(0x1F43B675, new byte[1024]);
+		byte[] info = element(0x1549A966, element(0x4489, 60000.0));
+		byte[] tracks = element(0x1654AE6B, track(1, "V_VP9", null, 640, 360));
+
+		// seek head with fixed size entries, positions are relative to the segment data
+		byte[] seekHead = element(0x114D9B74, element(0x4DBB, element(0x53AB, 0x1549A966L), element(0x53AC, 0L)), element(0x4DBB, element(0x53AB, 0x1654AE6BL), element(0x53AC, 0L)));
+		int offset = seekHead.length + cluster.length;
+		seekHead = element(0x114D9B74, element(0x4DBB, element(0x53AB, 0x1549A966L), element(0x53AC, offset)), element(0x4DBB, element(0x53AB, 0x1654AE6BL), element(0x53AC, offset + info.length)));
+
+		File file = folder.newFile("sample.webm");
+		Files.write(file.toPath(), concat(header, element(0x18538067, seekHead, cluster, info, tracks)));
+
+		ContainerProbe.Info probe = ContainerProbe.probe(file);
+
+		assertEquals("WebM", probe.getFormat());
+		assertEquals(60000, probe.getDuration());
+		assertEquals(asList(640, 360), probe.getDimension());
+	}
+
+	@Test
+	public void mpeg4() throws Exception {
+		byte[] ftyp = box("ftyp", "isom".getBytes(US_ASCII), new byte[4]);
+		byte[] mdat = box("mdat", new byte[4096]);
+		byte[] mvhd = ByteBuffer.allocate(100).putInt(0).putInt(0).putInt(0).putInt(600).putInt(1389 * 600).array();
+		byte[] moov = box("moov", box("mvhd", mvhd), trak("vide", "avc1", "und", 1920, 1080), trak("soun", "mp4a", "jpn", 0, 0), trak("sbtl", "tx3g", "eng", 0, 0));
+
+		File file = folder.newFile("sample.mp4");
+		Files.write(file.toPath(), concat(ftyp, mdat, moov));
+
+		ContainerProbe.Info probe = ContainerProbe.probe(file);
+
+		assertEquals("MPEG-4", probe.getFormat());
+		assertEquals(1389000, probe.getDuration());
+		assertEquals(asList(1920, 1080), probe.getDimension());
+		assertEquals(asList("avc1"), probe.getCodecs(StreamKind.Video));
+		assertEquals(emptyList(), probe.getLanguages(StreamKind.Video));
+		assertEquals(asList("jpn"), probe.getLanguages(StreamKind.Audio));
+		assertEquals(asList("eng"), probe.getLanguages(StreamKind.Text));
+	}
+
+	@Test
+	public void avi() throws Exception {
+		byte[] avih = chunk("avih", le(56, 40000, 0, 0, 0, 100, 0, 2, 0, 640, 480));
+		byte[] video = chunk("LIST", "strl".getBytes(US_ASCII), chunk("strh", concat("vids".getBytes(US_ASCII), "XVID".getBytes(US_ASCII), le(48, 0, 0, 0, 1, 25, 0, 250))), chunk("strf", concat(le(16, 40, 640, -480, 0), "XVID".getBytes(US_ASCII), new byte[20])));
+		byte[] audio = chunk("LIST", "strl".getBytes(US_ASCII), chunk("strh", concat("auds".getBytes(US_ASCII), new byte[52])), chunk("strf", new byte[] { 0x55, 0, 2, 0, 0x44, (byte) 0xAC, 0, 0 }));
+		byte[] hdrl = chunk("LIST", "hdrl".getBytes(US_ASCII), avih, video, audio);
+		byte[] movi = chunk("LIST", "movi".getBytes(US_ASCII), new byte[1024]);
+
+		File file = folder.newFile("sample.avi");
+		Files.write(file.toPath(), chunk("RIFF", "AVI ".getBytes(US_ASCII), hdrl, movi));
+
+		ContainerProbe.Info probe = ContainerProbe.probe(file);
+
+		assertEquals("AVI", probe.getFormat());
+		assertEquals(10000, probe.getDuration());
+		assertEquals(asList(640, 480), probe.getDimension());
+		assertEquals(asList("XVID"), probe.getCodecs(StreamKind.Video));
+		assertEquals(asList("55"), probe.getCodecs(StreamKind.Audio));
+	}
+
+	@Test
+	public void unsupported() throws Exception {
+		File text = folder.newFile("sample.txt");
+		Files.write(text.toPath(), "Hello World".getBytes(UTF_8));
+		assertNull(ContainerProbe.probe(text));
+
+		// header only, without segment
+		File header = folder.newFile("sample.mkv");
+		Files.write(header.toPath(), element(0x1A45DFA3, element(0x4282, "matroska")));
+		assertNull(ContainerProbe.probe(header));
+	}
+
+}
@@ -0,0 +1,154 @@
+package net.filebot.mediainfo;
+
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.filebot.Cache;
+import net.filebot.CacheType;
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.DiskStoreConfiguration;
+
+public class MediaInfoCacheTest {
+
+	static class SampleMediaInfo implements MediaInfoSource {
+
+		int calls = 0;
+
+		@Override
+		public synchronized int streamCount(StreamKind streamKind) {
+			calls++;
+			return streamKind == StreamKind.Audio ? 2 : streamKind == StreamKind.Video ? 1 : 0;
+		}
+
+		@Override
+		public String get(StreamKind streamKind, int streamNumber, String parameter) {
+			calls++;
+			return parameter.equals("Language") ? "lang" + streamNumber : parameter.equals("FrameRate") ? "23.976" : "";
+		}
+
+		@Override
+		public List<Map<String, String>> get(StreamKind streamKind, String... parameters) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Map<StreamKind, List<Map<String, String>>> snapshot() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Map<String, String> snapshot(StreamKind streamKind, int streamNumber) {
+			return emptyMap();
+		}
+
+		@Override
+		public void close() {
+			// no native handle
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	CacheManager manager;
+	Cache cache;
+
+	@Before
+	public void setup() throws Exception {
+		manager = new CacheManager(new Configuration().name("MediaInfoCacheTest").diskStore(new DiskStoreConfiguration().path(folder.newFolder("cache").getPath())));
+		manager.addCache(new net.sf.ehcache.Cache(new CacheConfiguration().name("mediainfo").maxEntriesLocalHeap(200).maxEntriesLocalDisk(0).eternal(true).overflowToDisk(true).diskPersistent(true)));
+		cache = new Cache(manager.getCache("mediainfo"), CacheType.Persistent);
+	}
+
+	@After
+	public void shutdown() {
+		manager.shutdown();
+	}
+
+	@Test
+	public void storePartialLookup() throws Exception {
+		File file = folder.newFile("sample.mkv");
+
+		SampleMediaInfo mi = new SampleMediaInfo();
+		MediaInfoSnapshot lookup = MediaInfoCache.lookup(file, () -> mi, cache);
+		assertEquals("23.976", lookup.get(StreamKind.Video, 0, "FrameRate"));
+		assertEquals("", lookup.get(StreamKind.Video, 0, "ScanType"));
+		lookup.flush();
+
+		// restore fetched values without opening the file again
+		MediaInfoSnapshot restored = MediaInfoCache.lookup(file, () -> {
+			throw new IllegalStateException("Values must be restored from cache");
+		}, cache);
+		assertFalse(restored.isComplete());
+		assertEquals("23.976", restored.get(StreamKind.Video, 0, "FrameRate"));
+		assertEquals("", restored.get(StreamKind.Video, 0, "ScanType"));
+		assertEquals(1, restored.streamCount(StreamKind.Video));
+	}
+
+	@Test
+	public void mergePartialLookup() throws Exception {
+		File file = folder.newFile("sample.mkv");
+
+		MediaInfoSnapshot video = MediaInfoCache.lookup(file, SampleMediaInfo::new, cache);
+		MediaInfoSnapshot audio = MediaInfoCache.lookup(file, SampleMediaInfo::new, cache);
+
+		video.get(StreamKind.Video, 0, "FrameRate");
+		audio.get(StreamKind.Audio, 1, "Language");
+		video.flush();
+		audio.flush();
+
+		SampleMediaInfo mi = new SampleMediaInfo();
+		MediaInfoSnapshot restored = MediaInfoCache.lookup(file, () -> mi, cache);
+		assertEquals("23.976", restored.get(StreamKind.Video, 0, "FrameRate"));
+		assertEquals("lang1", restored.get(StreamKind.Audio, 1, "Language"));
+		assertEquals(0, mi.calls);
+
+		// fetch missing values on demand
+		assertEquals("lang0", restored.get(StreamKind.Audio, 0, "Language"));
+		assertEquals(1, mi.calls);
+	}
+
+	@Test
+	public void invalidateModifiedFile() throws Exception {
+		File file = folder.newFile("sample.mkv");
+
+		MediaInfoSnapshot lookup = MediaInfoCache.lookup(file, SampleMediaInfo::new, cache);
+		lookup.get(StreamKind.Video, 0, "FrameRate");
+		lookup.flush();
+
+		Files.write(file.toPath(), new byte[100]);
+
+		SampleMediaInfo mi = new SampleMediaInfo();
+		MediaInfoCache.lookup(file, () -> mi, cache).get(StreamKind.Video, 0, "FrameRate");
+		assertEquals(2, mi.calls);
+	}
+
+	@Test
+	public void printFetchedValuesOnly() throws Exception {
+		File file = folder.newFile("sample.mkv");
+
+		SampleMediaInfo mi = new SampleMediaInfo();
+		MediaInfoSnapshot lookup = MediaInfoCache.lookup(file, () -> mi, cache);
+		assertEquals("{}", lookup.toString());
+		assertEquals(0, mi.calls);
+
+		lookup.get(StreamKind.Video, 0, "FrameRate");
+		assertEquals("{Video/0={FrameRate=23.976}}", lookup.toString());
+		assertEquals(2, mi.calls);
+	}
+
+}
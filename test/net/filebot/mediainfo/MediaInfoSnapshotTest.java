@@ -0,0 +1,55 @@
+package net.filebot.mediainfo;
+
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+
+public class MediaInfoSnapshotTest {
+
+	MediaInfoSnapshot createSnapshot() {
+		Map<String, String> general = new LinkedHashMap<String, String>();
+		general.put("Format", "Matroska");
+		general.put("Duration", "1389000");
+		general.put("Title", "Ünïcödé");
+
+		List<Map<String, String>> audio = new ArrayList<Map<String, String>>();
+		audio.add(singletonMap("Language", "en"));
+		audio.add(singletonMap("Language", "ja"));
+
+		Map<StreamKind, List<Map<String, String>>> streams = new EnumMap<StreamKind, List<Map<String, String>>>(StreamKind.class);
+		streams.put(StreamKind.General, singletonList(general));
+		streams.put(StreamKind.Audio, audio);
+		return new MediaInfoSnapshot(streams);
+	}
+
+	@Test
+	public void get() {
+		MediaInfoSnapshot snapshot = createSnapshot();
+
+		assertEquals("Matroska", snapshot.get(StreamKind.General, 0, "Format"));
+		assertEquals("", snapshot.get(StreamKind.General, 0, "Width"));
+		assertEquals("", snapshot.get(StreamKind.Video, 0, "Width"));
+		assertEquals(2, snapshot.streamCount(StreamKind.Audio));
+		assertEquals(0, snapshot.streamCount(StreamKind.Text));
+	}
+
+	@Test
+	public void encodeDecode() throws Exception {
+		MediaInfoSnapshot snapshot = createSnapshot();
+		MediaInfoSnapshot copy = MediaInfoSnapshot.decode(snapshot.encode());
+
+		assertEquals(snapshot.snapshot(), copy.snapshot());
+		assertEquals("Ünïcödé", copy.get(StreamKind.General, 0, "Title"));
+		assertEquals("ja", copy.get(StreamKind.Audio, 1, "Language"));
+	}
+
+}
@@ -0,0 +1,93 @@
+package net.filebot.platform.posix;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NativeCloneTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	byte[] data = new byte[100000];
+	File source;
+
+	@Before
+	public void setup() throws Exception {
+		assumeTrue(NativeClone.isSupported());
+
+		new Random(42).nextBytes(data);
+		source = folder.newFile("source.bin");
+		Files.write(source.toPath(), data);
+	}
+
+	@Test(expected = IOException.class)
+	public void sameFile() throws Exception {
+		try {
+			NativeClone.clone(source, new File(source.getPath()));
+		} finally {
+			assertArrayEquals(data, Files.readAllBytes(source.toPath()));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void hardlink() throws Exception {
+		File link = new File(source.getPath() + ".link");
+		Files.createLink(link.toPath(), source.toPath());
+
+		try {
+			NativeClone.clone(source, link);
+		} finally {
+			assertArrayEquals(data, Files.readAllBytes(source.toPath()));
+			assertArrayEquals(data, Files.readAllBytes(link.toPath()));
+		}
+	}
+
+	@Test
+	public void keepDestinationOnFailure() throws Exception {
+		byte[] existing = "existing".getBytes();
+
+		File destination = new File(source.getPath() + ".clone");
+		Files.write(destination.toPath(), existing);
+
+		try {
+			NativeClone.clone(source, destination);
+			assertArrayEquals(data, Files.readAllBytes(destination.toPath()));
+		} catch (IOException e) {
+			// filesystem does not support copy-on-write clones
+			assertArrayEquals(existing, Files.readAllBytes(destination.toPath()));
+		}
+
+		// no temporary files left behind
+		assertEquals(0, destination.getParentFile().list((dir, name) -> name.startsWith("." + destination.getName())).length);
+	}
+
+	@Test
+	public void keepPermissions() throws Exception {
+		Files.setPosixFilePermissions(source.toPath(), PosixFilePermissions.fromString("rw-------"));
+		Files.setLastModifiedTime(source.toPath(), FileTime.fromMillis(1000000000000L));
+
+		File destination = new File(source.getPath() + ".clone");
+		try {
+			NativeClone.clone(source, destination);
+		} catch (IOException e) {
+			// filesystem does not support copy-on-write clones
+			assumeNoException(e);
+		}
+
+		assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(destination.toPath())));
+		assertEquals(1000000000000L, Files.getLastModifiedTime(destination.toPath()).toMillis());
+	}
+
+}
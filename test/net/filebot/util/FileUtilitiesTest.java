@@ -4,6 +4,9 @@ package net.filebot.util;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 
@@ -58,4 +61,50 @@ public class FileUtilitiesTest {
 		assertEquals("/server/share/data/file.txt", FileUtilities.normalizePathSeparators("//server/share/data/file.txt"));
 	}
 
+	@Test
+	public void copyAs() throws Exception {
+		byte[] data = new byte[100000];
+		new Random(42).nextBytes(data);
+
+		File source = File.createTempFile("source", ".bin");
+		File destination = new File(source.getPath() + ".copy");
+		source.deleteOnExit();
+		destination.deleteOnExit();
+		Files.write(source.toPath(), data);
+
+		AtomicLong progress = new AtomicLong();
+		FileUtilities.copyAs(source, destination, progress::set);
+
+		assertArrayEquals(data, Files.readAllBytes(destination.toPath()));
+		assertEquals(data.length, progress.get());
+
+		// copy onto itself must not truncate the file
+		FileUtilities.copyAs(destination, destination);
+		assertArrayEquals(data, Files.readAllBytes(destination.toPath()));
+	}
+
+	@Test
+	public void equalsFileSample() throws Exception {
+		byte[] data = new byte[1000000];
+		new Random(42).nextBytes(data);
+
+		File a = File.createTempFile("sample-a", ".bin");
+		File b = File.createTempFile("sample-b", ".bin");
+		a.deleteOnExit();
+		b.deleteOnExit();
+		Files.write(a.toPath(), data);
+		Files.write(b.toPath(), data);
+
+		assertTrue(FileUtilities.equalsFileSample(a, b));
+
+		// different tail
+		data[data.length - 1]++;
+		Files.write(b.toPath(), data);
+		assertFalse(FileUtilities.equalsFileSample(a, b));
+
+		// different size
+		Files.write(b.toPath(), new byte[10]);
+		assertFalse(FileUtilities.equalsFileSample(a, b));
+	}
+
 }
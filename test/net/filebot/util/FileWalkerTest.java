@@ -0,0 +1,90 @@
+package net.filebot.util;
+
+import static java.util.Arrays.*;
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileWalkerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	File root;
+
+	@Before
+	public void setup() throws Exception {
+		root = folder.newFolder("walk");
+		for (String path : asList("b/2.txt", "b/1.txt", "a/c/3.txt", "a/4.txt", "5.txt", ".hidden/6.txt", "a/.7.txt", "d/e/f/8.txt")) {
+			File f = new File(root, path);
+			f.getParentFile().mkdirs();
+			f.createNewFile();
+		}
+	}
+
+	List<String> names(List<File> files) {
+		return files.stream().map(File::getName).collect(toList());
+	}
+
+	@Test
+	public void listOrdered() throws Exception {
+		List<File> files = new FileWalker(32, File::isFile, null).list(new File[] { root }, Comparator.naturalOrder());
+
+		assertEquals("[3.txt, 4.txt, 1.txt, 2.txt, 8.txt, 5.txt]", names(files).toString());
+		assertEquals(new File(root, "a/c/3.txt"), files.get(0));
+	}
+
+	@Test
+	public void listDepth() throws Exception {
+		List<File> files = new FileWalker(1, File::isFile, null).list(new File[] { root }, Comparator.naturalOrder());
+
+		assertEquals("[4.txt, 1.txt, 2.txt, 5.txt]", names(files).toString());
+	}
+
+	@Test
+	public void listUnlimitedDepth() throws Exception {
+		List<File> files = new FileWalker(Integer.MAX_VALUE, File::isFile, null).list(new File[] { root }, Comparator.naturalOrder());
+
+		assertEquals("[3.txt, 4.txt, 1.txt, 2.txt, 8.txt, 5.txt]", names(files).toString());
+	}
+
+	@Test
+	public void listHidden() throws Exception {
+		List<File> files = new FileWalker(32, File::isFile, null, true).list(new File[] { root }, Comparator.naturalOrder());
+
+		assertEquals("[6.txt, 3.txt, .7.txt, 4.txt, 1.txt, 2.txt, 8.txt, 5.txt]", names(files).toString());
+	}
+
+	@Test
+	public void listFolders() throws Exception {
+		List<File> files = new FileWalker(32, File::isDirectory, null).list(new File[] { root }, Comparator.naturalOrder());
+
+		assertEquals("[c, f, e, a, b, d, " + root.getName() + "]", names(files).toString());
+	}
+
+	@Test
+	public void walkPrune() throws Exception {
+		Set<String> files = new ConcurrentSkipListSet<String>();
+		new FileWalker(32, f -> true, f -> f.getName().equals("a") || f.getName().equals("e")).walk(new File[] { root }, f -> files.add(f.getName()));
+
+		assertEquals("[1.txt, 2.txt, 5.txt, a, b, d, e, " + root.getName() + "]", files.toString());
+	}
+
+	@Test
+	public void listFilesFromFolderListing() throws Exception {
+		List<File> files = new FileWalker(32, f -> f.isDirectory() && f.list().length == 2, null).list(new File[] { root }, Comparator.naturalOrder());
+
+		assertEquals("[b]", names(files).toString());
+	}
+
+}